@@ -0,0 +1,282 @@
+/*
+ * (C) YANDEX LLC, 2014-2016
+ *
+ * The Source Code called "YoctoDB" available at
+ * https://github.com/yandex/yoctodb is subject to the terms of the
+ * Mozilla Public License, v. 2.0 (hereinafter referred to as the "License").
+ *
+ * A copy of the License is also available at http://mozilla.org/MPL/2.0/.
+ */
+
+package com.yandex.yoctodb.benchmark;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+import org.jetbrains.annotations.NotNull;
+import org.openjdk.jmh.util.ListStatistics;
+import org.openjdk.jmh.util.Statistics;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Stores JMH JSON results ({@code -rf json -rff <file>}) as baselines and
+ * compares results against them.
+ *
+ * <pre>
+ * java -cp benchmark/target/benchmarks.jar \
+ *     com.yandex.yoctodb.benchmark.Baseline save &lt;result&gt; &lt;baseline&gt;
+ * java -cp benchmark/target/benchmarks.jar \
+ *     com.yandex.yoctodb.benchmark.Baseline compare &lt;baseline&gt; &lt;result&gt; \
+ *     [threshold percent]
+ * </pre>
+ *
+ * A benchmark (with its parameters) regresses if its score becomes worse
+ * by at least the threshold (5% by default) and the difference is
+ * statistically significant at {@link #CONFIDENCE} according to the
+ * iteration scores of both runs. The difference of runs with a single
+ * iteration is considered significant. {@code compare} exits with status
+ * 2 if there are regressions.
+ *
+ * @author agent
+ */
+public final class Baseline {
+    static final double CONFIDENCE = 0.99;
+
+    private static final double DEFAULT_THRESHOLD = 5.0;
+
+    private Baseline() {
+        // Can't instantiate
+    }
+
+    /**
+     * Primary metric of a benchmark run
+     */
+    static final class Result {
+        @NotNull
+        final String mode;
+        @NotNull
+        final String unit;
+        final double score;
+        @NotNull
+        final Statistics statistics;
+
+        Result(
+                @NotNull
+                final String mode,
+                @NotNull
+                final String unit,
+                final double score,
+                @NotNull
+                final Statistics statistics) {
+            this.mode = mode;
+            this.unit = unit;
+            this.score = score;
+            this.statistics = statistics;
+        }
+
+        boolean higherIsBetter() {
+            return "thrpt".equals(mode);
+        }
+    }
+
+    public static void main(final String[] args) throws IOException {
+        if (args.length == 3 && "save".equals(args[0])) {
+            save(new File(args[1]), new File(args[2]));
+        } else if ((args.length == 3 || args.length == 4) &&
+                   "compare".equals(args[0])) {
+            final double threshold =
+                    args.length == 4 ?
+                            Double.parseDouble(args[3]) :
+                            DEFAULT_THRESHOLD;
+            final int regressions =
+                    compare(
+                            read(new File(args[1])),
+                            read(new File(args[2])),
+                            threshold);
+            if (regressions > 0) {
+                System.exit(2);
+            }
+        } else {
+            System.err.println(
+                    "Usage: " + Baseline.class.getName() +
+                    " save <result> <baseline> | " +
+                    "compare <baseline> <result> [threshold percent]");
+            System.exit(1);
+        }
+    }
+
+    private static void save(
+            @NotNull
+            final File result,
+            @NotNull
+            final File baseline) throws IOException {
+        // Validating
+        final int count = read(result).size();
+
+        final File parent = baseline.getAbsoluteFile().getParentFile();
+        if (!parent.isDirectory() && !parent.mkdirs()) {
+            throw new IOException("Can't create " + parent);
+        }
+        Files.copy(result, baseline);
+
+        System.out.println(
+                "Saved " + count + " results from " + result +
+                " to " + baseline);
+    }
+
+    /**
+     * Read JMH JSON results
+     *
+     * @param file JMH JSON result file
+     * @return results by benchmark name with sorted parameters
+     */
+    @NotNull
+    static Map<String, Result> read(
+            @NotNull
+            final File file) throws IOException {
+        final Object json =
+                Json.parse(Files.toString(file, Charsets.UTF_8));
+        if (!(json instanceof List)) {
+            throw new IllegalArgumentException(
+                    "JMH JSON results expected in " + file);
+        }
+
+        final Map<String, Result> results = new TreeMap<>();
+        for (Object item : (List<?>) json) {
+            final Map<?, ?> run = (Map<?, ?>) item;
+
+            final StringBuilder key =
+                    new StringBuilder((String) run.get("benchmark"));
+            final Map<?, ?> params = (Map<?, ?>) run.get("params");
+            if (params != null) {
+                for (Map.Entry<?, ?> param :
+                        new TreeMap<>(params).entrySet()) {
+                    key.append(' ')
+                       .append(param.getKey())
+                       .append('=')
+                       .append(param.getValue());
+                }
+            }
+
+            final Map<?, ?> metric = (Map<?, ?>) run.get("primaryMetric");
+            final ListStatistics statistics = new ListStatistics();
+            final List<?> forks = (List<?>) metric.get("rawData");
+            if (forks != null) {
+                for (Object fork : forks) {
+                    for (Object iteration : (List<?>) fork) {
+                        statistics.addValue(number(iteration));
+                    }
+                }
+            }
+
+            results.put(
+                    key.toString(),
+                    new Result(
+                            (String) run.get("mode"),
+                            (String) metric.get("scoreUnit"),
+                            number(metric.get("score")),
+                            statistics));
+        }
+
+        return results;
+    }
+
+    private static double number(final Object value) {
+        // JMH writes NaN and infinities as strings
+        if (value instanceof String) {
+            return Double.parseDouble((String) value);
+        }
+
+        return (Double) value;
+    }
+
+    /**
+     * Print comparison report
+     *
+     * @param baseline  baseline results
+     * @param current   current results
+     * @param threshold minimal significant relative change in percents
+     * @return regression count
+     */
+    static int compare(
+            @NotNull
+            final Map<String, Result> baseline,
+            @NotNull
+            final Map<String, Result> current,
+            final double threshold) {
+        final List<String> regressions = new ArrayList<>();
+
+        System.out.println(
+                "benchmark\tbaseline\tcurrent\tunit\tchange_%\tverdict");
+        for (Map.Entry<String, Result> entry : current.entrySet()) {
+            final String key = entry.getKey();
+            final Result after = entry.getValue();
+            final Result before = baseline.get(key);
+
+            if (before == null) {
+                System.out.println(
+                        key + "\t-\t" + after.score + "\t" + after.unit +
+                        "\t-\tNEW");
+                continue;
+            }
+
+            if (!before.mode.equals(after.mode) ||
+                !before.unit.equals(after.unit)) {
+                System.out.println(
+                        key + "\t" + before.score + "\t" + after.score +
+                        "\t" + after.unit + "\t-\tINCOMPARABLE");
+                continue;
+            }
+
+            final double change =
+                    (after.score - before.score) / before.score * 100.0;
+            final boolean worse =
+                    after.higherIsBetter() ? change < 0.0 : change > 0.0;
+            final boolean significant =
+                    Math.abs(change) >= threshold &&
+                    (before.statistics.getN() < 2 ||
+                     after.statistics.getN() < 2 ||
+                     before.statistics.isDifferent(
+                             after.statistics,
+                             CONFIDENCE));
+
+            final String verdict;
+            if (!significant) {
+                verdict = "SAME";
+            } else if (worse) {
+                verdict = "REGRESSION";
+                regressions.add(key);
+            } else {
+                verdict = "IMPROVEMENT";
+            }
+
+            System.out.println(
+                    key + "\t" + before.score + "\t" + after.score + "\t" +
+                    after.unit + "\t" + String.format("%+.1f", change) +
+                    "\t" + verdict);
+        }
+
+        for (String key : baseline.keySet()) {
+            if (!current.containsKey(key)) {
+                System.out.println(
+                        key + "\t" + baseline.get(key).score +
+                        "\t-\t-\t-\tMISSING");
+            }
+        }
+
+        System.out.println();
+        System.out.println(
+                regressions.size() + " regression(s) with threshold " +
+                threshold + "% and confidence " + CONFIDENCE);
+        for (String key : regressions) {
+            System.out.println("  " + key);
+        }
+
+        return regressions.size();
+    }
+}
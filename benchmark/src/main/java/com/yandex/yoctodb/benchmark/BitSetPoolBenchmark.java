@@ -0,0 +1,133 @@
+/*
+ * (C) YANDEX LLC, 2014-2016
+ *
+ * The Source Code called "YoctoDB" available at
+ * https://github.com/yandex/yoctodb is subject to the terms of the
+ * Mozilla Public License, v. 2.0 (hereinafter referred to as the "License").
+ *
+ * A copy of the License is also available at http://mozilla.org/MPL/2.0/.
+ */
+
+package com.yandex.yoctodb.benchmark;
+
+import com.yandex.yoctodb.util.mutable.ArrayBitSet;
+import com.yandex.yoctodb.util.mutable.ArrayBitSetPool;
+import com.yandex.yoctodb.util.mutable.impl.AllocatingArrayBitSetPool;
+import com.yandex.yoctodb.util.mutable.impl.CachedArrayBitSetPool;
+import com.yandex.yoctodb.util.mutable.impl.ThreadLocalCachedArrayBitSetPool;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link ArrayBitSetPool} implementations shared by many query
+ * threads.
+ *
+ * Each query borrows one to {@link #MAX_SETS} sets sized as one of
+ * {@link #PARTITIONS} databases of different sizes, intersects them and
+ * returns them back to the pool.
+ *
+ * The thread count is set with {@code -t}, {@link #main(String[])} runs
+ * 1, 4, 16 and 64 threads with the GC profiler.
+ *
+ * @author agent
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class BitSetPoolBenchmark {
+    private static final int MAX_SETS = 3;
+
+    // Database sizes relative to the largest one
+    private static final int[] PARTITIONS = {1, 4, 16};
+
+    private static final int[] THREADS = {1, 4, 16, 64};
+
+    public enum Pool {
+        ALLOCATING,
+        CACHED,
+        THREAD_LOCAL_CACHED
+    }
+
+    @State(Scope.Benchmark)
+    public static class SharedPool {
+        @Param({"ALLOCATING", "CACHED", "THREAD_LOCAL_CACHED"})
+        private Pool pool;
+
+        @Param({"100000", "1000000"})
+        private int documents;
+
+        private ArrayBitSetPool instance;
+
+        @Setup
+        public void setUp() {
+            switch (pool) {
+                case ALLOCATING:
+                    instance = AllocatingArrayBitSetPool.INSTANCE;
+                    break;
+                case CACHED:
+                    instance = new CachedArrayBitSetPool();
+                    break;
+                case THREAD_LOCAL_CACHED:
+                    instance = new ThreadLocalCachedArrayBitSetPool();
+                    break;
+                default:
+                    throw new UnsupportedOperationException(
+                            "Unsupported pool: " + pool);
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class QueryMix {
+        private final Random random = new Random(SyntheticData.SEED);
+        private final ArrayBitSet[] sets = new ArrayBitSet[MAX_SETS];
+    }
+
+    @Benchmark
+    public int query(
+            final SharedPool shared,
+            final QueryMix mix) {
+        final int size =
+                shared.documents /
+                PARTITIONS[mix.random.nextInt(PARTITIONS.length)];
+        final int count = 1 + mix.random.nextInt(MAX_SETS);
+
+        final ArrayBitSet result = shared.instance.borrowSet(size);
+        result.set();
+        for (int i = 0; i < count; i++) {
+            final ArrayBitSet condition = shared.instance.borrowSet(size);
+            condition.set(mix.random.nextInt(size));
+            result.and(condition);
+            mix.sets[i] = condition;
+        }
+
+        final int cardinality = result.cardinality();
+
+        for (int i = 0; i < count; i++) {
+            shared.instance.returnSet(mix.sets[i]);
+            mix.sets[i] = null;
+        }
+        shared.instance.returnSet(result);
+
+        return cardinality;
+    }
+
+    public static void main(final String[] args) throws RunnerException {
+        for (int threads : THREADS) {
+            new Runner(
+                    new OptionsBuilder()
+                            .include(BitSetPoolBenchmark.class.getSimpleName())
+                            .threads(threads)
+                            .addProfiler(GCProfiler.class)
+                            .build()).run();
+        }
+    }
+}
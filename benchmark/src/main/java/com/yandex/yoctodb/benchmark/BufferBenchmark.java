@@ -0,0 +1,153 @@
+/*
+ * (C) YANDEX LLC, 2014-2016
+ *
+ * The Source Code called "YoctoDB" available at
+ * https://github.com/yandex/yoctodb is subject to the terms of the
+ * Mozilla Public License, v. 2.0 (hereinafter referred to as the "License").
+ *
+ * A copy of the License is also available at http://mozilla.org/MPL/2.0/.
+ */
+
+package com.yandex.yoctodb.benchmark;
+
+import com.google.common.io.Files;
+import com.yandex.yoctodb.util.UnsignedByteArrays;
+import com.yandex.yoctodb.util.buf.Buffer;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures random access primitives of {@link Buffer} backends.
+ *
+ * {@link #compare()} compares a key stored in the buffer with an equal
+ * heap key, i.e. the worst case of binary search comparisons.
+ *
+ * @author agent
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Thread)
+public class BufferBenchmark {
+    // Count of precomputed random offsets to cycle through
+    private static final int OFFSETS = 1024;
+
+    public enum Backend {
+        HEAP,
+        DIRECT,
+        MMAP,
+        FILE_CHANNEL
+    }
+
+    @Param({"HEAP", "DIRECT", "MMAP", "FILE_CHANNEL"})
+    private Backend backend;
+
+    // 64 MB
+    @Param({"67108864"})
+    private int size;
+
+    @Param({"4", "16", "64"})
+    private int keyLength;
+
+    private File file;
+    private RandomAccessFile raf;
+    private Buffer buffer;
+
+    private long[] offsets;
+    private Buffer[] keys;
+    private int current;
+
+    @Setup
+    public void setUp() throws IOException {
+        final Random random = new Random(SyntheticData.SEED);
+        final byte[] bytes = new byte[size];
+        random.nextBytes(bytes);
+
+        switch (backend) {
+            case HEAP:
+                buffer = Buffer.from(bytes);
+                break;
+            case DIRECT:
+                final ByteBuffer direct = ByteBuffer.allocateDirect(size);
+                direct.put(bytes);
+                direct.flip();
+                buffer = Buffer.from(direct);
+                break;
+            case MMAP:
+                buffer = Buffer.mmap(write(bytes));
+                break;
+            case FILE_CHANNEL:
+                raf = new RandomAccessFile(write(bytes), "r");
+                buffer = Buffer.from(raf.getChannel());
+                break;
+            default:
+                throw new UnsupportedOperationException(
+                        "Unsupported backend: " + backend);
+        }
+
+        offsets = new long[OFFSETS];
+        keys = new Buffer[OFFSETS];
+        for (int i = 0; i < OFFSETS; i++) {
+            final int offset = random.nextInt(size - keyLength);
+            offsets[i] = offset;
+            final byte[] key = new byte[keyLength];
+            System.arraycopy(bytes, offset, key, 0, keyLength);
+            keys[i] = Buffer.from(key);
+        }
+    }
+
+    private File write(final byte[] bytes) throws IOException {
+        file = File.createTempFile("yoctodb", ".dat");
+        file.deleteOnExit();
+        Files.write(bytes, file);
+        return file;
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        if (raf != null) {
+            raf.close();
+        }
+        if (file != null && !file.delete()) {
+            throw new IOException("Can't delete " + file);
+        }
+    }
+
+    private int next() {
+        current = (current + 1) & (OFFSETS - 1);
+        return current;
+    }
+
+    @Benchmark
+    public int getInt() {
+        return buffer.getInt(offsets[next()]);
+    }
+
+    @Benchmark
+    public long getLong() {
+        return buffer.getLong(offsets[next()]);
+    }
+
+    @Benchmark
+    public Buffer slice() {
+        return buffer.slice(offsets[next()], keyLength);
+    }
+
+    @Benchmark
+    public int compare() {
+        final int i = next();
+        return UnsignedByteArrays.compare(
+                buffer,
+                offsets[i],
+                keyLength,
+                keys[i]);
+    }
+}
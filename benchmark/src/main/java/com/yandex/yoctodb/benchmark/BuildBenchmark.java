@@ -0,0 +1,139 @@
+/*
+ * (C) YANDEX LLC, 2014-2016
+ *
+ * The Source Code called "YoctoDB" available at
+ * https://github.com/yandex/yoctodb is subject to the terms of the
+ * Mozilla Public License, v. 2.0 (hereinafter referred to as the "License").
+ *
+ * A copy of the License is also available at http://mozilla.org/MPL/2.0/.
+ */
+
+package com.yandex.yoctodb.benchmark;
+
+import com.google.common.io.ByteStreams;
+import com.google.common.io.CountingOutputStream;
+import com.yandex.yoctodb.DatabaseFormat;
+import com.yandex.yoctodb.mutable.DatabaseBuilder;
+import com.yandex.yoctodb.mutable.DocumentBuilder;
+import com.yandex.yoctodb.util.OutputStreamWritable;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.Random;
+
+/**
+ * Measures database building throughput and peak heap usage.
+ *
+ * Documents with mixed field types are built with {@link DocumentBuilder},
+ * merged into {@link DatabaseBuilder} and the database is written to a null
+ * stream. Each document count is built once, so JIT warm up is included,
+ * which is negligible for millions of documents.
+ *
+ * Peak heap is the sum of heap memory pool peaks since the start of the
+ * run, so it is an upper bound. Run each document count in a separate JVM
+ * with a fixed {@code -Xmx} to find the heap size needed:
+ *
+ * <pre>
+ * java -Xmx8g -cp benchmark/target/benchmarks.jar \
+ *     com.yandex.yoctodb.benchmark.BuildBenchmark 1000000 10000000
+ * </pre>
+ *
+ * @author agent
+ */
+public final class BuildBenchmark {
+    private static final String[] DEFAULT_DOCUMENTS = {"1000000"};
+
+    private static final int PAYLOAD_LENGTH = 64;
+
+    private BuildBenchmark() {
+        // Can't instantiate
+    }
+
+    public static void main(final String[] args) throws IOException {
+        final String[] counts = args.length == 0 ? DEFAULT_DOCUMENTS : args;
+
+        System.out.println(
+                "documents\tmerge_s\tbuild_s\twrite_s\tdocs/s\t" +
+                "bytes\tpeak_heap_mb");
+        for (String count : counts) {
+            run(Integer.parseInt(count));
+        }
+    }
+
+    private static void run(final int documents) throws IOException {
+        System.gc();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+            }
+        }
+
+        final Random random = new Random(SyntheticData.SEED);
+        final byte[] payload = new byte[PAYLOAD_LENGTH];
+        final DatabaseFormat format = DatabaseFormat.getCurrent();
+
+        final long start = System.nanoTime();
+
+        final DatabaseBuilder builder = format.newDatabaseBuilder();
+        for (int i = 0; i < documents; i++) {
+            random.nextBytes(payload);
+            builder.merge(
+                    format.newDocumentBuilder()
+                          .withField(
+                                  "id",
+                                  i,
+                                  DocumentBuilder.IndexOption.FILTERABLE)
+                          .withField(
+                                  "flag",
+                                  random.nextBoolean(),
+                                  DocumentBuilder.IndexOption.FILTERABLE)
+                          .withField(
+                                  "category",
+                                  random.nextInt(1024),
+                                  DocumentBuilder.IndexOption.FILTERABLE)
+                          .withField(
+                                  "region",
+                                  "region" + random.nextInt(64),
+                                  DocumentBuilder.IndexOption.FULL)
+                          .withField(
+                                  "price",
+                                  (long) random.nextInt(256),
+                                  DocumentBuilder.IndexOption.SORTABLE)
+                          .withPayload(payload.clone()));
+        }
+
+        final long merged = System.nanoTime();
+
+        final OutputStreamWritable writable = builder.buildWritable();
+
+        final long built = System.nanoTime();
+
+        final CountingOutputStream os =
+                new CountingOutputStream(ByteStreams.nullOutputStream());
+        writable.writeTo(os);
+
+        final long written = System.nanoTime();
+
+        long peakHeap = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                peakHeap += pool.getPeakUsage().getUsed();
+            }
+        }
+
+        System.out.println(
+                documents + "\t" +
+                seconds(merged - start) + "\t" +
+                seconds(built - merged) + "\t" +
+                seconds(written - built) + "\t" +
+                (long) (documents / ((written - start) / 1e9)) + "\t" +
+                os.getCount() + "\t" +
+                peakHeap / (1024 * 1024));
+    }
+
+    private static String seconds(final long nanos) {
+        return String.format("%.3f", nanos / 1e9);
+    }
+}
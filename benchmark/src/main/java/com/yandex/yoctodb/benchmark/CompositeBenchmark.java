@@ -0,0 +1,123 @@
+/*
+ * (C) YANDEX LLC, 2014-2016
+ *
+ * The Source Code called "YoctoDB" available at
+ * https://github.com/yandex/yoctodb is subject to the terms of the
+ * Mozilla Public License, v. 2.0 (hereinafter referred to as the "License").
+ *
+ * A copy of the License is also available at http://mozilla.org/MPL/2.0/.
+ */
+
+package com.yandex.yoctodb.benchmark;
+
+import com.yandex.yoctodb.DatabaseFormat;
+import com.yandex.yoctodb.immutable.Database;
+import com.yandex.yoctodb.immutable.IndexedDatabase;
+import com.yandex.yoctodb.query.DocumentProcessor;
+import com.yandex.yoctodb.query.Query;
+import com.yandex.yoctodb.query.Select;
+import com.yandex.yoctodb.v1.immutable.V1CompositeDatabase;
+import org.jetbrains.annotations.NotNull;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static com.yandex.yoctodb.benchmark.SyntheticData.BUCKET;
+import static com.yandex.yoctodb.benchmark.SyntheticData.SEED;
+import static com.yandex.yoctodb.benchmark.SyntheticData.SORT_FIELDS;
+import static com.yandex.yoctodb.benchmark.SyntheticData.sortableDatabase;
+import static com.yandex.yoctodb.query.QueryBuilder.*;
+import static com.yandex.yoctodb.util.UnsignedByteArrays.from;
+
+/**
+ * Measures {@link V1CompositeDatabase} queries over a fixed document count
+ * split into a varying number of partitions.
+ *
+ * Sorted queries are merged from per partition sorted results, unsorted
+ * ones are concatenated.
+ *
+ * @author agent
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Thread)
+public class CompositeBenchmark {
+    // Selects about 10% of documents
+    private static final int SELECTIVITY = 10;
+
+    private static final int LIMIT = 100;
+
+    @Param({"1000000"})
+    private int documents;
+
+    @Param({"1", "8", "64", "256"})
+    private int partitions;
+
+    @Param({"false", "true"})
+    private boolean sorting;
+
+    private Database database;
+    private Query query;
+
+    @Setup
+    public void setUp() {
+        final List<IndexedDatabase> databases = new ArrayList<>(partitions);
+        for (int i = 0; i < partitions; i++) {
+            // Spread the remainder over the first partitions
+            final int size =
+                    documents / partitions +
+                    (i < documents % partitions ? 1 : 0);
+            databases.add(
+                    sortableDatabase(
+                            size,
+                            SEED + i * (SORT_FIELDS.length + 1)));
+        }
+
+        database =
+                DatabaseFormat.getCurrent()
+                              .getDatabaseReader()
+                              .composite(databases);
+
+        final Select select =
+                select().where(lt(BUCKET, from(SELECTIVITY)));
+        if (sorting) {
+            query = select.orderBy(desc(SORT_FIELDS[0]))
+                          .and(asc(SORT_FIELDS[1]))
+                          .limit(LIMIT);
+        } else {
+            query = select.limit(LIMIT);
+        }
+    }
+
+    private static final class CountingProcessor implements DocumentProcessor {
+        private int count;
+
+        @Override
+        public boolean process(
+                final int document,
+                @NotNull
+                final Database database) {
+            count++;
+            return true;
+        }
+    }
+
+    @Benchmark
+    public int execute() {
+        final CountingProcessor processor = new CountingProcessor();
+        database.execute(query, processor);
+        return processor.count;
+    }
+
+    @Benchmark
+    public int executeAndUnlimitedCount() {
+        return database.executeAndUnlimitedCount(
+                query,
+                new CountingProcessor());
+    }
+}
@@ -0,0 +1,299 @@
+/*
+ * (C) YANDEX LLC, 2014-2016
+ *
+ * The Source Code called "YoctoDB" available at
+ * https://github.com/yandex/yoctodb is subject to the terms of the
+ * Mozilla Public License, v. 2.0 (hereinafter referred to as the "License").
+ *
+ * A copy of the License is also available at http://mozilla.org/MPL/2.0/.
+ */
+
+package com.yandex.yoctodb.benchmark;
+
+import com.google.common.collect.TreeMultimap;
+import com.google.common.primitives.Ints;
+import com.google.common.primitives.Longs;
+import com.yandex.yoctodb.DatabaseFormat;
+import com.yandex.yoctodb.immutable.FilterableIndex;
+import com.yandex.yoctodb.mutable.DatabaseBuilder;
+import com.yandex.yoctodb.mutable.DocumentBuilder;
+import com.yandex.yoctodb.util.OutputStreamWritable;
+import com.yandex.yoctodb.util.UnsignedByteArray;
+import com.yandex.yoctodb.util.buf.Buffer;
+import com.yandex.yoctodb.util.mutable.BitSet;
+import com.yandex.yoctodb.util.mutable.IndexToIndexMultiMap;
+import com.yandex.yoctodb.util.mutable.impl.BitSetIndexToIndexMultiMap;
+import com.yandex.yoctodb.util.mutable.impl.FixedLengthByteArraySortedSet;
+import com.yandex.yoctodb.util.mutable.impl.FrontCodedByteArraySortedSet;
+import com.yandex.yoctodb.util.mutable.impl.HybridIndexToIndexMultiMap;
+import com.yandex.yoctodb.util.mutable.impl.IntIndexToIndexMultiMap;
+import com.yandex.yoctodb.util.mutable.impl.LongArrayBitSet;
+import com.yandex.yoctodb.util.mutable.impl.MixedIndexToIndexMultiMap;
+import com.yandex.yoctodb.util.mutable.impl.PackedIndexToIndexMultiMap;
+import com.yandex.yoctodb.util.mutable.impl.VariableLengthByteArraySortedSet;
+import com.yandex.yoctodb.v1.V1DatabaseFormat;
+import com.yandex.yoctodb.v1.immutable.segment.SegmentRegistry;
+import org.jetbrains.annotations.NotNull;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link FilterableIndex} operations over a single synthetic field.
+ *
+ * {@link Layout#AUTO} builds the whole database with
+ * {@link DatabaseFormat#newDatabaseBuilder()}, so the value to documents
+ * layout is the one chosen by the builder. The other layouts encode the
+ * filterable segment with the corresponding multimap explicitly to compare
+ * them on the same data.
+ *
+ * @author agent
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Thread)
+public class FilterBenchmark {
+    private static final String FIELD = "field";
+
+    // Count of precomputed query values to cycle through
+    private static final int QUERIES = 1024;
+
+    // Count of values in in() queries
+    private static final int IN_VALUES = 4;
+
+    public enum Layout {
+        AUTO,
+        LIST_BASED,
+        LONG_ARRAY_BIT_SET_BASED,
+        PACKED_LIST_BASED,
+        HYBRID_BASED,
+        MIXED_BASED
+    }
+
+    @Param({"100000", "1000000"})
+    private int documents;
+
+    @Param({"8", "1024"})
+    private int cardinality;
+
+    @Param({"FIXED", "VARIABLE", "FRONT_CODED"})
+    private DocumentBuilder.LengthOption length;
+
+    @Param({
+            "AUTO",
+            "LIST_BASED",
+            "LONG_ARRAY_BIT_SET_BASED",
+            "PACKED_LIST_BASED",
+            "HYBRID_BASED",
+            "MIXED_BASED"})
+    private Layout layout;
+
+    private FilterableIndex index;
+    private BitSet dest;
+
+    private Buffer[] eqValues;
+    private Buffer[][] inValues;
+    private int current;
+
+    // Inclusive ranges selecting about 10% of the values (at least one)
+    private Buffer lessThan;
+    private Buffer greaterThan;
+    private Buffer betweenFrom;
+    private Buffer betweenTo;
+
+    @Setup
+    public void setUp() throws IOException {
+        final int[] ordinals =
+                SyntheticData.uniform(
+                        documents,
+                        cardinality,
+                        SyntheticData.SEED);
+
+        // Some values might not be assigned to any document
+        final TreeSet<Integer> present = new TreeSet<>();
+        for (int ordinal : ordinals) {
+            present.add(ordinal);
+        }
+        final int[] values = Ints.toArray(present);
+
+        if (layout == Layout.AUTO) {
+            index = buildDatabase(ordinals);
+        } else {
+            index = buildSegment(ordinals);
+        }
+        dest = LongArrayBitSet.zero(documents);
+
+        eqValues = new Buffer[QUERIES];
+        inValues = new Buffer[QUERIES][IN_VALUES];
+        final Random random = new Random(SyntheticData.SEED);
+        for (int i = 0; i < QUERIES; i++) {
+            eqValues[i] = value(values[random.nextInt(values.length)]);
+            for (int j = 0; j < IN_VALUES; j++) {
+                inValues[i][j] = value(values[random.nextInt(values.length)]);
+            }
+        }
+
+        lessThan = value(values[values.length / 10]);
+        greaterThan = value(values[values.length - 1 - values.length / 10]);
+        betweenFrom = value(values[values.length * 9 / 20]);
+        betweenTo = value(values[values.length * 11 / 20]);
+    }
+
+    @NotNull
+    private Buffer value(final int ordinal) {
+        return SyntheticData.value(ordinal, length).toByteBuffer();
+    }
+
+    @NotNull
+    private FilterableIndex buildDatabase(
+            @NotNull
+            final int[] ordinals) {
+        final DatabaseFormat format = DatabaseFormat.getCurrent();
+        final DatabaseBuilder builder = format.newDatabaseBuilder();
+        for (int ordinal : ordinals) {
+            builder.merge(
+                    format.newDocumentBuilder()
+                          .withField(
+                                  FIELD,
+                                  SyntheticData.value(ordinal, length),
+                                  DocumentBuilder.IndexOption.FILTERABLE,
+                                  length));
+        }
+
+        final FilterableIndex result =
+                format.getDatabaseReader()
+                      .from(Buffer.from(SyntheticData.toByteArray(builder.buildWritable())))
+                      .getFilter(FIELD);
+
+        assert result != null;
+
+        return result;
+    }
+
+    @NotNull
+    private FilterableIndex buildSegment(
+            @NotNull
+            final int[] ordinals) throws IOException {
+        final TreeMultimap<UnsignedByteArray, Integer> valueToDocuments =
+                TreeMultimap.create();
+        for (int i = 0; i < ordinals.length; i++) {
+            valueToDocuments.put(SyntheticData.value(ordinals[i], length), i);
+        }
+
+        final OutputStreamWritable values;
+        final V1DatabaseFormat.SegmentType type;
+        switch (length) {
+            case FIXED:
+                values =
+                        new FixedLengthByteArraySortedSet(
+                                valueToDocuments.keySet());
+                type = V1DatabaseFormat.SegmentType.FIXED_LENGTH_FILTER;
+                break;
+            case VARIABLE:
+                values =
+                        new VariableLengthByteArraySortedSet(
+                                valueToDocuments.keySet());
+                type = V1DatabaseFormat.SegmentType.VARIABLE_LENGTH_FILTER;
+                break;
+            case FRONT_CODED:
+                values =
+                        new FrontCodedByteArraySortedSet(
+                                valueToDocuments.keySet());
+                type = V1DatabaseFormat.SegmentType.FRONT_CODED_FILTER;
+                break;
+            default:
+                throw new UnsupportedOperationException(
+                        "Unsupported length option: " + length);
+        }
+
+        final IndexToIndexMultiMap valueToDocumentsIndex;
+        switch (layout) {
+            case LIST_BASED:
+                valueToDocumentsIndex =
+                        new IntIndexToIndexMultiMap(
+                                valueToDocuments.asMap().values());
+                break;
+            case LONG_ARRAY_BIT_SET_BASED:
+                valueToDocumentsIndex =
+                        new BitSetIndexToIndexMultiMap(
+                                valueToDocuments.asMap().values(),
+                                documents);
+                break;
+            case PACKED_LIST_BASED:
+                valueToDocumentsIndex =
+                        new PackedIndexToIndexMultiMap(
+                                valueToDocuments.asMap().values());
+                break;
+            case HYBRID_BASED:
+                valueToDocumentsIndex =
+                        new HybridIndexToIndexMultiMap(
+                                valueToDocuments.asMap().values());
+                break;
+            case MIXED_BASED:
+                valueToDocumentsIndex =
+                        new MixedIndexToIndexMultiMap(
+                                valueToDocuments.asMap().values(),
+                                documents);
+                break;
+            default:
+                throw new UnsupportedOperationException(
+                        "Unsupported layout: " + layout);
+        }
+
+        // Same layout as written by the filterable index segment
+        final ByteArrayOutputStream os = new ByteArrayOutputStream();
+        final byte[] fieldName = FIELD.getBytes();
+        os.write(Ints.toByteArray(fieldName.length));
+        os.write(fieldName);
+        os.write(Longs.toByteArray(values.getSizeInBytes()));
+        values.writeTo(os);
+        os.write(Longs.toByteArray(valueToDocumentsIndex.getSizeInBytes()));
+        valueToDocumentsIndex.writeTo(os);
+
+        return (FilterableIndex) SegmentRegistry.read(
+                type.getCode(),
+                Buffer.from(os.toByteArray()));
+    }
+
+    private int next() {
+        current = (current + 1) & (QUERIES - 1);
+        return current;
+    }
+
+    @Benchmark
+    public boolean eq() {
+        dest.clear();
+        return index.eq(dest, eqValues[next()]);
+    }
+
+    @Benchmark
+    public boolean in() {
+        dest.clear();
+        return index.in(dest, inValues[next()]);
+    }
+
+    @Benchmark
+    public boolean lessThan() {
+        dest.clear();
+        return index.lessThan(dest, lessThan, true);
+    }
+
+    @Benchmark
+    public boolean greaterThan() {
+        dest.clear();
+        return index.greaterThan(dest, greaterThan, true);
+    }
+
+    @Benchmark
+    public boolean between() {
+        dest.clear();
+        return index.between(dest, betweenFrom, true, betweenTo, true);
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * (C) YANDEX LLC, 2014-2016
+ *
+ * The Source Code called "YoctoDB" available at
+ * https://github.com/yandex/yoctodb is subject to the terms of the
+ * Mozilla Public License, v. 2.0 (hereinafter referred to as the "License").
+ *
+ * A copy of the License is also available at http://mozilla.org/MPL/2.0/.
+ */
+
+package com.yandex.yoctodb.benchmark;
+
+import com.yandex.yoctodb.util.buf.Buffer;
+import com.yandex.yoctodb.v1.immutable.V1DatabaseReader;
+import com.yandex.yoctodb.v1.immutable.segment.SegmentFootprint;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reports segment and segment component sizes of database files ordered
+ * by size.
+ *
+ * Resident size of a database mmapped with {@link Buffer#mmap(File)} can't
+ * be queried per segment from Java, but it is bounded by the sizes
+ * reported: index components become resident as soon as they are touched
+ * by queries, payload only by document retrieval.
+ *
+ * <pre>
+ * java -cp benchmark/target/benchmarks.jar \
+ *     com.yandex.yoctodb.benchmark.FootprintReport &lt;database file&gt;...
+ * </pre>
+ *
+ * @author agent
+ */
+public final class FootprintReport {
+    private FootprintReport() {
+        // Can't instantiate
+    }
+
+    public static void main(final String[] args) throws IOException {
+        if (args.length == 0) {
+            System.err.println(
+                    "Usage: " + FootprintReport.class.getName() +
+                    " <database file>...");
+            System.exit(1);
+        }
+
+        final V1DatabaseReader reader = new V1DatabaseReader();
+        for (String path : args) {
+            final File file = new File(path);
+            final List<SegmentFootprint> footprints;
+            try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+                footprints = reader.footprint(Buffer.from(raf.getChannel()));
+            }
+
+            report(file, footprints);
+        }
+    }
+
+    private static void report(
+            @NotNull
+            final File file,
+            @NotNull
+            final List<SegmentFootprint> footprints) {
+        final List<SegmentFootprint> sorted = new ArrayList<>(footprints);
+        Collections.sort(
+                sorted,
+                new Comparator<SegmentFootprint>() {
+                    @Override
+                    public int compare(
+                            final SegmentFootprint o1,
+                            final SegmentFootprint o2) {
+                        return Long.compare(
+                                o2.getSizeInBytes(),
+                                o1.getSizeInBytes());
+                    }
+                });
+
+        final long total = file.length();
+        System.out.println(file + ": " + total + " bytes");
+        System.out.println(
+                "field\tsegment\tbytes\t%\tmulti_map\tcomponents");
+        for (SegmentFootprint footprint : sorted) {
+            final StringBuilder components = new StringBuilder();
+            for (Map.Entry<SegmentFootprint.Component, Long> component :
+                    footprint.getComponents().entrySet()) {
+                if (components.length() > 0) {
+                    components.append(' ');
+                }
+                components.append(component.getKey())
+                          .append('=')
+                          .append(component.getValue());
+            }
+
+            System.out.println(
+                    (footprint.getFieldName() == null ?
+                            "-" :
+                            footprint.getFieldName()) + "\t" +
+                    (footprint.getType() == null ?
+                            footprint.getTypeCode() :
+                            footprint.getType()) + "\t" +
+                    footprint.getSizeInBytes() + "\t" +
+                    String.format(
+                            "%.1f",
+                            100.0 * footprint.getSizeInBytes() / total) + "\t" +
+                    (footprint.getMultiMapType() == null ?
+                            "-" :
+                            footprint.getMultiMapType()) + "\t" +
+                    components);
+        }
+        System.out.println();
+    }
+}
@@ -0,0 +1,238 @@
+/*
+ * (C) YANDEX LLC, 2014-2016
+ *
+ * The Source Code called "YoctoDB" available at
+ * https://github.com/yandex/yoctodb is subject to the terms of the
+ * Mozilla Public License, v. 2.0 (hereinafter referred to as the "License").
+ *
+ * A copy of the License is also available at http://mozilla.org/MPL/2.0/.
+ */
+
+package com.yandex.yoctodb.benchmark;
+
+import net.jcip.annotations.NotThreadSafe;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Minimal JSON parser sufficient to read JMH results.
+ *
+ * Objects are parsed to {@link Map}s, arrays to {@link List}s, numbers to
+ * {@link Double}s, {@code true}/{@code false} to {@link Boolean}s and
+ * {@code null} to {@code null}.
+ *
+ * @author agent
+ */
+@NotThreadSafe
+final class Json {
+    @NotNull
+    private final String text;
+    private int position;
+
+    private Json(
+            @NotNull
+            final String text) {
+        this.text = text;
+        this.position = 0;
+    }
+
+    @Nullable
+    static Object parse(
+            @NotNull
+            final String text) {
+        final Json parser = new Json(text);
+        final Object result = parser.value();
+        parser.skipWhitespace();
+        if (parser.position != text.length()) {
+            throw parser.error("Trailing characters");
+        }
+
+        return result;
+    }
+
+    @NotNull
+    private IllegalArgumentException error(
+            @NotNull
+            final String message) {
+        return new IllegalArgumentException(
+                message + " at position " + position);
+    }
+
+    private void skipWhitespace() {
+        while (position < text.length() &&
+               Character.isWhitespace(text.charAt(position))) {
+            position++;
+        }
+    }
+
+    private char peek() {
+        skipWhitespace();
+        if (position >= text.length()) {
+            throw error("Unexpected end of input");
+        }
+
+        return text.charAt(position);
+    }
+
+    private void expect(final char c) {
+        if (peek() != c) {
+            throw error("Expected '" + c + "'");
+        }
+        position++;
+    }
+
+    private void expect(
+            @NotNull
+            final String literal) {
+        if (!text.startsWith(literal, position)) {
+            throw error("Expected " + literal);
+        }
+        position += literal.length();
+    }
+
+    @Nullable
+    private Object value() {
+        final char c = peek();
+        switch (c) {
+            case '{':
+                return object();
+            case '[':
+                return array();
+            case '"':
+                return string();
+            case 't':
+                expect("true");
+                return Boolean.TRUE;
+            case 'f':
+                expect("false");
+                return Boolean.FALSE;
+            case 'n':
+                expect("null");
+                return null;
+            default:
+                return number();
+        }
+    }
+
+    @NotNull
+    private Map<String, Object> object() {
+        final Map<String, Object> result = new LinkedHashMap<>();
+        expect('{');
+        if (peek() == '}') {
+            position++;
+            return result;
+        }
+
+        while (true) {
+            final String key = string();
+            expect(':');
+            result.put(key, value());
+            if (peek() == ',') {
+                position++;
+            } else {
+                expect('}');
+                return result;
+            }
+        }
+    }
+
+    @NotNull
+    private List<Object> array() {
+        final List<Object> result = new ArrayList<>();
+        expect('[');
+        if (peek() == ']') {
+            position++;
+            return result;
+        }
+
+        while (true) {
+            result.add(value());
+            if (peek() == ',') {
+                position++;
+            } else {
+                expect(']');
+                return result;
+            }
+        }
+    }
+
+    @NotNull
+    private String string() {
+        expect('"');
+        final StringBuilder result = new StringBuilder();
+        while (true) {
+            if (position >= text.length()) {
+                throw error("Unterminated string");
+            }
+
+            final char c = text.charAt(position++);
+            if (c == '"') {
+                return result.toString();
+            }
+
+            if (c != '\\') {
+                result.append(c);
+                continue;
+            }
+
+            if (position >= text.length()) {
+                throw error("Unterminated escape");
+            }
+
+            final char escaped = text.charAt(position++);
+            switch (escaped) {
+                case 'b':
+                    result.append('\b');
+                    break;
+                case 'f':
+                    result.append('\f');
+                    break;
+                case 'n':
+                    result.append('\n');
+                    break;
+                case 'r':
+                    result.append('\r');
+                    break;
+                case 't':
+                    result.append('\t');
+                    break;
+                case 'u':
+                    if (position + 4 > text.length()) {
+                        throw error("Unterminated escape");
+                    }
+                    result.append(
+                            (char) Integer.parseInt(
+                                    text.substring(position, position + 4),
+                                    16));
+                    position += 4;
+                    break;
+                default:
+                    result.append(escaped);
+            }
+        }
+    }
+
+    @NotNull
+    private Double number() {
+        final int start = position;
+        while (position < text.length() &&
+               "+-0123456789.eE".indexOf(text.charAt(position)) >= 0) {
+            position++;
+        }
+
+        if (start == position) {
+            throw error("Unexpected character");
+        }
+
+        try {
+            return Double.valueOf(text.substring(start, position));
+        } catch (NumberFormatException e) {
+            throw error("Wrong number");
+        }
+    }
+}
@@ -0,0 +1,330 @@
+/*
+ * (C) YANDEX LLC, 2014-2016
+ *
+ * The Source Code called "YoctoDB" available at
+ * https://github.com/yandex/yoctodb is subject to the terms of the
+ * Mozilla Public License, v. 2.0 (hereinafter referred to as the "License").
+ *
+ * A copy of the License is also available at http://mozilla.org/MPL/2.0/.
+ */
+
+package com.yandex.yoctodb.benchmark;
+
+import com.yandex.yoctodb.DatabaseFormat;
+import com.yandex.yoctodb.immutable.Database;
+import com.yandex.yoctodb.query.DocumentProcessor;
+import com.yandex.yoctodb.query.Select;
+import com.yandex.yoctodb.util.buf.Buffer;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Replays a {@link Workload} against a database from several threads and
+ * reports query latency percentiles.
+ *
+ * The warm up runs each thread in a closed loop: queries are executed one
+ * after another starting from the thread own offset. Its latencies are not
+ * recorded, but its throughput is used as the default target rate.
+ *
+ * The measurement runs in an open loop by default: queries are scheduled
+ * at the target rate and latency is measured from the scheduled start
+ * time, so a slow query delays the following ones and their latencies
+ * include the queueing delay (no coordinated omission). {@code closed}
+ * measures in a closed loop instead, which understates high percentiles.
+ *
+ * <pre>
+ * java -cp benchmark/target/benchmarks.jar \
+ *     com.yandex.yoctodb.benchmark.LatencyBenchmark \
+ *     &lt;database file | synthetic:documents&gt; &lt;workload file&gt; \
+ *     [threads] [warm up seconds] [measurement seconds] \
+ *     [target ops/s | closed]
+ * </pre>
+ *
+ * {@code synthetic:N} generates a database of {@code N} documents with
+ * {@link SyntheticData#sortableDatabase(int, long)}.
+ *
+ * @author agent
+ */
+public final class LatencyBenchmark {
+    private static final String SYNTHETIC = "synthetic:";
+    private static final String CLOSED = "closed";
+
+    // Default target rate relative to the warm up throughput
+    private static final double DEFAULT_LOAD = 0.8;
+
+    private static final double[] PERCENTILES = {
+            50.0, 75.0, 90.0, 95.0, 99.0, 99.9, 99.99
+    };
+
+    private LatencyBenchmark() {
+        // Can't instantiate
+    }
+
+    public static void main(final String[] args)
+            throws IOException, InterruptedException, ExecutionException {
+        if (args.length < 2) {
+            System.err.println(
+                    "Usage: " + LatencyBenchmark.class.getName() +
+                    " <database file | " + SYNTHETIC + "documents>" +
+                    " <workload file>" +
+                    " [threads] [warm up seconds] [measurement seconds]" +
+                    " [target ops/s | " + CLOSED + "]");
+            System.exit(1);
+        }
+
+        final Database database = open(args[0]);
+        final List<Select> workload = Workload.read(new File(args[1]));
+        final int threads = args.length > 2 ? Integer.parseInt(args[2]) : 1;
+        final int warmUp = args.length > 3 ? Integer.parseInt(args[3]) : 10;
+        final int measurement =
+                args.length > 4 ? Integer.parseInt(args[4]) : 60;
+        final boolean closed = args.length > 5 && CLOSED.equals(args[5]);
+
+        // Closed loop warm up
+        final long warmUpStart = System.nanoTime();
+        final LatencyHistogram warmUpHistogram =
+                run(
+                        database,
+                        workload,
+                        threads,
+                        warmUpStart,
+                        warmUpStart + TimeUnit.SECONDS.toNanos(warmUp),
+                        0.0,
+                        new AtomicLong(),
+                        new AtomicLong());
+
+        final double rate;
+        if (closed) {
+            rate = 0.0;
+        } else if (args.length > 5) {
+            rate = Double.parseDouble(args[5]);
+            if (rate <= 0.0)
+                throw new IllegalArgumentException("Nonpositive rate");
+        } else {
+            rate = Math.max(
+                    1.0,
+                    DEFAULT_LOAD * warmUpHistogram.getCount() /
+                    Math.max(1, warmUp));
+        }
+
+        final AtomicLong documents = new AtomicLong();
+        final AtomicLong empty = new AtomicLong();
+        final long measurementStart = System.nanoTime();
+        final LatencyHistogram histogram =
+                run(
+                        database,
+                        workload,
+                        threads,
+                        measurementStart,
+                        measurementStart +
+                        TimeUnit.SECONDS.toNanos(measurement),
+                        rate,
+                        documents,
+                        empty);
+
+        System.out.println(
+                "queries: " + workload.size() +
+                ", threads: " + threads +
+                ", mode: " +
+                (closed ?
+                        CLOSED :
+                        String.format("open at %.1f ops/s", rate)) +
+                ", executed: " + histogram.getCount() +
+                ", throughput: " +
+                histogram.getCount() / measurement + " ops/s");
+        // Sanity check that the workload queries match something
+        System.out.println(
+                String.format(
+                        "documents per query: %.1f, empty queries: %d",
+                        (double) documents.get() /
+                        Math.max(1L, histogram.getCount()),
+                        empty.get()));
+        System.out.println("percentile\tlatency_us");
+        for (double percentile : PERCENTILES) {
+            System.out.println(
+                    percentile + "\t" +
+                    micros(histogram.getValueAtPercentile(percentile)));
+        }
+        System.out.println("max\t" + micros(histogram.getMax()));
+    }
+
+    /**
+     * Runs the workload from {@code threads} threads
+     *
+     * @param rate      total target rate in ops/s or {@code 0} for a closed
+     *                  loop
+     * @param documents incremented by count of processed documents
+     * @param empty     incremented by count of queries without documents
+     * @return merged latencies
+     */
+    @NotNull
+    private static LatencyHistogram run(
+            @NotNull
+            final Database database,
+            @NotNull
+            final List<Select> workload,
+            final int threads,
+            final long start,
+            final long end,
+            final double rate,
+            @NotNull
+            final AtomicLong documents,
+            @NotNull
+            final AtomicLong empty)
+            throws InterruptedException, ExecutionException {
+        // Each thread executes its share of the rate
+        final long interval =
+                rate == 0.0 ? 0L : (long) (threads * 1e9 / rate);
+
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        final List<Future<LatencyHistogram>> futures =
+                new ArrayList<>(threads);
+        for (int t = 0; t < threads; t++) {
+            futures.add(
+                    executor.submit(
+                            new Worker(
+                                    database,
+                                    workload,
+                                    t * workload.size() / threads,
+                                    // Threads are evenly staggered
+                                    start + t * interval / threads,
+                                    end,
+                                    interval,
+                                    documents,
+                                    empty)));
+        }
+        executor.shutdown();
+
+        final LatencyHistogram histogram = new LatencyHistogram();
+        for (Future<LatencyHistogram> future : futures) {
+            histogram.add(future.get());
+        }
+
+        return histogram;
+    }
+
+    @NotNull
+    private static Database open(
+            @NotNull
+            final String database) throws IOException {
+        final DatabaseFormat format = DatabaseFormat.getCurrent();
+        if (database.startsWith(SYNTHETIC)) {
+            return SyntheticData.sortableDatabase(
+                    Integer.parseInt(database.substring(SYNTHETIC.length())),
+                    SyntheticData.SEED);
+        } else {
+            return format.getDatabaseReader().from(
+                    Buffer.mmap(new File(database)));
+        }
+    }
+
+    @NotNull
+    private static String micros(final long nanos) {
+        return String.format("%.1f", nanos / 1e3);
+    }
+
+    private static final class Worker implements Callable<LatencyHistogram> {
+        @NotNull
+        private final Database database;
+        @NotNull
+        private final List<Select> queries;
+        private final int offset;
+        private final long start;
+        private final long end;
+        // Nanoseconds between scheduled queries or 0 for a closed loop
+        private final long interval;
+        @NotNull
+        private final AtomicLong documents;
+        @NotNull
+        private final AtomicLong empty;
+
+        Worker(
+                @NotNull
+                final Database database,
+                @NotNull
+                final List<Select> workload,
+                final int offset,
+                final long start,
+                final long end,
+                final long interval,
+                @NotNull
+                final AtomicLong documents,
+                @NotNull
+                final AtomicLong empty) {
+            this.database = database;
+            // Queries are mutable, so each worker has its own copies
+            this.queries = new ArrayList<>(workload.size());
+            for (Select query : workload) {
+                this.queries.add(query.clone());
+            }
+            this.offset = offset;
+            this.start = start;
+            this.end = end;
+            this.interval = interval;
+            this.documents = documents;
+            this.empty = empty;
+        }
+
+        @Override
+        public LatencyHistogram call() {
+            final LatencyHistogram histogram = new LatencyHistogram();
+            final CountingProcessor processor = new CountingProcessor();
+            long emptyQueries = 0L;
+
+            int i = offset;
+            // Closed loop schedules the next query on the previous finish
+            long scheduled = interval == 0L ? System.nanoTime() : start;
+            while (scheduled < end) {
+                final long now = System.nanoTime();
+                if (now < scheduled) {
+                    LockSupport.parkNanos(scheduled - now);
+                    continue;
+                }
+
+                final Select query = queries.get(i);
+                i = (i + 1) % queries.size();
+
+                final long before = processor.count;
+                database.execute(query, processor);
+                if (processor.count == before) {
+                    emptyQueries++;
+                }
+
+                // Latency includes waiting behind the previous queries
+                final long finish = System.nanoTime();
+                histogram.record(finish - scheduled);
+                scheduled = interval == 0L ? finish : scheduled + interval;
+            }
+
+            documents.addAndGet(processor.count);
+            empty.addAndGet(emptyQueries);
+
+            return histogram;
+        }
+    }
+
+    private static final class CountingProcessor implements DocumentProcessor {
+        private long count;
+
+        @Override
+        public boolean process(
+                final int document,
+                @NotNull
+                final Database database) {
+            count++;
+            return true;
+        }
+    }
+}
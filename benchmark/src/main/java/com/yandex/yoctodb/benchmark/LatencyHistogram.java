@@ -0,0 +1,125 @@
+/*
+ * (C) YANDEX LLC, 2014-2016
+ *
+ * The Source Code called "YoctoDB" available at
+ * https://github.com/yandex/yoctodb is subject to the terms of the
+ * Mozilla Public License, v. 2.0 (hereinafter referred to as the "License").
+ *
+ * A copy of the License is also available at http://mozilla.org/MPL/2.0/.
+ */
+
+package com.yandex.yoctodb.benchmark;
+
+import net.jcip.annotations.NotThreadSafe;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Fixed size log-linear histogram of non-negative values (e.g. latencies
+ * in nanoseconds) with about 1.5% relative precision.
+ *
+ * Values below {@link #SUB_BUCKETS} are counted exactly, larger values are
+ * grouped by their highest {@link #PRECISION_BITS} bits.
+ *
+ * @author agent
+ */
+@NotThreadSafe
+public final class LatencyHistogram {
+    private static final int PRECISION_BITS = 7;
+    private static final int SUB_BUCKETS = 1 << PRECISION_BITS;
+    private static final int HALF_SUB_BUCKETS = SUB_BUCKETS / 2;
+    private static final int BUCKETS =
+            SUB_BUCKETS + (Long.SIZE - PRECISION_BITS) * HALF_SUB_BUCKETS;
+
+    private final long[] counts = new long[BUCKETS];
+    private long count;
+    private long max;
+
+    static int index(final long value) {
+        assert value >= 0;
+
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+
+        final int shift =
+                Long.SIZE - Long.numberOfLeadingZeros(value) - PRECISION_BITS;
+        final int mantissa = (int) (value >>> shift);
+
+        assert HALF_SUB_BUCKETS <= mantissa && mantissa < SUB_BUCKETS;
+
+        return SUB_BUCKETS +
+               (shift - 1) * HALF_SUB_BUCKETS +
+               mantissa - HALF_SUB_BUCKETS;
+    }
+
+    /**
+     * @param index bucket index
+     * @return the largest value counted in bucket {@code index}
+     */
+    static long upperBound(final int index) {
+        assert 0 <= index && index < BUCKETS;
+
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+
+        final int shift = (index - SUB_BUCKETS) / HALF_SUB_BUCKETS + 1;
+        final long mantissa =
+                (index - SUB_BUCKETS) % HALF_SUB_BUCKETS + HALF_SUB_BUCKETS;
+
+        return ((mantissa + 1) << shift) - 1;
+    }
+
+    public void record(final long value) {
+        counts[index(value)]++;
+        count++;
+        if (value > max) {
+            max = value;
+        }
+    }
+
+    public void add(
+            @NotNull
+            final LatencyHistogram that) {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] += that.counts[i];
+        }
+        count += that.count;
+        if (that.max > max) {
+            max = that.max;
+        }
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getMax() {
+        return max;
+    }
+
+    /**
+     * @param percentile percentile in {@code [0, 100]}
+     * @return upper bound of values not greater than {@code percentile}
+     * percents of recorded values
+     */
+    public long getValueAtPercentile(final double percentile) {
+        assert 0.0 <= percentile && percentile <= 100.0;
+
+        if (count == 0) {
+            return 0;
+        }
+
+        final long target =
+                Math.max(1L, (long) Math.ceil(percentile / 100.0 * count));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= target) {
+                return Math.min(upperBound(i), max);
+            }
+        }
+
+        return max;
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * (C) YANDEX LLC, 2014-2016
+ *
+ * The Source Code called "YoctoDB" available at
+ * https://github.com/yandex/yoctodb is subject to the terms of the
+ * Mozilla Public License, v. 2.0 (hereinafter referred to as the "License").
+ *
+ * A copy of the License is also available at http://mozilla.org/MPL/2.0/.
+ */
+
+package com.yandex.yoctodb.benchmark;
+
+import com.google.common.io.Files;
+import com.yandex.yoctodb.DatabaseFormat;
+import com.yandex.yoctodb.immutable.DatabaseReader;
+import com.yandex.yoctodb.immutable.IndexedDatabase;
+import com.yandex.yoctodb.mutable.DatabaseBuilder;
+import com.yandex.yoctodb.mutable.DocumentBuilder;
+import com.yandex.yoctodb.util.buf.Buffer;
+import com.yandex.yoctodb.util.mutable.impl.AllocatingArrayBitSetPool;
+import org.jetbrains.annotations.NotNull;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures opening of a database with many fields from different
+ * {@link Buffer} sources with and without checksum verification.
+ *
+ * The database file is written and the sources are created once per
+ * trial, so only the {@link DatabaseReader#from(Buffer,
+ * com.yandex.yoctodb.util.mutable.ArrayBitSetPool, boolean)} call is
+ * measured.
+ *
+ * @author agent
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Thread)
+public class OpenBenchmark {
+    private static final int CARDINALITY = 64;
+
+    private static final DocumentBuilder.IndexOption[] INDEX_OPTIONS = {
+            DocumentBuilder.IndexOption.FILTERABLE,
+            DocumentBuilder.IndexOption.SORTABLE,
+            DocumentBuilder.IndexOption.FULL
+    };
+
+    public enum Source {
+        HEAP,
+        MMAP,
+        FILE_CHANNEL
+    }
+
+    @Param({"100000"})
+    private int documents;
+
+    @Param({"1", "16", "128"})
+    private int fields;
+
+    @Param({"HEAP", "MMAP", "FILE_CHANNEL"})
+    private Source source;
+
+    @Param({"false", "true"})
+    private boolean checksum;
+
+    private File file;
+    private RandomAccessFile raf;
+    private Buffer buffer;
+    private DatabaseReader reader;
+
+    @Setup
+    public void setUp() throws IOException {
+        final byte[] bytes =
+                SyntheticData.toByteArray(build().buildWritable());
+
+        file = File.createTempFile("yoctodb", ".dat");
+        file.deleteOnExit();
+        Files.write(bytes, file);
+
+        switch (source) {
+            case HEAP:
+                buffer = Buffer.from(bytes);
+                break;
+            case MMAP:
+                buffer = Buffer.mmap(file);
+                break;
+            case FILE_CHANNEL:
+                raf = new RandomAccessFile(file, "r");
+                buffer = Buffer.from(raf.getChannel());
+                break;
+            default:
+                throw new UnsupportedOperationException(
+                        "Unsupported source: " + source);
+        }
+
+        reader = DatabaseFormat.getCurrent().getDatabaseReader();
+    }
+
+    @NotNull
+    private DatabaseBuilder build() {
+        final Random random = new Random(SyntheticData.SEED);
+        final DatabaseFormat format = DatabaseFormat.getCurrent();
+        final DatabaseBuilder builder = format.newDatabaseBuilder();
+        for (int d = 0; d < documents; d++) {
+            final DocumentBuilder document =
+                    format.newDocumentBuilder()
+                          .withPayload(("payload" + d).getBytes());
+            for (int f = 0; f < fields; f++) {
+                document.withField(
+                        "field" + f,
+                        random.nextInt(CARDINALITY),
+                        INDEX_OPTIONS[f % INDEX_OPTIONS.length]);
+            }
+            builder.merge(document);
+        }
+
+        return builder;
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        if (raf != null) {
+            raf.close();
+        }
+        if (!file.delete()) {
+            throw new IOException("Can't delete " + file);
+        }
+    }
+
+    @Benchmark
+    public IndexedDatabase from() {
+        // Reading advances the buffer
+        buffer.position(0L);
+        return reader.from(
+                buffer,
+                AllocatingArrayBitSetPool.INSTANCE,
+                checksum);
+    }
+}
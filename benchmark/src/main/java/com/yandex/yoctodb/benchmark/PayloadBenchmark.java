@@ -0,0 +1,99 @@
+/*
+ * (C) YANDEX LLC, 2014-2016
+ *
+ * The Source Code called "YoctoDB" available at
+ * https://github.com/yandex/yoctodb is subject to the terms of the
+ * Mozilla Public License, v. 2.0 (hereinafter referred to as the "License").
+ *
+ * A copy of the License is also available at http://mozilla.org/MPL/2.0/.
+ */
+
+package com.yandex.yoctodb.benchmark;
+
+import com.yandex.yoctodb.DatabaseFormat;
+import com.yandex.yoctodb.immutable.Database;
+import com.yandex.yoctodb.mutable.DatabaseBuilder;
+import com.yandex.yoctodb.mutable.DocumentBuilder;
+import com.yandex.yoctodb.util.buf.Buffer;
+import com.yandex.yoctodb.v1.mutable.V1DatabaseBuilder;
+import org.jetbrains.annotations.NotNull;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures document payload retrieval from plain and block compressed
+ * payload segments.
+ *
+ * Payloads are small JSON-like documents, random retrieval mostly misses
+ * the decompressed block cache while sequential retrieval mostly hits it.
+ *
+ * @author agent
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Thread)
+public class PayloadBenchmark {
+    @Param({"100000"})
+    private int documents;
+
+    @Param({"false", "true"})
+    private boolean compressed;
+
+    private Database database;
+    private Random random;
+    private int next;
+
+    @NotNull
+    static byte[] payload(final int document) {
+        return ("{\"id\":" + document +
+                ",\"title\":\"Document number " + document + "\"" +
+                ",\"url\":\"https://example.com/items/" + document + "\"" +
+                ",\"tags\":[\"synthetic\",\"benchmark\",\"payload\"]" +
+                ",\"price\":" + (document % 1000) + "." + (document % 100) +
+                "}").getBytes();
+    }
+
+    @Setup
+    public void setUp() throws IOException {
+        final DatabaseFormat format = DatabaseFormat.getCurrent();
+        final DatabaseBuilder builder = format.newDatabaseBuilder();
+        if (compressed) {
+            ((V1DatabaseBuilder) builder).withCompressedPayloads();
+        }
+        for (int d = 0; d < documents; d++) {
+            builder.merge(
+                    format.newDocumentBuilder()
+                          .withField(
+                                  "id",
+                                  d,
+                                  DocumentBuilder.IndexOption.FILTERABLE)
+                          .withPayload(payload(d)));
+        }
+
+        database =
+                format.getDatabaseReader().from(
+                        Buffer.from(
+                                SyntheticData.toByteArray(
+                                        builder.buildWritable())));
+        random = new Random(SyntheticData.SEED);
+        next = 0;
+    }
+
+    @Benchmark
+    public Buffer random() {
+        return database.getDocument(random.nextInt(documents));
+    }
+
+    @Benchmark
+    public Buffer sequential() {
+        final Buffer result = database.getDocument(next);
+        next = (next + 1) % documents;
+        return result;
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * (C) YANDEX LLC, 2014-2016
+ *
+ * The Source Code called "YoctoDB" available at
+ * https://github.com/yandex/yoctodb is subject to the terms of the
+ * Mozilla Public License, v. 2.0 (hereinafter referred to as the "License").
+ *
+ * A copy of the License is also available at http://mozilla.org/MPL/2.0/.
+ */
+
+package com.yandex.yoctodb.benchmark;
+
+import com.yandex.yoctodb.immutable.Database;
+import com.yandex.yoctodb.immutable.IndexedDatabase;
+import com.yandex.yoctodb.query.DocumentProcessor;
+import com.yandex.yoctodb.query.OrderBy;
+import com.yandex.yoctodb.query.Query;
+import com.yandex.yoctodb.query.ScoredDocument;
+import com.yandex.yoctodb.query.Select;
+import com.yandex.yoctodb.util.mutable.ArrayBitSetPool;
+import com.yandex.yoctodb.util.mutable.BitSet;
+import com.yandex.yoctodb.util.mutable.impl.AllocatingArrayBitSetPool;
+import org.jetbrains.annotations.NotNull;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+
+import static com.yandex.yoctodb.benchmark.SyntheticData.BUCKET;
+import static com.yandex.yoctodb.benchmark.SyntheticData.BUCKETS;
+import static com.yandex.yoctodb.benchmark.SyntheticData.SEED;
+import static com.yandex.yoctodb.benchmark.SyntheticData.SORT_FIELDS;
+import static com.yandex.yoctodb.benchmark.SyntheticData.sortableDatabase;
+import static com.yandex.yoctodb.query.QueryBuilder.*;
+import static com.yandex.yoctodb.util.UnsignedByteArrays.from;
+
+/**
+ * Measures sorted queries with one to three sort keys.
+ *
+ * {@link #execute()} runs the whole query including filtering, skip and
+ * limit, while {@link #sortedUnlimited()} iterates over sorted documents
+ * of the precalculated filtering result consuming up to {@code limit}
+ * documents.
+ *
+ * Run with {@code -prof gc} to get allocation rates.
+ *
+ * @author agent
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Thread)
+public class SortingBenchmark {
+    private static final ArrayBitSetPool BIT_SET_POOL =
+            AllocatingArrayBitSetPool.INSTANCE;
+
+    @Param({"100000", "1000000"})
+    private int documents;
+
+    @Param({"1", "2", "3"})
+    private int keys;
+
+    // Percentage of documents left after filtering
+    @Param({"1", "10", "100"})
+    private int selectivity;
+
+    @Param({"10", "2147483647"})
+    private int limit;
+
+    private IndexedDatabase database;
+    private Query query;
+    private BitSet filtered;
+
+    @Setup
+    public void setUp() {
+        database = sortableDatabase(documents, SEED);
+
+        Select select = select();
+        if (selectivity < BUCKETS) {
+            select = select.where(lt(BUCKET, from(selectivity)));
+        }
+
+        OrderBy orderBy = select.orderBy(desc(SORT_FIELDS[0]));
+        for (int i = 1; i < keys; i++) {
+            if (i % 2 == 0) {
+                orderBy = orderBy.and(desc(SORT_FIELDS[i]));
+            } else {
+                orderBy = orderBy.and(asc(SORT_FIELDS[i]));
+            }
+        }
+
+        query = orderBy.limit(limit);
+        filtered = query.filteredUnlimited(database, BIT_SET_POOL);
+
+        assert filtered != null;
+    }
+
+    private static final class CountingProcessor implements DocumentProcessor {
+        private int count;
+
+        @Override
+        public boolean process(
+                final int document,
+                @NotNull
+                final Database database) {
+            count++;
+            return true;
+        }
+    }
+
+    @Benchmark
+    public int execute() {
+        final CountingProcessor processor = new CountingProcessor();
+        database.execute(query, processor);
+        return processor.count;
+    }
+
+    @Benchmark
+    public int sortedUnlimited() {
+        final Iterator<? extends ScoredDocument<?>> sorted =
+                query.sortedUnlimited(filtered, database, BIT_SET_POOL);
+
+        int result = 0;
+        for (int i = 0; i < limit && sorted.hasNext(); i++) {
+            result += sorted.next().getDocument();
+        }
+
+        return result;
+    }
+}
@@ -0,0 +1,172 @@
+/*
+ * (C) YANDEX LLC, 2014-2016
+ *
+ * The Source Code called "YoctoDB" available at
+ * https://github.com/yandex/yoctodb is subject to the terms of the
+ * Mozilla Public License, v. 2.0 (hereinafter referred to as the "License").
+ *
+ * A copy of the License is also available at http://mozilla.org/MPL/2.0/.
+ */
+
+package com.yandex.yoctodb.benchmark;
+
+import com.google.common.base.Strings;
+import com.yandex.yoctodb.DatabaseFormat;
+import com.yandex.yoctodb.immutable.IndexedDatabase;
+import com.yandex.yoctodb.mutable.DatabaseBuilder;
+import com.yandex.yoctodb.mutable.DocumentBuilder;
+import com.yandex.yoctodb.util.OutputStreamWritable;
+import com.yandex.yoctodb.util.UnsignedByteArray;
+import com.yandex.yoctodb.util.UnsignedByteArrays;
+import com.yandex.yoctodb.util.buf.Buffer;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+/**
+ * Deterministic synthetic field values shared by the benchmarks.
+ *
+ * Values are identified by their ordinal, and the byte representation
+ * preserves the ordinal order for all {@link DocumentBuilder.LengthOption}s,
+ * so range selectivity is the same regardless of the value length.
+ *
+ * @author agent
+ */
+public final class SyntheticData {
+    public static final long SEED = 42L;
+
+    // Fields of {@link #sortableDatabase(int, long)}
+    public static final String BUCKET = "bucket";
+    public static final int BUCKETS = 100;
+    // Growing cardinalities, so the next sort key breaks ties
+    public static final String[] SORT_FIELDS = {"sort1", "sort2", "sort3"};
+    private static final int[] SORT_CARDINALITIES = {16, 256, 4096};
+
+    private SyntheticData() {
+        // Can't instantiate
+    }
+
+    /**
+     * Encode {@code ordinal} as a field value
+     *
+     * @param ordinal value ordinal
+     * @param length  fixed length values are 4 bytes long, variable length
+     *                values are 9 to 24 bytes long, front coded values are
+     *                URL-like 46 bytes long with 37 bytes common prefix
+     * @return order preserving field value
+     */
+    @NotNull
+    public static UnsignedByteArray value(
+            final int ordinal,
+            @NotNull
+            final DocumentBuilder.LengthOption length) {
+        assert ordinal >= 0;
+
+        switch (length) {
+            case FIXED:
+                return UnsignedByteArrays.from(ordinal);
+            case VARIABLE:
+                // Zero padded prefix keeps the order, suffix varies the length
+                return UnsignedByteArrays.from(
+                        "v" + Strings.padStart(Integer.toString(ordinal), 8, '0') +
+                        Strings.repeat("x", ordinal & 0xf));
+            case FRONT_CODED:
+                return UnsignedByteArrays.from(
+                        "https://shop.example.com/catalog/sku-" +
+                        Strings.padStart(Integer.toString(ordinal), 9, '0'));
+            default:
+                throw new UnsupportedOperationException(
+                        "Unsupported length option: " + length);
+        }
+    }
+
+    /**
+     * Assign value ordinals to documents uniformly at random
+     *
+     * @param documents   document count
+     * @param cardinality distinct value count
+     * @param seed        random seed
+     * @return value ordinal of each document
+     */
+    @NotNull
+    public static int[] uniform(
+            final int documents,
+            final int cardinality,
+            final long seed) {
+        assert documents > 0;
+        assert cardinality > 0;
+
+        final Random random = new Random(seed);
+        final int[] result = new int[documents];
+        for (int i = 0; i < documents; i++) {
+            result[i] = random.nextInt(cardinality);
+        }
+
+        return result;
+    }
+
+    /**
+     * Serialize {@code writable} to a heap byte array
+     *
+     * @param writable something writable, e.g. a built database
+     * @return serialized bytes
+     */
+    @NotNull
+    public static byte[] toByteArray(
+            @NotNull
+            final OutputStreamWritable writable) {
+        final ByteArrayOutputStream os = new ByteArrayOutputStream();
+        try {
+            writable.writeTo(os);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        return os.toByteArray();
+    }
+
+    /**
+     * Build a database with a filterable {@link #BUCKET} field uniformly
+     * distributed over {@link #BUCKETS} values, so that {@code bucket < n}
+     * selects about {@code n}% of documents, and {@link #SORT_FIELDS}
+     * sortable fields
+     *
+     * @param documents document count
+     * @param seed      random seed
+     * @return heap database
+     */
+    @NotNull
+    public static IndexedDatabase sortableDatabase(
+            final int documents,
+            final long seed) {
+        final int[] buckets = uniform(documents, BUCKETS, seed);
+        final int[][] sortValues = new int[SORT_FIELDS.length][];
+        for (int i = 0; i < SORT_FIELDS.length; i++) {
+            sortValues[i] =
+                    uniform(documents, SORT_CARDINALITIES[i], seed + i + 1);
+        }
+
+        final DatabaseFormat format = DatabaseFormat.getCurrent();
+        final DatabaseBuilder builder = format.newDatabaseBuilder();
+        for (int d = 0; d < documents; d++) {
+            final DocumentBuilder document =
+                    format.newDocumentBuilder()
+                          .withField(
+                                  BUCKET,
+                                  buckets[d],
+                                  DocumentBuilder.IndexOption.FILTERABLE)
+                          .withPayload(("payload" + d).getBytes());
+            for (int i = 0; i < SORT_FIELDS.length; i++) {
+                document.withField(
+                        SORT_FIELDS[i],
+                        sortValues[i][d],
+                        DocumentBuilder.IndexOption.SORTABLE);
+            }
+            builder.merge(document);
+        }
+
+        return format.getDatabaseReader().from(
+                Buffer.from(toByteArray(builder.buildWritable())));
+    }
+}
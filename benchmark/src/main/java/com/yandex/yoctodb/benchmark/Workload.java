@@ -0,0 +1,246 @@
+/*
+ * (C) YANDEX LLC, 2014-2016
+ *
+ * The Source Code called "YoctoDB" available at
+ * https://github.com/yandex/yoctodb is subject to the terms of the
+ * Mozilla Public License, v. 2.0 (hereinafter referred to as the "License").
+ *
+ * A copy of the License is also available at http://mozilla.org/MPL/2.0/.
+ */
+
+package com.yandex.yoctodb.benchmark;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+import com.yandex.yoctodb.query.Condition;
+import com.yandex.yoctodb.query.Order;
+import com.yandex.yoctodb.query.Select;
+import com.yandex.yoctodb.util.UnsignedByteArray;
+import com.yandex.yoctodb.util.UnsignedByteArrays;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.yandex.yoctodb.query.QueryBuilder.*;
+
+/**
+ * Textual query workload.
+ *
+ * Each non-empty line not starting with {@code #} is a query consisting of
+ * whitespace separated clauses. Conditions are combined with {@code and},
+ * orders are applied in the order of appearance:
+ *
+ * <pre>
+ * eq &lt;field&gt; &lt;value&gt;
+ * in &lt;field&gt; &lt;value&gt;,&lt;value&gt;,...
+ * lt|lte|gt|gte &lt;field&gt; &lt;value&gt;
+ * between &lt;field&gt; &lt;from&gt; &lt;to&gt;
+ * asc|desc &lt;field&gt;
+ * skip &lt;n&gt;
+ * limit &lt;n&gt;
+ * </pre>
+ *
+ * Values are typed with a prefix: {@code i:42} (int), {@code l:42} (long),
+ * {@code b:true} (boolean) or {@code s:text} (string), e.g.:
+ *
+ * <pre>
+ * lt bucket i:10 in sort1 i:1,i:2 desc sort2 asc sort3 skip 10 limit 10
+ * </pre>
+ *
+ * Between bounds are inclusive.
+ *
+ * @author agent
+ */
+public final class Workload {
+    private Workload() {
+        // Can't instantiate
+    }
+
+    @NotNull
+    public static List<Select> read(
+            @NotNull
+            final File file) throws IOException {
+        final List<Select> result = new ArrayList<>();
+        int lineNumber = 0;
+        for (String line : Files.readLines(file, Charsets.UTF_8)) {
+            lineNumber++;
+            final String query = line.trim();
+            if (query.isEmpty() || query.startsWith("#")) {
+                continue;
+            }
+
+            try {
+                result.add(parse(query));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException(
+                        file + ":" + lineNumber + ": " + e.getMessage(),
+                        e);
+            }
+        }
+
+        if (result.isEmpty()) {
+            throw new IllegalArgumentException("No queries in " + file);
+        }
+
+        return result;
+    }
+
+    @NotNull
+    public static Select parse(
+            @NotNull
+            final String line) {
+        final String[] tokens = line.trim().split("\\s+");
+        final List<Condition> conditions = new ArrayList<>();
+        final List<Order> orders = new ArrayList<>();
+        int skip = 0;
+        int limit = Integer.MAX_VALUE;
+
+        int i = 0;
+        while (i < tokens.length) {
+            final String clause = tokens[i++];
+            switch (clause) {
+                case "eq":
+                    conditions.add(
+                            eq(token(tokens, i), value(token(tokens, i + 1))));
+                    i += 2;
+                    break;
+                case "in":
+                    conditions.add(
+                            in(token(tokens, i), values(token(tokens, i + 1))));
+                    i += 2;
+                    break;
+                case "lt":
+                    conditions.add(
+                            lt(token(tokens, i), value(token(tokens, i + 1))));
+                    i += 2;
+                    break;
+                case "lte":
+                    conditions.add(
+                            lte(token(tokens, i), value(token(tokens, i + 1))));
+                    i += 2;
+                    break;
+                case "gt":
+                    conditions.add(
+                            gt(token(tokens, i), value(token(tokens, i + 1))));
+                    i += 2;
+                    break;
+                case "gte":
+                    conditions.add(
+                            gte(token(tokens, i), value(token(tokens, i + 1))));
+                    i += 2;
+                    break;
+                case "between":
+                    conditions.add(
+                            in(token(tokens, i),
+                               value(token(tokens, i + 1)),
+                               true,
+                               value(token(tokens, i + 2)),
+                               true));
+                    i += 3;
+                    break;
+                case "asc":
+                    orders.add(asc(token(tokens, i)));
+                    i += 1;
+                    break;
+                case "desc":
+                    orders.add(desc(token(tokens, i)));
+                    i += 1;
+                    break;
+                case "skip":
+                    skip = number(token(tokens, i));
+                    i += 1;
+                    break;
+                case "limit":
+                    limit = number(token(tokens, i));
+                    i += 1;
+                    break;
+                default:
+                    throw new IllegalArgumentException(
+                            "Unknown clause <" + clause + ">");
+            }
+        }
+
+        Select select = select();
+        for (Condition condition : conditions) {
+            select = select.where(condition);
+        }
+        for (Order order : orders) {
+            select = select.orderBy(order);
+        }
+
+        return select.skip(skip).limit(limit);
+    }
+
+    @NotNull
+    private static String token(
+            @NotNull
+            final String[] tokens,
+            final int i) {
+        if (i >= tokens.length) {
+            throw new IllegalArgumentException(
+                    "Unexpected end of query after <" +
+                    tokens[tokens.length - 1] + ">");
+        }
+
+        return tokens[i];
+    }
+
+    private static int number(
+            @NotNull
+            final String token) {
+        try {
+            return Integer.parseInt(token);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(
+                    "Wrong number <" + token + ">",
+                    e);
+        }
+    }
+
+    @NotNull
+    private static UnsignedByteArray[] values(
+            @NotNull
+            final String token) {
+        final String[] items = token.split(",");
+        final UnsignedByteArray[] result = new UnsignedByteArray[items.length];
+        for (int i = 0; i < items.length; i++) {
+            result[i] = value(items[i]);
+        }
+
+        return result;
+    }
+
+    @NotNull
+    private static UnsignedByteArray value(
+            @NotNull
+            final String token) {
+        if (token.length() < 2 || token.charAt(1) != ':') {
+            throw new IllegalArgumentException(
+                    "Untyped value <" + token + ">");
+        }
+
+        final String value = token.substring(2);
+        try {
+            switch (token.charAt(0)) {
+                case 'i':
+                    return UnsignedByteArrays.from(Integer.parseInt(value));
+                case 'l':
+                    return UnsignedByteArrays.from(Long.parseLong(value));
+                case 'b':
+                    return UnsignedByteArrays.from(Boolean.parseBoolean(value));
+                case 's':
+                    return UnsignedByteArrays.from(value);
+                default:
+                    throw new IllegalArgumentException(
+                            "Unknown value type <" + token + ">");
+            }
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(
+                    "Wrong value <" + token + ">",
+                    e);
+        }
+    }
+}
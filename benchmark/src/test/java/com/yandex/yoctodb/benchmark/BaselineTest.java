@@ -0,0 +1,208 @@
+/*
+ * (C) YANDEX LLC, 2014-2016
+ *
+ * The Source Code called "YoctoDB" available at
+ * https://github.com/yandex/yoctodb is subject to the terms of the
+ * Mozilla Public License, v. 2.0 (hereinafter referred to as the "License").
+ *
+ * A copy of the License is also available at http://mozilla.org/MPL/2.0/.
+ */
+
+
+package com.yandex.yoctodb.benchmark;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+import org.jetbrains.annotations.NotNull;
+import org.junit.Test;
+import org.openjdk.jmh.util.ListStatistics;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for {@link Baseline}
+ *
+ * @author agent
+ */
+public class BaselineTest {
+    // Produced by JMH with -rf json
+    static final String JMH_RESULT = "jmh-result.json";
+
+    private static final String KEY = "benchmark";
+    private static final double THRESHOLD = 5.0;
+
+    @NotNull
+    static File file(
+            @NotNull
+            final String name) throws Exception {
+        return new File(BaselineTest.class.getResource(name).toURI());
+    }
+
+    @NotNull
+    static String resource(
+            @NotNull
+            final String name) throws Exception {
+        return Files.toString(file(name), Charsets.UTF_8);
+    }
+
+    @NotNull
+    private static Baseline.Result result(
+            @NotNull
+            final String mode,
+            final double... iterations) {
+        final ListStatistics statistics = new ListStatistics();
+        for (double iteration : iterations) {
+            statistics.addValue(iteration);
+        }
+
+        return new Baseline.Result(
+                mode,
+                "thrpt".equals(mode) ? "ops/s" : "ns/op",
+                statistics.getMean(),
+                statistics);
+    }
+
+    private static int compare(
+            @NotNull
+            final Baseline.Result before,
+            @NotNull
+            final Baseline.Result after) {
+        return Baseline.compare(
+                Collections.singletonMap(KEY, before),
+                Collections.singletonMap(KEY, after),
+                THRESHOLD);
+    }
+
+    @Test
+    public void readJmhResults() throws Exception {
+        final Map<String, Baseline.Result> results =
+                Baseline.read(file(JMH_RESULT));
+        assertEquals(3, results.size());
+
+        final Baseline.Result filter =
+                results.get(
+                        "com.yandex.yoctodb.benchmark.FilterBenchmark.eq" +
+                        " cardinality=8 documents=100000 layout=AUTO" +
+                        " length=FIXED");
+        assertEquals("thrpt", filter.mode);
+        assertEquals("ops/s", filter.unit);
+        assertTrue(filter.higherIsBetter());
+        assertEquals(3, filter.statistics.getN());
+        assertEquals(filter.score, filter.statistics.getMean(), 1e-6);
+
+        final Baseline.Result buffer =
+                results.get(
+                        "com.yandex.yoctodb.benchmark.BufferBenchmark.getInt" +
+                        " backend=DIRECT keyLength=4 size=67108864");
+        assertEquals("avgt", buffer.mode);
+        assertEquals("ns/op", buffer.unit);
+        assertFalse(buffer.higherIsBetter());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void readNotResults() throws Exception {
+        final File file = File.createTempFile("jmh", ".json");
+        try {
+            Files.write("{}", file, Charsets.UTF_8);
+            Baseline.read(file);
+        } finally {
+            assertTrue(file.delete());
+        }
+    }
+
+    @Test
+    public void sameJmhResults() throws Exception {
+        final Map<String, Baseline.Result> results =
+                Baseline.read(file(JMH_RESULT));
+        assertEquals(0, Baseline.compare(results, results, THRESHOLD));
+    }
+
+    @Test
+    public void throughputRegression() {
+        assertEquals(
+                1,
+                compare(
+                        result("thrpt", 100, 101, 99, 100, 100),
+                        result("thrpt", 80, 81, 79, 80, 80)));
+    }
+
+    @Test
+    public void throughputImprovement() {
+        assertEquals(
+                0,
+                compare(
+                        result("thrpt", 100, 101, 99, 100, 100),
+                        result("thrpt", 120, 121, 119, 120, 120)));
+    }
+
+    @Test
+    public void averageTimeRegression() {
+        assertEquals(
+                1,
+                compare(
+                        result("avgt", 10, 10.1, 9.9, 10, 10),
+                        result("avgt", 12, 12.1, 11.9, 12, 12)));
+    }
+
+    @Test
+    public void averageTimeImprovement() {
+        assertEquals(
+                0,
+                compare(
+                        result("avgt", 10, 10.1, 9.9, 10, 10),
+                        result("avgt", 8, 8.1, 7.9, 8, 8)));
+    }
+
+    @Test
+    public void belowThreshold() {
+        // Significant, but too small
+        assertEquals(
+                0,
+                compare(
+                        result("thrpt", 100, 100.1, 99.9, 100, 100),
+                        result("thrpt", 97, 97.1, 96.9, 97, 97)));
+    }
+
+    @Test
+    public void notSignificant() {
+        // 10% worse on average, but within the noise
+        assertEquals(
+                0,
+                compare(
+                        result("thrpt", 100, 50, 150, 60, 140),
+                        result("thrpt", 90, 40, 140, 50, 130)));
+    }
+
+    @Test
+    public void singleIteration() {
+        assertEquals(
+                1,
+                compare(result("thrpt", 100), result("thrpt", 80)));
+    }
+
+    @Test
+    public void incomparable() {
+        assertEquals(
+                0,
+                compare(
+                        result("thrpt", 100, 101, 99),
+                        result("avgt", 200, 201, 199)));
+    }
+
+    @Test
+    public void newAndMissing() {
+        final Map<String, Baseline.Result> before = new TreeMap<>();
+        before.put("missing", result("thrpt", 100, 101, 99));
+        final Map<String, Baseline.Result> after = new TreeMap<>();
+        after.put("new", result("thrpt", 10, 11, 9));
+
+        assertEquals(0, Baseline.compare(before, after, THRESHOLD));
+    }
+}
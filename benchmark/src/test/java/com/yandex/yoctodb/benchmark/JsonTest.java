@@ -0,0 +1,107 @@
+/*
+ * (C) YANDEX LLC, 2014-2016
+ *
+ * The Source Code called "YoctoDB" available at
+ * https://github.com/yandex/yoctodb is subject to the terms of the
+ * Mozilla Public License, v. 2.0 (hereinafter referred to as the "License").
+ *
+ * A copy of the License is also available at http://mozilla.org/MPL/2.0/.
+ */
+
+
+package com.yandex.yoctodb.benchmark;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for {@link Json}
+ *
+ * @author agent
+ */
+public class JsonTest {
+    @Test
+    public void values() {
+        final Map<?, ?> object =
+                (Map<?, ?>) Json.parse(
+                        " {\"list\": [1, -2.5e3, true, false, null], " +
+                        "\"string\": \"a\\\"\\\\\\n\\u0041\"} ");
+
+        final List<?> list = (List<?>) object.get("list");
+        assertEquals(1.0, list.get(0));
+        assertEquals(-2500.0, list.get(1));
+        assertEquals(Boolean.TRUE, list.get(2));
+        assertEquals(Boolean.FALSE, list.get(3));
+        assertNull(list.get(4));
+        assertEquals("a\"\\\nA", object.get("string"));
+    }
+
+    @Test
+    public void empty() {
+        assertEquals(Collections.emptyMap(), Json.parse("{ }"));
+        assertEquals(Collections.emptyList(), Json.parse("[ ]"));
+    }
+
+    @Test
+    public void keyOrder() {
+        final Map<?, ?> object =
+                (Map<?, ?>) Json.parse("{\"b\": 1, \"a\": 2, \"c\": 3}");
+        assertEquals(Arrays.asList("b", "a", "c"),
+                     Arrays.asList(object.keySet().toArray()));
+    }
+
+    @Test
+    public void nestedNaN() {
+        // JMH writes NaN scores as strings
+        final Map<?, ?> object =
+                (Map<?, ?>) Json.parse(
+                        "{\"primaryMetric\": {\"scoreError\": \"NaN\"}}");
+        assertEquals(
+                "NaN",
+                ((Map<?, ?>) object.get("primaryMetric")).get("scoreError"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void trailingCharacters() {
+        Json.parse("[1] 2");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unterminatedString() {
+        Json.parse("[\"abc");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unterminatedArray() {
+        Json.parse("[1, 2");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void wrongNumber() {
+        Json.parse("1.2.3");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unexpectedCharacter() {
+        Json.parse("{\"a\": x}");
+    }
+
+    @Test
+    public void jmhResults() throws Exception {
+        final List<?> runs =
+                (List<?>) Json.parse(
+                        BaselineTest.resource(BaselineTest.JMH_RESULT));
+        assertEquals(3, runs.size());
+        for (Object run : runs) {
+            assertTrue(((Map<?, ?>) run).containsKey("primaryMetric"));
+        }
+    }
+}
@@ -31,7 +31,10 @@ public interface DocumentBuilder {
 
     enum LengthOption {
         FIXED,
-        VARIABLE
+        VARIABLE,
+        // Variable length values sharing long prefixes (URLs, SKUs, etc.).
+        // Front coded in filterable indexes, VARIABLE in the others.
+        FRONT_CODED
     }
 
     @NotNull
@@ -0,0 +1,103 @@
+/*
+ * (C) YANDEX LLC, 2014-2016
+ *
+ * The Source Code called "YoctoDB" available at
+ * https://github.com/yandex/yoctodb is subject to the terms of the
+ * Mozilla Public License, v. 2.0 (hereinafter referred to as the "License").
+ *
+ * A copy of the License is also available at http://mozilla.org/MPL/2.0/.
+ */
+
+package com.yandex.yoctodb.util;
+
+import net.jcip.annotations.NotThreadSafe;
+
+import java.util.zip.Checksum;
+
+/**
+ * Pure Java CRC-32C (Castagnoli) {@link Checksum} processing 8 bytes per
+ * step with lookup tables (slicing-by-8)
+ *
+ * Used where {@code java.util.zip.CRC32C} is not available.
+ *
+ * @author agent
+ */
+@NotThreadSafe
+public final class Crc32c implements Checksum {
+    // Reversed Castagnoli polynomial
+    private static final int POLYNOMIAL = 0x82F63B78;
+
+    private static final int[][] TABLES = new int[8][256];
+
+    static {
+        for (int i = 0; i < 256; i++) {
+            int crc = i;
+            for (int bit = 0; bit < 8; bit++) {
+                crc = (crc & 1) != 0 ? (crc >>> 1) ^ POLYNOMIAL : crc >>> 1;
+            }
+            TABLES[0][i] = crc;
+        }
+        for (int i = 0; i < 256; i++) {
+            for (int t = 1; t < TABLES.length; t++) {
+                final int previous = TABLES[t - 1][i];
+                TABLES[t][i] = (previous >>> 8) ^ TABLES[0][previous & 0xff];
+            }
+        }
+    }
+
+    private int crc = 0xFFFFFFFF;
+
+    @Override
+    public void update(final int b) {
+        crc = (crc >>> 8) ^ TABLES[0][(crc ^ b) & 0xff];
+    }
+
+    @Override
+    public void update(
+            final byte[] b,
+            final int off,
+            final int len) {
+        final int[] t0 = TABLES[0];
+        final int[] t1 = TABLES[1];
+        final int[] t2 = TABLES[2];
+        final int[] t3 = TABLES[3];
+        final int[] t4 = TABLES[4];
+        final int[] t5 = TABLES[5];
+        final int[] t6 = TABLES[6];
+        final int[] t7 = TABLES[7];
+
+        int c = crc;
+        int i = off;
+        final int end = off + len;
+        while (end - i >= 8) {
+            // Little-endian word
+            c ^= (b[i] & 0xff) |
+                 (b[i + 1] & 0xff) << 8 |
+                 (b[i + 2] & 0xff) << 16 |
+                 (b[i + 3] & 0xff) << 24;
+            c = t7[c & 0xff] ^
+                t6[(c >>> 8) & 0xff] ^
+                t5[(c >>> 16) & 0xff] ^
+                t4[c >>> 24] ^
+                t3[b[i + 4] & 0xff] ^
+                t2[b[i + 5] & 0xff] ^
+                t1[b[i + 6] & 0xff] ^
+                t0[b[i + 7] & 0xff];
+            i += 8;
+        }
+        while (i < end) {
+            c = (c >>> 8) ^ t0[(c ^ b[i++]) & 0xff];
+        }
+        crc = c;
+    }
+
+    @Override
+    public long getValue() {
+        return ~crc & 0xFFFFFFFFL;
+    }
+
+    @Override
+    public void reset() {
+        crc = 0xFFFFFFFF;
+    }
+}
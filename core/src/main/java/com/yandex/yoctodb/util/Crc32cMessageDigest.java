@@ -0,0 +1,168 @@
+/*
+ * (C) YANDEX LLC, 2014-2016
+ *
+ * The Source Code called "YoctoDB" available at
+ * https://github.com/yandex/yoctodb is subject to the terms of the
+ * Mozilla Public License, v. 2.0 (hereinafter referred to as the "License").
+ *
+ * A copy of the License is also available at http://mozilla.org/MPL/2.0/.
+ */
+
+package com.yandex.yoctodb.util;
+
+import com.google.common.primitives.Ints;
+import net.jcip.annotations.NotThreadSafe;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.util.zip.Checksum;
+
+/**
+ * Non-cryptographic 4 byte {@link MessageDigest} calculating CRC-32C
+ *
+ * Uses {@code java.util.zip.CRC32C} (hardware accelerated since JDK 9)
+ * reading {@link ByteBuffer}s directly when available and falls back to
+ * {@link Crc32c} otherwise.
+ *
+ * @author agent
+ */
+@NotThreadSafe
+public final class Crc32cMessageDigest extends MessageDigest {
+    public static final String ALGORITHM = "CRC32C";
+
+    private static final int DIGEST_SIZE = 4;
+    private static final int BUF_SIZE = 4096;
+
+    @Nullable
+    private static final MethodHandle NEW_JDK_CRC32C;
+    @Nullable
+    private static final MethodHandle UPDATE_BYTE_BUFFER;
+
+    static {
+        MethodHandle constructor;
+        MethodHandle update;
+        try {
+            final Class<?> crc32c = Class.forName("java.util.zip.CRC32C");
+            constructor =
+                    MethodHandles.publicLookup().findConstructor(
+                            crc32c,
+                            MethodType.methodType(void.class))
+                            .asType(MethodType.methodType(Checksum.class));
+            update =
+                    MethodHandles.publicLookup().findVirtual(
+                            crc32c,
+                            "update",
+                            MethodType.methodType(
+                                    void.class,
+                                    ByteBuffer.class))
+                            .asType(
+                                    MethodType.methodType(
+                                            void.class,
+                                            Checksum.class,
+                                            ByteBuffer.class));
+        } catch (ReflectiveOperationException e) {
+            // Pure Java fallback
+            constructor = null;
+            update = null;
+        }
+        NEW_JDK_CRC32C = constructor;
+        UPDATE_BYTE_BUFFER = update;
+    }
+
+    @NotNull
+    private final Checksum checksum;
+    @Nullable
+    private byte[] buf = null;
+
+    public Crc32cMessageDigest() {
+        super(ALGORITHM);
+
+        this.checksum = newChecksum();
+    }
+
+    /**
+     * @return whether JDK implementation is used
+     */
+    public static boolean isIntrinsic() {
+        return NEW_JDK_CRC32C != null;
+    }
+
+    @NotNull
+    private static Checksum newChecksum() {
+        if (NEW_JDK_CRC32C != null) {
+            try {
+                return (Checksum) NEW_JDK_CRC32C.invokeExact();
+            } catch (Throwable t) {
+                throw new RuntimeException(t);
+            }
+        }
+
+        return new Crc32c();
+    }
+
+    @Override
+    protected int engineGetDigestLength() {
+        return DIGEST_SIZE;
+    }
+
+    @Override
+    protected void engineUpdate(final byte input) {
+        checksum.update(input);
+    }
+
+    @Override
+    protected void engineUpdate(
+            final byte[] input,
+            final int offset,
+            final int len) {
+        checksum.update(input, offset, len);
+    }
+
+    @Override
+    protected void engineUpdate(final ByteBuffer input) {
+        if (UPDATE_BYTE_BUFFER != null) {
+            try {
+                UPDATE_BYTE_BUFFER.invokeExact(checksum, input);
+            } catch (Throwable t) {
+                throw new RuntimeException(t);
+            }
+            return;
+        }
+
+        if (input.hasArray()) {
+            final int position = input.position();
+            checksum.update(
+                    input.array(),
+                    input.arrayOffset() + position,
+                    input.remaining());
+            input.position(input.limit());
+            return;
+        }
+
+        if (buf == null) {
+            buf = new byte[BUF_SIZE];
+        }
+        while (input.hasRemaining()) {
+            final int length = Math.min(buf.length, input.remaining());
+            input.get(buf, 0, length);
+            checksum.update(buf, 0, length);
+        }
+    }
+
+    @Override
+    protected byte[] engineDigest() {
+        final byte[] result = Ints.toByteArray((int) checksum.getValue());
+        checksum.reset();
+        return result;
+    }
+
+    @Override
+    protected void engineReset() {
+        checksum.reset();
+    }
+}
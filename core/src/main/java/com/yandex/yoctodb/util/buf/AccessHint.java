@@ -0,0 +1,48 @@
+/*
+ * (C) YANDEX LLC, 2014-2016
+ *
+ * The Source Code called "YoctoDB" available at
+ * https://github.com/yandex/yoctodb is subject to the terms of the
+ * Mozilla Public License, v. 2.0 (hereinafter referred to as the "License").
+ *
+ * A copy of the License is also available at http://mozilla.org/MPL/2.0/.
+ */
+
+package com.yandex.yoctodb.util.buf;
+
+/**
+ * Expected access pattern of a {@link Buffer} region similar to
+ * {@code madvise()} advice
+ *
+ * Java has no portable way to pass the advice to the kernel, so only
+ * {@link #WILL_NEED} has effect: pages of direct and mapped buffers are
+ * faulted in. The rest are currently ignored by all the buffers.
+ *
+ * @author agent
+ */
+public enum AccessHint {
+    /**
+     * No special treatment
+     *
+     * Currently ignored.
+     */
+    NORMAL,
+    /**
+     * Sequential scans, e.g. posting lists
+     *
+     * Currently ignored.
+     */
+    SEQUENTIAL,
+    /**
+     * Random lookups, e.g. sorted set searches
+     *
+     * Currently ignored.
+     */
+    RANDOM,
+    /**
+     * The region is going to be accessed soon, e.g. hot indexes
+     *
+     * Pages of direct and mapped buffers are read in the calling thread.
+     */
+    WILL_NEED
+}
@@ -21,6 +21,7 @@ import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.nio.MappedByteBuffer;
 import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
 
 /**
  * Read only {@code long} addressed implementation of {@link java.nio.Buffer}
@@ -29,6 +30,13 @@ import java.nio.channels.FileChannel;
  */
 @NotThreadSafe
 public abstract class Buffer implements Comparable<Buffer> {
+    private static final int UPDATE_BUF_SIZE = 4096;
+    private static final int PAGE_SIZE = 4096;
+
+    // Keeps page touching reads from being optimized away
+    @SuppressWarnings("unused")
+    private static volatile int touched;
+
     @NotNull
     public static Buffer from(
             @NotNull
@@ -57,8 +65,14 @@ public abstract class Buffer implements Comparable<Buffer> {
             @SuppressWarnings("SameParameterValue")
             final boolean forceToMemory) throws IOException {
         assert f.exists() : "File doesn't exist: " + f;
-        assert f.length() <= Integer.MAX_VALUE :
-                "mmapping of files >2 GB is not supported yet";
+
+        // Files >2 GB don't fit into a single ByteBuffer
+        if (f.length() > Integer.MAX_VALUE) {
+            return MultiRegionBuffer.mmap(
+                    f,
+                    forceToMemory,
+                    MultiRegionBuffer.DEFAULT_REGION_SHIFT);
+        }
 
         // Mapping the file
         final MappedByteBuffer buffer;
@@ -104,6 +118,62 @@ public abstract class Buffer implements Comparable<Buffer> {
         return result;
     }
 
+    /**
+     * Updates {@code md} with the remaining bytes without changing the
+     * position
+     *
+     * @param md digest to update
+     */
+    public void update(
+            @NotNull
+            final MessageDigest md) {
+        final Buffer data = slice();
+        final byte[] buf =
+                new byte[(int) Math.min(UPDATE_BUF_SIZE, data.remaining())];
+        while (data.hasRemaining()) {
+            final int length = (int) Math.min(buf.length, data.remaining());
+            data.get(buf, 0, length);
+            md.update(buf, 0, length);
+        }
+    }
+
+    /**
+     * Hints how the remaining bytes are going to be accessed
+     *
+     * Does nothing by default. Only {@link AccessHint#WILL_NEED} has effect
+     * currently, the rest of the hints are ignored.
+     *
+     * @param hint expected access pattern
+     * @return this buffer
+     */
+    public Buffer advise(
+            @NotNull
+            final AccessHint hint) {
+        return this;
+    }
+
+    /**
+     * Reads a byte per page of {@code buf} region to fault the pages in
+     *
+     * @param buf  buffer to read
+     * @param from start index inclusive
+     * @param to   end index exclusive
+     */
+    static void touch(
+            @NotNull
+            final ByteBuffer buf,
+            final int from,
+            final int to) {
+        int sum = 0;
+        for (int i = from; i < to; i += PAGE_SIZE) {
+            sum += buf.get(i);
+        }
+        if (from < to) {
+            sum += buf.get(to - 1);
+        }
+        touched = sum;
+    }
+
     public abstract Buffer get(byte[] dst, int offset, int length);
 
     public abstract Buffer get(byte[] dst);
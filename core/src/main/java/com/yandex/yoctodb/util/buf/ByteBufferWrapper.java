@@ -14,6 +14,7 @@ import net.jcip.annotations.NotThreadSafe;
 import org.jetbrains.annotations.NotNull;
 
 import java.nio.ByteBuffer;
+import java.security.MessageDigest;
 
 /**
  * {@link ByteBuffer} wrapper implementation of {@link Buffer}
@@ -117,6 +118,26 @@ public final class ByteBufferWrapper extends Buffer {
         return delegate.getLong((int) index);
     }
 
+    @Override
+    public Buffer advise(
+            @NotNull
+            final AccessHint hint) {
+        // Only mapped or direct memory may be paged out
+        if (hint == AccessHint.WILL_NEED && delegate.isDirect()) {
+            touch(delegate, delegate.position(), delegate.limit());
+        }
+
+        return this;
+    }
+
+    @Override
+    public void update(
+            @NotNull
+            final MessageDigest md) {
+        // Digest reads the buffer directly
+        md.update(delegate.duplicate());
+    }
+
     @Override
     public Buffer slice() {
         return Buffer.from(delegate.slice());
@@ -0,0 +1,339 @@
+/*
+ * (C) YANDEX LLC, 2014-2016
+ *
+ * The Source Code called "YoctoDB" available at
+ * https://github.com/yandex/yoctodb is subject to the terms of the
+ * Mozilla Public License, v. 2.0 (hereinafter referred to as the "License").
+ *
+ * A copy of the License is also available at http://mozilla.org/MPL/2.0/.
+ */
+
+package com.yandex.yoctodb.util.buf;
+
+import net.jcip.annotations.NotThreadSafe;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+
+/**
+ * Big-endian implementation of {@link Buffer} stitching several
+ * {@link ByteBuffer} regions together with {@code long} addressing
+ *
+ * All the regions except the last one are {@code 2^regionShift} bytes long
+ * and overlap the next region by {@link #OVERLAP} bytes, so {@code int}s and
+ * {@code long}s are always read from a single region. Only bulk reads may
+ * cross region boundaries.
+ *
+ * @author agent
+ */
+@NotThreadSafe
+public final class MultiRegionBuffer extends Buffer {
+    /**
+     * Default region is 1 GB
+     */
+    public static final int DEFAULT_REGION_SHIFT = 30;
+
+    /**
+     * Bytes shared by neighbour regions
+     */
+    static final int OVERLAP = 8 - 1;
+
+    @NotNull
+    private final ByteBuffer[] regions;
+    private final int regionShift;
+    private final long regionMask;
+    private final long offset;
+    private final long limit;
+    private long position;
+
+    /**
+     * Maps the file with regions of {@code 2^regionShift} bytes
+     *
+     * @param f             file to map
+     * @param forceToMemory whether to load the regions
+     * @param regionShift   binary logarithm of region size
+     * @return buffer containing the whole file
+     * @throws IOException if mapping fails
+     */
+    @NotNull
+    public static Buffer mmap(
+            @NotNull
+            final File f,
+            final boolean forceToMemory,
+            final int regionShift) throws IOException {
+        assert f.exists() : "File doesn't exist: " + f;
+        if (regionShift < 3 || regionShift > DEFAULT_REGION_SHIFT)
+            throw new IllegalArgumentException(
+                    "Wrong region shift: " + regionShift);
+
+        final long length = f.length();
+        final long regionSize = 1L << regionShift;
+        final int count =
+                length == 0L ?
+                        1 :
+                        (int) ((length + regionSize - 1) >>> regionShift);
+        final ByteBuffer[] regions = new ByteBuffer[count];
+        try (RandomAccessFile raf = new RandomAccessFile(f, "r")) {
+            try (FileChannel ch = raf.getChannel()) {
+                for (int i = 0; i < count; i++) {
+                    final long from = ((long) i) << regionShift;
+                    final MappedByteBuffer region =
+                            ch.map(
+                                    FileChannel.MapMode.READ_ONLY,
+                                    from,
+                                    Math.min(
+                                            regionSize + OVERLAP,
+                                            length - from));
+
+                    // Forcing data loading
+                    if (forceToMemory) {
+                        region.load();
+                    }
+
+                    regions[i] = region.order(ByteOrder.BIG_ENDIAN);
+                }
+            }
+        }
+
+        return new MultiRegionBuffer(regions, regionShift, length);
+    }
+
+    /**
+     * @param regions     overlapping regions
+     * @param regionShift binary logarithm of region size
+     * @param length      total length in bytes
+     */
+    MultiRegionBuffer(
+            @NotNull
+            final ByteBuffer[] regions,
+            final int regionShift,
+            final long length) {
+        this(regions, regionShift, 0L, length);
+    }
+
+    private MultiRegionBuffer(
+            @NotNull
+            final ByteBuffer[] regions,
+            final int regionShift,
+            final long offset,
+            final long limit) {
+        assert regions.length > 0;
+        assert 0 <= offset;
+        assert 0 <= limit;
+
+        this.regions = regions;
+        this.regionShift = regionShift;
+        this.regionMask = (1L << regionShift) - 1L;
+        this.offset = offset;
+        this.limit = limit;
+        this.position = 0L;
+    }
+
+    private ByteBuffer region(final long address) {
+        return regions[(int) (address >>> regionShift)];
+    }
+
+    private int local(final long address) {
+        return (int) (address & regionMask);
+    }
+
+    @Override
+    public long position() {
+        return position;
+    }
+
+    @Override
+    public Buffer position(final long position) {
+        assert 0 <= position && position <= limit;
+
+        this.position = position;
+
+        return this;
+    }
+
+    @Override
+    public Buffer advance(final long bytes) {
+        assert position + bytes <= limit;
+
+        this.position += bytes;
+
+        return this;
+    }
+
+    @Override
+    public long limit() {
+        return limit;
+    }
+
+    @Override
+    public boolean hasRemaining() {
+        return position < limit;
+    }
+
+    @Override
+    public long remaining() {
+        return limit - position;
+    }
+
+    @Override
+    public Buffer get(
+            final byte[] dst,
+            final int offset,
+            final int length) {
+        assert length <= remaining();
+
+        long address = this.offset + this.position;
+        int copied = 0;
+        while (copied < length) {
+            final int local = local(address);
+            final int chunk =
+                    (int) Math.min(
+                            length - copied,
+                            regionMask + 1L - local);
+            final ByteBuffer region = region(address).duplicate();
+            region.position(local);
+            region.get(dst, offset + copied, chunk);
+            copied += chunk;
+            address += chunk;
+        }
+
+        this.position += length;
+
+        return this;
+    }
+
+    @Override
+    public Buffer advise(
+            @NotNull
+            final AccessHint hint) {
+        if (hint != AccessHint.WILL_NEED) {
+            return this;
+        }
+
+        long address = this.offset + this.position;
+        final long end = this.offset + this.limit;
+        while (address < end) {
+            final int local = local(address);
+            final int chunk =
+                    (int) Math.min(end - address, regionMask + 1L - local);
+            touch(region(address), local, local + chunk);
+            address += chunk;
+        }
+
+        return this;
+    }
+
+    @Override
+    public void update(
+            @NotNull
+            final MessageDigest md) {
+        long address = this.offset + this.position;
+        final long end = this.offset + this.limit;
+        while (address < end) {
+            final int local = local(address);
+            final int chunk =
+                    (int) Math.min(end - address, regionMask + 1L - local);
+            final ByteBuffer region = region(address).duplicate();
+            region.limit(local + chunk);
+            region.position(local);
+            md.update(region);
+            address += chunk;
+        }
+    }
+
+    @Override
+    public Buffer get(final byte[] dst) {
+        return get(dst, 0, dst.length);
+    }
+
+    @Override
+    public byte get() {
+        assert hasRemaining();
+
+        final long address = this.offset + this.position;
+        this.position++;
+
+        return region(address).get(local(address));
+    }
+
+    @Override
+    public byte get(final long index) {
+        assert 0 <= index && index < limit;
+
+        final long address = this.offset + index;
+
+        return region(address).get(local(address));
+    }
+
+    @Override
+    public int getInt() {
+        final int result = getInt(position);
+
+        this.position += 4;
+
+        return result;
+    }
+
+    @Override
+    public int getInt(final long index) {
+        assert 0 <= index && index + 4 <= limit;
+
+        final long address = this.offset + index;
+
+        // Regions overlap, so no need to stitch
+        return region(address).getInt(local(address));
+    }
+
+    @Override
+    public long getLong() {
+        final long result = getLong(position);
+
+        this.position += 8;
+
+        return result;
+    }
+
+    @Override
+    public long getLong(final long index) {
+        assert 0 <= index && index + 8 <= limit;
+
+        final long address = this.offset + index;
+
+        // Regions overlap, so no need to stitch
+        return region(address).getLong(local(address));
+    }
+
+    @Override
+    public Buffer slice(
+            final long from,
+            final long size) {
+        assert 0 <= from;
+        assert 0 <= size;
+        assert from + size <= limit;
+
+        final long start = this.offset + from;
+        if (size <= OVERLAP + 1L ||
+            (start >>> regionShift) ==
+            ((start + size - 1L) >>> regionShift)) {
+            // Fast path for slices inside a single region
+            final ByteBuffer region = region(start).duplicate();
+            region.position(local(start));
+            region.limit((int) (local(start) + size));
+
+            return Buffer.from(region.slice().order(ByteOrder.BIG_ENDIAN));
+        }
+
+        return new MultiRegionBuffer(
+                regions,
+                regionShift,
+                start,
+                size);
+    }
+}
@@ -0,0 +1,299 @@
+/*
+ * (C) YANDEX LLC, 2014-2016
+ *
+ * The Source Code called "YoctoDB" available at
+ * https://github.com/yandex/yoctodb is subject to the terms of the
+ * Mozilla Public License, v. 2.0 (hereinafter referred to as the "License").
+ *
+ * A copy of the License is also available at http://mozilla.org/MPL/2.0/.
+ */
+
+package com.yandex.yoctodb.util.immutable.impl;
+
+import com.google.common.primitives.UnsignedBytes;
+import com.yandex.yoctodb.util.UnsignedByteArrays;
+import com.yandex.yoctodb.util.buf.Buffer;
+import com.yandex.yoctodb.util.immutable.ByteArraySortedSet;
+import net.jcip.annotations.Immutable;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+
+/**
+ * {@link ByteArraySortedSet} reading front-coded elements written by
+ * {@link com.yandex.yoctodb.util.mutable.impl.FrontCodedByteArraySortedSet}
+ *
+ * Lookups binary search restart points and then scan a single block without
+ * reconstructing the elements.
+ *
+ * @author agent
+ */
+@Immutable
+public final class FrontCodedByteArraySortedSet
+        implements ByteArraySortedSet {
+    private final int size;
+    private final int restartInterval;
+    private final int restartsCount;
+    @NotNull
+    private final Buffer restarts;
+    @NotNull
+    private final Buffer elements;
+
+    public static ByteArraySortedSet from(
+            @NotNull
+            final Buffer buffer) {
+        final int size = buffer.getInt();
+        final int restartInterval = buffer.getInt();
+        final int restartsCount =
+                (int) ((size + (long) restartInterval - 1) / restartInterval);
+        final Buffer restarts = buffer.slice(((long) restartsCount) << 3);
+        final Buffer elements =
+                buffer.slice().position(restarts.remaining()).slice();
+
+        return new FrontCodedByteArraySortedSet(
+                size,
+                restartInterval,
+                restartsCount,
+                restarts,
+                elements);
+    }
+
+    private FrontCodedByteArraySortedSet(
+            final int size,
+            final int restartInterval,
+            final int restartsCount,
+            @NotNull
+            final Buffer restarts,
+            @NotNull
+            final Buffer elements) {
+        assert size >= 0 : "Negative size";
+        assert restartInterval > 0 : "Nonpositive restart interval";
+
+        this.size = size;
+        this.restartInterval = restartInterval;
+        this.restartsCount = restartsCount;
+        this.restarts = restarts;
+        this.elements = elements;
+    }
+
+    private int readVarInt(final long position) {
+        int result = 0;
+        int shift = 0;
+        long current = position;
+        byte b;
+        do {
+            b = elements.get(current++);
+            result |= (b & 0x7f) << shift;
+            shift += 7;
+        } while (b < 0);
+
+        return result;
+    }
+
+    private static int varIntSize(final int value) {
+        int result = 1;
+        for (int rest = value >>> 7; rest != 0; rest >>>= 7) {
+            result++;
+        }
+
+        return result;
+    }
+
+    private int compareRestart(
+            final int restart,
+            @NotNull
+            final Buffer that) {
+        // Shared prefix length of a restart point is always zero
+        final long start = restarts.getLong(((long) restart) << 3) + 1L;
+        final int length = readVarInt(start);
+        if (length == 0) {
+            // Empty element is the least one
+            return that.hasRemaining() ? -1 : 0;
+        }
+
+        return UnsignedByteArrays.compare(
+                elements,
+                start + varIntSize(length),
+                length,
+                that);
+    }
+
+    /**
+     * Finds the first element not less than {@code e}
+     *
+     * @param e the element to lookup
+     *
+     * @return index of the element equal to {@code e} or
+     * {@code (-(insertion point) - 1)} like
+     * {@link java.util.Arrays#binarySearch(int[], int)} does
+     */
+    private int lowerBound(
+            @NotNull
+            final Buffer e) {
+        // The last restart point not greater than e
+        int start = 0;
+        int end = restartsCount - 1;
+        while (start <= end) {
+            final int mid = (start + end) >>> 1;
+            final int compare = compareRestart(mid, e);
+            if (compare < 0) {
+                start = mid + 1;
+            } else if (compare > 0) {
+                end = mid - 1;
+            } else {
+                return mid * restartInterval;
+            }
+        }
+
+        if (end < 0) {
+            return -1;
+        }
+
+        // Scan the block keeping the length of the prefix shared by e and
+        // the previous element which is less than e
+        final long eFrom = e.position();
+        final long eLength = e.remaining();
+        final int from = end * restartInterval;
+        final int to = (int) Math.min(size, (long) from + restartInterval);
+        long position = restarts.getLong(((long) end) << 3);
+        long matched = 0L;
+        for (int i = from; i < to; i++) {
+            final int shared = readVarInt(position);
+            position += varIntSize(shared);
+            final int suffix = readVarInt(position);
+            position += varIntSize(suffix);
+
+            if (shared > matched) {
+                // The element shares more with the previous one than e,
+                // so it is still less than e
+                position += suffix;
+                continue;
+            }
+
+            if (shared < matched) {
+                // The element differs from the previous one before e does
+                return -i - 1;
+            }
+
+            // Compare the rest of the element with the rest of e
+            final long length = Math.min(suffix, eLength - matched);
+            long common = 0L;
+            while (common < length &&
+                   elements.get(position + common) ==
+                   e.get(eFrom + matched + common)) {
+                common++;
+            }
+
+            final int compare;
+            if (common < length) {
+                compare =
+                        UnsignedBytes.compare(
+                                elements.get(position + common),
+                                e.get(eFrom + matched + common));
+            } else if (suffix < eLength - matched) {
+                compare = -1;
+            } else if (suffix == eLength - matched) {
+                compare = 0;
+            } else {
+                compare = 1;
+            }
+
+            if (compare == 0) {
+                return i;
+            } else if (compare > 0) {
+                return -i - 1;
+            }
+
+            matched += common;
+            position += suffix;
+        }
+
+        return -to - 1;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @NotNull
+    @Override
+    public Buffer get(final int i) {
+        assert 0 <= i && i < size;
+
+        final int restart = i / restartInterval;
+        long position = restarts.getLong(((long) restart) << 3);
+        byte[] value = new byte[0];
+        int length = 0;
+        for (int j = restart * restartInterval; j <= i; j++) {
+            final int shared = readVarInt(position);
+            position += varIntSize(shared);
+            final int suffix = readVarInt(position);
+            position += varIntSize(suffix);
+
+            length = shared + suffix;
+            if (length > value.length) {
+                value = Arrays.copyOf(value, Math.max(length, 2 * value.length));
+            }
+            elements.slice(position, suffix).get(value, shared, suffix);
+            position += suffix;
+        }
+
+        return Buffer.from(Arrays.copyOf(value, length));
+    }
+
+    @Override
+    public int indexOf(
+            @NotNull
+            final Buffer e) {
+        final int result = lowerBound(e);
+
+        return result >= 0 ? result : -1;
+    }
+
+    @Override
+    public int indexOfGreaterThan(
+            @NotNull
+            final Buffer e,
+            final boolean orEquals,
+            final int upToIndexInclusive) {
+        assert 0 <= upToIndexInclusive && upToIndexInclusive < size;
+
+        final int bound = lowerBound(e);
+        final int result;
+        if (bound >= 0) {
+            result = orEquals ? bound : bound + 1;
+        } else {
+            result = -bound - 1;
+        }
+
+        return result <= upToIndexInclusive ? result : -1;
+    }
+
+    @Override
+    public int indexOfLessThan(
+            @NotNull
+            final Buffer e,
+            final boolean orEquals,
+            final int fromIndexInclusive) {
+        assert 0 <= fromIndexInclusive && fromIndexInclusive < size;
+
+        final int bound = lowerBound(e);
+        final int result;
+        if (bound >= 0) {
+            result = orEquals ? bound : bound - 1;
+        } else {
+            result = -bound - 2;
+        }
+
+        return result >= fromIndexInclusive ? result : -1;
+    }
+
+    @Override
+    public String toString() {
+        return "FrontCodedByteArraySortedSet{" +
+               "size=" + size +
+               ", restartInterval=" + restartInterval +
+               '}';
+    }
+}
@@ -0,0 +1,429 @@
+/*
+ * (C) YANDEX LLC, 2014-2016
+ *
+ * The Source Code called "YoctoDB" available at
+ * https://github.com/yandex/yoctodb is subject to the terms of the
+ * Mozilla Public License, v. 2.0 (hereinafter referred to as the "License").
+ *
+ * A copy of the License is also available at http://mozilla.org/MPL/2.0/.
+ */
+
+package com.yandex.yoctodb.util.immutable.impl;
+
+import com.yandex.yoctodb.util.buf.Buffer;
+import com.yandex.yoctodb.util.immutable.IndexToIndexMultiMap;
+import com.yandex.yoctodb.util.immutable.IntToIntArray;
+import com.yandex.yoctodb.util.mutable.BitSet;
+import net.jcip.annotations.Immutable;
+import net.jcip.annotations.NotThreadSafe;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import static com.yandex.yoctodb.util.mutable.impl.HybridIndexToIndexMultiMap.ARRAY_CONTAINER;
+import static com.yandex.yoctodb.util.mutable.impl.HybridIndexToIndexMultiMap.BITMAP_CONTAINER;
+import static com.yandex.yoctodb.util.mutable.impl.HybridIndexToIndexMultiMap.BITMAP_WORDS;
+import static com.yandex.yoctodb.util.mutable.impl.HybridIndexToIndexMultiMap.CHUNK_BITS;
+import static com.yandex.yoctodb.util.mutable.impl.HybridIndexToIndexMultiMap.RUN_CONTAINER;
+
+/**
+ * {@link IndexToIndexMultiMap} reading array, bitmap and run containers
+ * written by
+ * {@link com.yandex.yoctodb.util.mutable.impl.HybridIndexToIndexMultiMap}
+ *
+ * @author agent
+ */
+@Immutable
+public final class HybridIndexToIndexMultiMap implements IndexToIndexMultiMap {
+    private final int keysCount;
+    @NotNull
+    private final Buffer offsets;
+    @NotNull
+    private final Buffer elements;
+
+    @NotNull
+    public static IndexToIndexMultiMap from(
+            @NotNull
+            final Buffer buf) {
+        final int keysCount = buf.getInt();
+        final Buffer offsets = buf.slice(((long) keysCount) << 3);
+        final Buffer elements =
+                buf.slice().position(offsets.remaining()).slice();
+
+        return new HybridIndexToIndexMultiMap(
+                keysCount,
+                offsets,
+                elements);
+    }
+
+    private HybridIndexToIndexMultiMap(
+            final int keysCount,
+            @NotNull
+            final Buffer offsets,
+            @NotNull
+            final Buffer elements) {
+        assert keysCount >= 0 : "Negative keys count";
+
+        this.keysCount = keysCount;
+        this.offsets = offsets;
+        this.elements = elements;
+    }
+
+    private static int getChar(
+            @NotNull
+            final Buffer buffer,
+            final long index) {
+        return ((buffer.get(index) & 0xff) << 8) |
+               (buffer.get(index + 1L) & 0xff);
+    }
+
+    /**
+     * Sequential reader of a single set
+     */
+    @NotThreadSafe
+    static final class Cursor {
+        private static final int NO_CONTAINER = -1;
+
+        @NotNull
+        private final Buffer elements;
+        private final int cardinality;
+        private int containers;
+        private long position;
+
+        // Current container
+        private int type = NO_CONTAINER;
+        private int base;
+        private int remaining;
+
+        // Bitmap container
+        private long word;
+        private int wordBase;
+
+        // Run container
+        private int runValue;
+        private int runEnd;
+
+        Cursor(
+                @NotNull
+                final Buffer elements,
+                final long start) {
+            this.elements = elements;
+            this.cardinality = elements.getInt(start);
+            this.containers = elements.getInt(start + 4L);
+            this.position = start + 8L;
+        }
+
+        int cardinality() {
+            return cardinality;
+        }
+
+        /**
+         * @return next value or {@code -1} if there are no more values
+         */
+        int next() {
+            while (true) {
+                switch (type) {
+                    case ARRAY_CONTAINER:
+                        if (remaining > 0) {
+                            remaining--;
+                            final int low = getChar(elements, position);
+                            position += 2L;
+                            return base | low;
+                        }
+                        break;
+                    case BITMAP_CONTAINER:
+                        while (word == 0L && remaining > 0) {
+                            wordBase =
+                                    base |
+                                    ((BITMAP_WORDS - remaining) << 6);
+                            word = elements.getLong(position);
+                            position += 8L;
+                            remaining--;
+                        }
+                        if (word != 0L) {
+                            final int bit = Long.numberOfTrailingZeros(word);
+                            word &= word - 1L;
+                            return wordBase | bit;
+                        }
+                        break;
+                    case RUN_CONTAINER:
+                        if (runValue > runEnd && remaining > 0) {
+                            runValue = getChar(elements, position);
+                            runEnd = runValue +
+                                     getChar(elements, position + 2L);
+                            position += 4L;
+                            remaining--;
+                        }
+                        if (runValue <= runEnd) {
+                            return base | runValue++;
+                        }
+                        break;
+                    default:
+                        assert type == NO_CONTAINER;
+                }
+
+                if (containers == 0) {
+                    return -1;
+                }
+
+                // Next container
+                containers--;
+                base = getChar(elements, position) << CHUNK_BITS;
+                type = elements.get(position + 2L);
+                final int count = getChar(elements, position + 3L) + 1;
+                position += 5L;
+                remaining = type == BITMAP_CONTAINER ? BITMAP_WORDS : count;
+                word = 0L;
+                runValue = 1;
+                runEnd = 0;
+            }
+        }
+    }
+
+    @Override
+    public boolean get(
+            @NotNull
+            final BitSet dest,
+            final int key) {
+        assert 0 <= key && key < keysCount;
+
+        final long start = offsets.getLong(((long) key) << 3);
+        final int cardinality = elements.getInt(start);
+        int containers = elements.getInt(start + 4L);
+        long position = start + 8L;
+
+        while (containers > 0) {
+            final int chunk = getChar(elements, position);
+            final int base = chunk << CHUNK_BITS;
+            final byte type = elements.get(position + 2L);
+            final int count = getChar(elements, position + 3L) + 1;
+            position += 5L;
+
+            switch (type) {
+                case ARRAY_CONTAINER:
+                    // Reading value pairs at once
+                    int i = 0;
+                    for (; i + 1 < count; i += 2) {
+                        final int pair = elements.getInt(position);
+                        dest.set(base | (pair >>> 16));
+                        dest.set(base | (pair & 0xffff));
+                        position += 4L;
+                    }
+                    if (i < count) {
+                        dest.set(base | getChar(elements, position));
+                        position += 2L;
+                    }
+                    break;
+                case BITMAP_CONTAINER:
+                    dest.or(
+                            elements,
+                            position,
+                            chunk * BITMAP_WORDS,
+                            BITMAP_WORDS);
+                    position += ((long) BITMAP_WORDS) << 3;
+                    break;
+                case RUN_CONTAINER:
+                    for (int r = 0; r < count; r++) {
+                        final int from = base | getChar(elements, position);
+                        final int to =
+                                from + getChar(elements, position + 2L);
+                        for (int value = from; value <= to; value++) {
+                            dest.set(value);
+                        }
+                        position += 4L;
+                    }
+                    break;
+                default:
+                    throw new IllegalStateException(
+                            "Unknown container " + type);
+            }
+
+            containers--;
+        }
+
+        return cardinality > 0;
+    }
+
+    private boolean fill(
+            @NotNull
+            final BitSet dest,
+            final int fromInclusive,
+            final int toExclusive) {
+        boolean result = false;
+        for (int key = fromInclusive; key < toExclusive; key++) {
+            result |= get(dest, key);
+        }
+
+        return result;
+    }
+
+    @Override
+    public boolean getFrom(
+            @NotNull
+            final BitSet dest,
+            final int fromInclusive) {
+        assert 0 <= fromInclusive && fromInclusive < keysCount;
+
+        return fill(dest, fromInclusive, keysCount);
+    }
+
+    @Override
+    public boolean getTo(
+            @NotNull
+            final BitSet dest,
+            final int toExclusive) {
+        assert 0 < toExclusive && toExclusive <= keysCount;
+
+        return fill(dest, 0, toExclusive);
+    }
+
+    @Override
+    public boolean getBetween(
+            @NotNull
+            final BitSet dest,
+            final int fromInclusive,
+            final int toExclusive) {
+        assert 0 <= fromInclusive &&
+               fromInclusive < toExclusive &&
+               toExclusive <= keysCount;
+
+        return fill(dest, fromInclusive, toExclusive);
+    }
+
+    @Override
+    public int getKeysCount() {
+        return keysCount;
+    }
+
+    @Override
+    public String toString() {
+        return "HybridIndexToIndexMultiMap{" +
+               "keysCount=" + keysCount +
+               '}';
+    }
+
+    @Nullable
+    private IntToIntArray getFilteredValues(
+            final int key,
+            @NotNull
+            final BitSet valueFilter) {
+        assert 0 <= key && key < keysCount;
+
+        final Cursor cursor =
+                new Cursor(elements, offsets.getLong(((long) key) << 3));
+
+        assert cursor.cardinality() > 0;
+
+        int[] values = null;
+        int count = 0;
+
+        int i = 0;
+        for (int value = cursor.next(); value >= 0; value = cursor.next()) {
+            if (valueFilter.get(value)) {
+                // Lazy allocation
+                if (values == null) {
+                    values = new int[cursor.cardinality() - i];
+                }
+                values[count] = value;
+                count++;
+            }
+            i++;
+        }
+
+        if (values == null) {
+            return null;
+        } else {
+            return new IntToIntArray(key, values, count);
+        }
+    }
+
+    @NotNull
+    @Override
+    public Iterator<IntToIntArray> ascending(
+            @NotNull
+            final BitSet valueFilter) {
+        return new Iterator<IntToIntArray>() {
+            private int key = 0;
+            private IntToIntArray next = null;
+
+            private void advance() {
+                while (next == null && key < keysCount) {
+                    next = getFilteredValues(key++, valueFilter);
+                }
+            }
+
+            @Override
+            public boolean hasNext() {
+                if (next != null)
+                    return true;
+
+                advance();
+
+                return next != null;
+            }
+
+            @Override
+            public IntToIntArray next() {
+                if (!hasNext())
+                    throw new NoSuchElementException();
+
+                final IntToIntArray result = next;
+                next = null;
+
+                return result;
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException(
+                        "Removal not supported");
+            }
+        };
+    }
+
+    @NotNull
+    @Override
+    public Iterator<IntToIntArray> descending(
+            @NotNull
+            final BitSet valueFilter) {
+        return new Iterator<IntToIntArray>() {
+            private int key = keysCount - 1;
+            private IntToIntArray next = null;
+
+            private void advance() {
+                while (next == null && key >= 0) {
+                    next = getFilteredValues(key--, valueFilter);
+                }
+            }
+
+            @Override
+            public boolean hasNext() {
+                if (next != null)
+                    return true;
+
+                advance();
+
+                return next != null;
+            }
+
+            @Override
+            public IntToIntArray next() {
+                if (!hasNext())
+                    throw new NoSuchElementException();
+
+                final IntToIntArray result = next;
+                next = null;
+
+                return result;
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException(
+                        "Removal not supported");
+            }
+        };
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ * (C) YANDEX LLC, 2014-2016
+ *
+ * The Source Code called "YoctoDB" available at
+ * https://github.com/yandex/yoctodb is subject to the terms of the
+ * Mozilla Public License, v. 2.0 (hereinafter referred to as the "License").
+ *
+ * A copy of the License is also available at http://mozilla.org/MPL/2.0/.
+ */
+
+package com.yandex.yoctodb.util.immutable.impl;
+
+import com.yandex.yoctodb.util.buf.Buffer;
+import com.yandex.yoctodb.util.immutable.IndexToIndexMap;
+import com.yandex.yoctodb.v1.V1DatabaseFormat;
+
+/**
+ * Reads {@link IndexToIndexMap} of any type
+ *
+ * {@link IntIndexToIndexMap} starts with nonnegative element count, the
+ * other maps start with negated
+ * {@link com.yandex.yoctodb.v1.V1DatabaseFormat.MapType} code.
+ *
+ * @author agent
+ */
+public final class IndexToIndexMapReader {
+
+    private IndexToIndexMapReader() {
+        //
+    }
+
+    // For test coverage
+    static {
+        new IndexToIndexMapReader();
+    }
+
+    public static IndexToIndexMap from(
+            final Buffer byteBuffer) {
+        if (byteBuffer.getInt(byteBuffer.position()) >= 0) {
+            return IntIndexToIndexMap.from(byteBuffer);
+        }
+
+        final int type = -byteBuffer.getInt();
+        if (type == V1DatabaseFormat.MapType.PACKED_BASED.getCode()) {
+            return PackedIndexToIndexMap.from(byteBuffer.slice());
+        } else {
+            throw new UnsupportedOperationException(
+                    "Unsupported IndexToIndexMap type: " + type);
+        }
+    }
+}
@@ -35,6 +35,12 @@ public final class IndexToIndexMultiMapReader {
             return IntIndexToIndexMultiMap.from(byteBuffer.slice());
         } else if (type == V1DatabaseFormat.MultiMapType.LONG_ARRAY_BIT_SET_BASED.getCode()) {
             return BitSetIndexToIndexMultiMap.from(byteBuffer.slice());
+        } else if (type == V1DatabaseFormat.MultiMapType.PACKED_LIST_BASED.getCode()) {
+            return PackedIndexToIndexMultiMap.from(byteBuffer.slice());
+        } else if (type == V1DatabaseFormat.MultiMapType.HYBRID_BASED.getCode()) {
+            return HybridIndexToIndexMultiMap.from(byteBuffer.slice());
+        } else if (type == V1DatabaseFormat.MultiMapType.MIXED_BASED.getCode()) {
+            return MixedIndexToIndexMultiMap.from(byteBuffer.slice());
         } else {
             throw new UnsupportedOperationException(
                     "Unsupported IndexToIndexMultiMap type: " + type);
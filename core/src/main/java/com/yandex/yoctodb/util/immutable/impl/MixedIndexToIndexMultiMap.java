@@ -0,0 +1,307 @@
+/*
+ * (C) YANDEX LLC, 2014-2016
+ *
+ * The Source Code called "YoctoDB" available at
+ * https://github.com/yandex/yoctodb is subject to the terms of the
+ * Mozilla Public License, v. 2.0 (hereinafter referred to as the "License").
+ *
+ * A copy of the License is also available at http://mozilla.org/MPL/2.0/.
+ */
+
+package com.yandex.yoctodb.util.immutable.impl;
+
+import com.yandex.yoctodb.util.buf.Buffer;
+import com.yandex.yoctodb.util.immutable.IndexToIndexMultiMap;
+import com.yandex.yoctodb.util.immutable.IntToIntArray;
+import com.yandex.yoctodb.util.mutable.BitSet;
+import net.jcip.annotations.Immutable;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import static com.yandex.yoctodb.util.mutable.impl.MixedIndexToIndexMultiMap.BIT_SET_SET;
+import static com.yandex.yoctodb.util.mutable.impl.MixedIndexToIndexMultiMap.LIST_SET;
+
+/**
+ * {@link IndexToIndexMultiMap} reading bit sets and lists written by
+ * {@link com.yandex.yoctodb.util.mutable.impl.MixedIndexToIndexMultiMap}
+ *
+ * @author agent
+ */
+@Immutable
+public final class MixedIndexToIndexMultiMap implements IndexToIndexMultiMap {
+    private final int keysCount;
+    private final int bitSetSizeInLongs;
+    @NotNull
+    private final Buffer offsets;
+    @NotNull
+    private final Buffer elements;
+
+    @NotNull
+    public static IndexToIndexMultiMap from(
+            @NotNull
+            final Buffer buf) {
+        final int keysCount = buf.getInt();
+        final int bitSetSizeInLongs = buf.getInt();
+        final Buffer offsets = buf.slice(((long) keysCount) << 3);
+        final Buffer elements =
+                buf.slice().position(offsets.remaining()).slice();
+
+        return new MixedIndexToIndexMultiMap(
+                keysCount,
+                bitSetSizeInLongs,
+                offsets,
+                elements);
+    }
+
+    private MixedIndexToIndexMultiMap(
+            final int keysCount,
+            final int bitSetSizeInLongs,
+            @NotNull
+            final Buffer offsets,
+            @NotNull
+            final Buffer elements) {
+        assert keysCount >= 0 : "Negative keys count";
+
+        this.keysCount = keysCount;
+        this.bitSetSizeInLongs = bitSetSizeInLongs;
+        this.offsets = offsets;
+        this.elements = elements;
+    }
+
+    @Override
+    public boolean get(
+            @NotNull
+            final BitSet dest,
+            final int key) {
+        assert 0 <= key && key < keysCount;
+
+        final long start = offsets.getLong(((long) key) << 3);
+        final byte layout = elements.get(start);
+        final int size = elements.getInt(start + 1L);
+        final long from = start + 5L;
+
+        if (layout == BIT_SET_SET) {
+            return dest.or(elements, from, bitSetSizeInLongs);
+        }
+
+        assert layout == LIST_SET;
+
+        final long to = from + (((long) size) << 2);
+        for (long i = from; i < to; i += 4L)
+            dest.set(elements.getInt(i));
+
+        return size > 0;
+    }
+
+    private boolean fill(
+            @NotNull
+            final BitSet dest,
+            final int fromInclusive,
+            final int toExclusive) {
+        boolean result = false;
+        for (int key = fromInclusive; key < toExclusive; key++) {
+            result |= get(dest, key);
+        }
+
+        return result;
+    }
+
+    @Override
+    public boolean getFrom(
+            @NotNull
+            final BitSet dest,
+            final int fromInclusive) {
+        assert 0 <= fromInclusive && fromInclusive < keysCount;
+
+        return fill(dest, fromInclusive, keysCount);
+    }
+
+    @Override
+    public boolean getTo(
+            @NotNull
+            final BitSet dest,
+            final int toExclusive) {
+        assert 0 < toExclusive && toExclusive <= keysCount;
+
+        return fill(dest, 0, toExclusive);
+    }
+
+    @Override
+    public boolean getBetween(
+            @NotNull
+            final BitSet dest,
+            final int fromInclusive,
+            final int toExclusive) {
+        assert 0 <= fromInclusive &&
+               fromInclusive < toExclusive &&
+               toExclusive <= keysCount;
+
+        return fill(dest, fromInclusive, toExclusive);
+    }
+
+    @Override
+    public int getKeysCount() {
+        return keysCount;
+    }
+
+    @Override
+    public String toString() {
+        return "MixedIndexToIndexMultiMap{" +
+               "keysCount=" + keysCount +
+               '}';
+    }
+
+    @Nullable
+    private IntToIntArray getFilteredValues(
+            final int key,
+            @NotNull
+            final BitSet valueFilter) {
+        assert 0 <= key && key < keysCount;
+
+        final long start = offsets.getLong(((long) key) << 3);
+        final byte layout = elements.get(start);
+        final int size = elements.getInt(start + 1L);
+        final long from = start + 5L;
+
+        assert size > 0;
+
+        int[] values = null;
+        int count = 0;
+
+        if (layout == BIT_SET_SET) {
+            int i = 0;
+            long wordOffset = from;
+            for (int w = 0; w < bitSetSizeInLongs; w++) {
+                long word = elements.getLong(wordOffset);
+                wordOffset += 8L;
+                while (word != 0L) {
+                    final int value =
+                            (w << 6) + Long.numberOfTrailingZeros(word);
+                    word &= word - 1L;
+                    if (valueFilter.get(value)) {
+                        // Lazy allocation
+                        if (values == null) {
+                            values = new int[size - i];
+                        }
+                        values[count] = value;
+                        count++;
+                    }
+                    i++;
+                }
+            }
+        } else {
+            assert layout == LIST_SET;
+
+            long valueOffset = from;
+            for (int i = 0; i < size; i++) {
+                final int value = elements.getInt(valueOffset);
+                if (valueFilter.get(value)) {
+                    // Lazy allocation
+                    if (values == null) {
+                        values = new int[size - i];
+                    }
+                    values[count] = value;
+                    count++;
+                }
+                valueOffset += 4L;
+            }
+        }
+
+        if (values == null) {
+            return null;
+        } else {
+            return new IntToIntArray(key, values, count);
+        }
+    }
+
+    @NotNull
+    @Override
+    public Iterator<IntToIntArray> ascending(
+            @NotNull
+            final BitSet valueFilter) {
+        return new Iterator<IntToIntArray>() {
+            private int key = 0;
+            private IntToIntArray next = null;
+
+            private void advance() {
+                while (next == null && key < keysCount) {
+                    next = getFilteredValues(key++, valueFilter);
+                }
+            }
+
+            @Override
+            public boolean hasNext() {
+                if (next != null)
+                    return true;
+
+                advance();
+
+                return next != null;
+            }
+
+            @Override
+            public IntToIntArray next() {
+                if (!hasNext())
+                    throw new NoSuchElementException();
+
+                final IntToIntArray result = next;
+                next = null;
+
+                return result;
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException(
+                        "Removal not supported");
+            }
+        };
+    }
+
+    @NotNull
+    @Override
+    public Iterator<IntToIntArray> descending(
+            @NotNull
+            final BitSet valueFilter) {
+        return new Iterator<IntToIntArray>() {
+            private int key = keysCount - 1;
+            private IntToIntArray next = null;
+
+            private void advance() {
+                while (next == null && key >= 0) {
+                    next = getFilteredValues(key--, valueFilter);
+                }
+            }
+
+            @Override
+            public boolean hasNext() {
+                if (next != null)
+                    return true;
+
+                advance();
+
+                return next != null;
+            }
+
+            @Override
+            public IntToIntArray next() {
+                if (!hasNext())
+                    throw new NoSuchElementException();
+
+                final IntToIntArray result = next;
+                next = null;
+
+                return result;
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException(
+                        "Removal not supported");
+            }
+        };
+    }
+}
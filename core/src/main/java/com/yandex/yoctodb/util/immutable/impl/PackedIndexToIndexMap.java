@@ -0,0 +1,92 @@
+/*
+ * (C) YANDEX LLC, 2014-2016
+ *
+ * The Source Code called "YoctoDB" available at
+ * https://github.com/yandex/yoctodb is subject to the terms of the
+ * Mozilla Public License, v. 2.0 (hereinafter referred to as the "License").
+ *
+ * A copy of the License is also available at http://mozilla.org/MPL/2.0/.
+ */
+
+package com.yandex.yoctodb.util.immutable.impl;
+
+import com.yandex.yoctodb.util.buf.Buffer;
+import com.yandex.yoctodb.util.immutable.IndexToIndexMap;
+import net.jcip.annotations.Immutable;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * {@link IndexToIndexMap} reading bit-packed values written by
+ * {@link com.yandex.yoctodb.util.mutable.impl.PackedIndexToIndexMap}
+ *
+ * @author agent
+ */
+@Immutable
+public final class PackedIndexToIndexMap implements IndexToIndexMap {
+    @NotNull
+    private final Buffer elements;
+    private final int elementCount;
+    private final int bits;
+    private final long mask;
+
+    private PackedIndexToIndexMap(
+            final int elementCount,
+            final int bits,
+            @NotNull
+            final Buffer elements) {
+        assert elementCount >= 0 : "Negative element count";
+        assert 0 <= bits && bits < Integer.SIZE : "Wrong bits per value";
+
+        this.elementCount = elementCount;
+        this.bits = bits;
+        this.mask = (1L << bits) - 1L;
+        this.elements = elements;
+    }
+
+    @NotNull
+    public static IndexToIndexMap from(
+            @NotNull
+            final Buffer buf) {
+        final int elementsCount = buf.getInt();
+        final int bits = buf.getInt();
+        final Buffer elements = buf.slice();
+
+        return new PackedIndexToIndexMap(
+                elementsCount,
+                bits,
+                elements.slice());
+    }
+
+    @Override
+    public int get(final int key) {
+        assert 0 <= key && key < elementCount;
+
+        if (bits == 0) {
+            return 0;
+        }
+
+        final long bit = ((long) key) * bits;
+        final long word = (bit >>> 6) << 3;
+        final int shift = (int) (bit & 63);
+        long result = elements.getLong(word) >>> shift;
+        if (shift + bits > Long.SIZE) {
+            // The value continues in the next word
+            result |= elements.getLong(word + 8L) << (Long.SIZE - shift);
+        }
+
+        return (int) (result & mask);
+    }
+
+    @Override
+    public int size() {
+        return elementCount;
+    }
+
+    @Override
+    public String toString() {
+        return "PackedIndexToIndexMap{" +
+               "elementCount=" + elementCount +
+               ", bits=" + bits +
+               '}';
+    }
+}
@@ -0,0 +1,418 @@
+/*
+ * (C) YANDEX LLC, 2014-2016
+ *
+ * The Source Code called "YoctoDB" available at
+ * https://github.com/yandex/yoctodb is subject to the terms of the
+ * Mozilla Public License, v. 2.0 (hereinafter referred to as the "License").
+ *
+ * A copy of the License is also available at http://mozilla.org/MPL/2.0/.
+ */
+
+package com.yandex.yoctodb.util.immutable.impl;
+
+import com.yandex.yoctodb.util.buf.Buffer;
+import com.yandex.yoctodb.util.immutable.IndexToIndexMultiMap;
+import com.yandex.yoctodb.util.immutable.IntToIntArray;
+import com.yandex.yoctodb.util.mutable.BitSet;
+import net.jcip.annotations.Immutable;
+import net.jcip.annotations.NotThreadSafe;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * {@link IndexToIndexMultiMap} reading delta-encoded and bit-packed sets
+ * written by
+ * {@link com.yandex.yoctodb.util.mutable.impl.PackedIndexToIndexMultiMap}
+ *
+ * @author agent
+ */
+@Immutable
+public final class PackedIndexToIndexMultiMap implements IndexToIndexMultiMap {
+    private final int keysCount;
+    private final int blockSize;
+    @NotNull
+    private final Buffer offsets;
+    @NotNull
+    private final Buffer elements;
+
+    @NotNull
+    public static IndexToIndexMultiMap from(
+            @NotNull
+            final Buffer buf) {
+        final int keysCount = buf.getInt();
+        final int blockSize = buf.getInt();
+        final Buffer offsets = buf.slice(((long) keysCount) << 3);
+        final Buffer elements =
+                buf.slice().position(offsets.remaining()).slice();
+
+        return new PackedIndexToIndexMultiMap(
+                keysCount,
+                blockSize,
+                offsets,
+                elements);
+    }
+
+    private PackedIndexToIndexMultiMap(
+            final int keysCount,
+            final int blockSize,
+            @NotNull
+            final Buffer offsets,
+            @NotNull
+            final Buffer elements) {
+        assert keysCount >= 0 : "Negative keys count";
+        assert blockSize > 0 : "Nonpositive block size";
+
+        this.keysCount = keysCount;
+        this.blockSize = blockSize;
+        this.offsets = offsets;
+        this.elements = elements;
+    }
+
+    /**
+     * Sequential decoder of a single packed set
+     */
+    @NotThreadSafe
+    static final class Decoder {
+        @NotNull
+        private final Buffer elements;
+        private final int blockSize;
+        private final int size;
+        private long position;
+        private int remaining;
+        private int blockRemaining;
+        private int bits;
+        private int value;
+        private long word;
+        private int available;
+
+        Decoder(
+                @NotNull
+                final Buffer elements,
+                final long start,
+                final int blockSize) {
+            this.elements = elements;
+            this.blockSize = blockSize;
+            this.size = elements.getInt(start);
+            this.position = start + 4L;
+            this.remaining = size;
+            this.blockRemaining = 0;
+        }
+
+        int size() {
+            return size;
+        }
+
+        boolean hasNext() {
+            return remaining > 0;
+        }
+
+        int next() {
+            assert remaining > 0;
+
+            remaining--;
+
+            if (blockRemaining == 0) {
+                // Block header
+                value = elements.getInt(position);
+                bits = elements.get(position + 4L);
+                position += 5L;
+                blockRemaining = Math.min(blockSize - 1, remaining);
+                word = 0L;
+                available = 0;
+
+                return value;
+            }
+
+            blockRemaining--;
+
+            if (bits == 0) {
+                return ++value;
+            }
+
+            final int gap;
+            if (available >= bits) {
+                gap = (int) (word >>> (Long.SIZE - bits));
+                word <<= bits;
+                available -= bits;
+            } else {
+                // The gap continues in the next word
+                final long next = elements.getLong(position);
+                position += 8L;
+                final int needed = bits - available;
+                gap = (int) ((word >>> (Long.SIZE - bits)) |
+                             (next >>> (Long.SIZE - needed)));
+                word = next << needed;
+                available = Long.SIZE - needed;
+            }
+
+            value += gap + 1;
+
+            return value;
+        }
+    }
+
+    /**
+     * Sets all the values of the packed set decoding a block at a time
+     * without allocation
+     *
+     * @param dest      destination
+     * @param elements  sets
+     * @param start     set offset
+     * @param blockSize values per block
+     * @return whether the set is not empty
+     */
+    static boolean get(
+            @NotNull
+            final BitSet dest,
+            @NotNull
+            final Buffer elements,
+            final long start,
+            final int blockSize) {
+        final int size = elements.getInt(start);
+        long position = start + 4L;
+        int remaining = size;
+        while (remaining > 0) {
+            // Block header
+            int value = elements.getInt(position);
+            final int bits = elements.get(position + 4L);
+            position += 5L;
+            dest.set(value);
+
+            final int gaps = Math.min(blockSize, remaining) - 1;
+            remaining -= gaps + 1;
+
+            if (bits == 0) {
+                for (int i = 0; i < gaps; i++) {
+                    dest.set(++value);
+                }
+                continue;
+            }
+
+            final int shift = Long.SIZE - bits;
+            long word = 0L;
+            int available = 0;
+            for (int i = 0; i < gaps; i++) {
+                final int gap;
+                if (available >= bits) {
+                    gap = (int) (word >>> shift);
+                    word <<= bits;
+                    available -= bits;
+                } else {
+                    // The gap continues in the next word
+                    final long next = elements.getLong(position);
+                    position += 8L;
+                    final int needed = bits - available;
+                    gap = (int) ((word >>> shift) |
+                                 (next >>> (Long.SIZE - needed)));
+                    word = next << needed;
+                    available = Long.SIZE - needed;
+                }
+                value += gap + 1;
+                dest.set(value);
+            }
+        }
+
+        return size > 0;
+    }
+
+    @Override
+    public boolean get(
+            @NotNull
+            final BitSet dest,
+            final int key) {
+        assert 0 <= key && key < keysCount;
+
+        return get(
+                dest,
+                elements,
+                offsets.getLong(((long) key) << 3),
+                blockSize);
+    }
+
+    private boolean fill(
+            @NotNull
+            final BitSet dest,
+            final int fromInclusive,
+            final int toExclusive) {
+        boolean result = false;
+        for (int key = fromInclusive; key < toExclusive; key++) {
+            result |= get(dest, key);
+        }
+
+        return result;
+    }
+
+    @Override
+    public boolean getFrom(
+            @NotNull
+            final BitSet dest,
+            final int fromInclusive) {
+        assert 0 <= fromInclusive && fromInclusive < keysCount;
+
+        return fill(dest, fromInclusive, keysCount);
+    }
+
+    @Override
+    public boolean getTo(
+            @NotNull
+            final BitSet dest,
+            final int toExclusive) {
+        assert 0 < toExclusive && toExclusive <= keysCount;
+
+        return fill(dest, 0, toExclusive);
+    }
+
+    @Override
+    public boolean getBetween(
+            @NotNull
+            final BitSet dest,
+            final int fromInclusive,
+            final int toExclusive) {
+        assert 0 <= fromInclusive &&
+               fromInclusive < toExclusive &&
+               toExclusive <= keysCount;
+
+        return fill(dest, fromInclusive, toExclusive);
+    }
+
+    @Override
+    public int getKeysCount() {
+        return keysCount;
+    }
+
+    @Override
+    public String toString() {
+        return "PackedIndexToIndexMultiMap{" +
+               "keysCount=" + keysCount +
+               ", blockSize=" + blockSize +
+               '}';
+    }
+
+    @Nullable
+    private IntToIntArray getFilteredValues(
+            final int key,
+            @NotNull
+            final BitSet valueFilter) {
+        assert 0 <= key && key < keysCount;
+
+        final Decoder decoder =
+                new Decoder(
+                        elements,
+                        offsets.getLong(((long) key) << 3),
+                        blockSize);
+
+        assert decoder.size() > 0;
+
+        int[] values = null;
+        int count = 0;
+
+        for (int i = 0; decoder.hasNext(); i++) {
+            final int value = decoder.next();
+            if (valueFilter.get(value)) {
+                // Lazy allocation
+                if (values == null) {
+                    values = new int[decoder.size() - i];
+                }
+                values[count] = value;
+                count++;
+            }
+        }
+
+        if (values == null) {
+            return null;
+        } else {
+            return new IntToIntArray(key, values, count);
+        }
+    }
+
+    @NotNull
+    @Override
+    public Iterator<IntToIntArray> ascending(
+            @NotNull
+            final BitSet valueFilter) {
+        return new Iterator<IntToIntArray>() {
+            private int key = 0;
+            private IntToIntArray next = null;
+
+            private void advance() {
+                while (next == null && key < keysCount) {
+                    next = getFilteredValues(key++, valueFilter);
+                }
+            }
+
+            @Override
+            public boolean hasNext() {
+                if (next != null)
+                    return true;
+
+                advance();
+
+                return next != null;
+            }
+
+            @Override
+            public IntToIntArray next() {
+                if (!hasNext())
+                    throw new NoSuchElementException();
+
+                final IntToIntArray result = next;
+                next = null;
+
+                return result;
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException(
+                        "Removal not supported");
+            }
+        };
+    }
+
+    @NotNull
+    @Override
+    public Iterator<IntToIntArray> descending(
+            @NotNull
+            final BitSet valueFilter) {
+        return new Iterator<IntToIntArray>() {
+            private int key = keysCount - 1;
+            private IntToIntArray next = null;
+
+            private void advance() {
+                while (next == null && key >= 0) {
+                    next = getFilteredValues(key--, valueFilter);
+                }
+            }
+
+            @Override
+            public boolean hasNext() {
+                if (next != null)
+                    return true;
+
+                advance();
+
+                return next != null;
+            }
+
+            @Override
+            public IntToIntArray next() {
+                if (!hasNext())
+                    throw new NoSuchElementException();
+
+                final IntToIntArray result = next;
+                next = null;
+
+                return result;
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException(
+                        "Removal not supported");
+            }
+        };
+    }
+}
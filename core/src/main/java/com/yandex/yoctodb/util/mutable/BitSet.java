@@ -111,6 +111,24 @@ public interface BitSet {
             long startPosition,
             int bitSetSizeInLongs);
 
+    /**
+     * Modify a range of {@code long} words of current bit set by applying
+     * bitwise {@code OR}. Words beyond current bit set must be zero.
+     *
+     * @param longArrayInByteBuffer source words
+     * @param startPosition         position to start reading from
+     * @param fromWord              first word of current bit set to modify
+     * @param sizeInLongs           source size in {@code long}s
+     *
+     * @return whether there are nonzero bits in the modified words
+     */
+    boolean or(
+            @NotNull
+            Buffer longArrayInByteBuffer,
+            long startPosition,
+            int fromWord,
+            int sizeInLongs);
+
     /**
      * Checks whether there are nonzero bits in current bit set
      *
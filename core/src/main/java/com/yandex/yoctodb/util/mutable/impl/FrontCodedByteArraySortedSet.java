@@ -0,0 +1,190 @@
+/*
+ * (C) YANDEX LLC, 2014-2016
+ *
+ * The Source Code called "YoctoDB" available at
+ * https://github.com/yandex/yoctodb is subject to the terms of the
+ * Mozilla Public License, v. 2.0 (hereinafter referred to as the "License").
+ *
+ * A copy of the License is also available at http://mozilla.org/MPL/2.0/.
+ */
+
+package com.yandex.yoctodb.util.mutable.impl;
+
+import com.google.common.primitives.Ints;
+import com.google.common.primitives.Longs;
+import com.yandex.yoctodb.util.UnsignedByteArray;
+import com.yandex.yoctodb.util.buf.Buffer;
+import com.yandex.yoctodb.util.mutable.ByteArraySortedSet;
+import net.jcip.annotations.NotThreadSafe;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.SortedSet;
+
+/**
+ * {@link ByteArraySortedSet} with variable sized front-coded elements
+ *
+ * Each element is stored as the length of the prefix shared with the
+ * previous element and the rest bytes. Every {@link #RESTART_INTERVAL}th
+ * element (a restart point) is stored in full, so lookups binary search
+ * restart points and scan a single block.
+ *
+ * Format:
+ *
+ * <pre>
+ * {@code
+ * element count (int)
+ * restart interval (int)
+ * restart offsets
+ *   offset1 (long)
+ *   offset2 (long)
+ *   ...
+ * elements
+ *   element1
+ *     shared prefix length (varint)
+ *     suffix length (varint)
+ *     suffix (byte) * suffix length
+ *   element2
+ *   ...
+ * }
+ * </pre>
+ *
+ * Varints are unsigned LEB128: 7 bits per byte starting from the least
+ * significant ones with the highest bit set in all bytes except the last.
+ *
+ * @author agent
+ */
+@NotThreadSafe
+public final class FrontCodedByteArraySortedSet
+        extends AbstractByteArraySortedSet {
+    public static final int RESTART_INTERVAL = 16;
+
+    @NotNull
+    private final int[] shared;
+    private final long sizeInBytes;
+
+    public FrontCodedByteArraySortedSet(
+            @NotNull
+            final SortedSet<UnsignedByteArray> elements) {
+        super(elements);
+
+        this.shared = new int[elements.size()];
+        long elementsSize = 0L;
+        Buffer previous = null;
+        int i = 0;
+        for (UnsignedByteArray e : elements) {
+            final Buffer current = e.toByteBuffer();
+            final int prefix =
+                    i % RESTART_INTERVAL == 0 ?
+                            0 :
+                            sharedPrefix(previous, current);
+            shared[i] = prefix;
+            elementsSize += elementSize(prefix, e.length());
+            previous = current;
+            i++;
+        }
+
+        this.sizeInBytes =
+                4L + // Element count
+                4L + // Restart interval
+                8L * restarts(elements.size()) + // Restart offsets
+                elementsSize; // Elements
+    }
+
+    private static int restarts(final int size) {
+        return (size + RESTART_INTERVAL - 1) / RESTART_INTERVAL;
+    }
+
+    private static int sharedPrefix(
+            @NotNull
+            final Buffer left,
+            @NotNull
+            final Buffer right) {
+        final long length = Math.min(left.remaining(), right.remaining());
+        int result = 0;
+        while (result < length && left.get(result) == right.get(result)) {
+            result++;
+        }
+
+        return result;
+    }
+
+    static int varIntSize(final int value) {
+        assert value >= 0;
+
+        int result = 1;
+        for (int rest = value >>> 7; rest != 0; rest >>>= 7) {
+            result++;
+        }
+
+        return result;
+    }
+
+    static void writeVarInt(
+            @NotNull
+            final OutputStream os,
+            final int value) throws IOException {
+        assert value >= 0;
+
+        int rest = value;
+        while ((rest & ~0x7f) != 0) {
+            os.write((rest & 0x7f) | 0x80);
+            rest >>>= 7;
+        }
+        os.write(rest);
+    }
+
+    private static long elementSize(
+            final int prefix,
+            final int length) {
+        return varIntSize(prefix) +
+               varIntSize(length - prefix) +
+               (length - prefix);
+    }
+
+    @Override
+    public long getSizeInBytes() {
+        return sizeInBytes;
+    }
+
+    @Override
+    public void writeTo(
+            @NotNull
+            final OutputStream os) throws IOException {
+        // Element count
+        os.write(Ints.toByteArray(elements.size()));
+
+        // Restart interval
+        os.write(Ints.toByteArray(RESTART_INTERVAL));
+
+        // Restart offsets
+        long elementOffset = 0L;
+        int i = 0;
+        for (UnsignedByteArray e : elements) {
+            if (i % RESTART_INTERVAL == 0) {
+                os.write(Longs.toByteArray(elementOffset));
+            }
+            elementOffset += elementSize(shared[i], e.length());
+            i++;
+        }
+
+        // Elements
+        i = 0;
+        for (UnsignedByteArray e : elements) {
+            final int prefix = shared[i];
+            final int suffix = e.length() - prefix;
+            writeVarInt(os, prefix);
+            writeVarInt(os, suffix);
+            os.write(e.toByteBuffer().toByteArray(), prefix, suffix);
+            i++;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "FrontCodedByteArraySortedSet{" +
+               "elementsCount=" + elements.size() +
+               '}';
+    }
+}
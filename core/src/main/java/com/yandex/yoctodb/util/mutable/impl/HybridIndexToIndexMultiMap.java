@@ -0,0 +1,381 @@
+/*
+ * (C) YANDEX LLC, 2014-2016
+ *
+ * The Source Code called "YoctoDB" available at
+ * https://github.com/yandex/yoctodb is subject to the terms of the
+ * Mozilla Public License, v. 2.0 (hereinafter referred to as the "License").
+ *
+ * A copy of the License is also available at http://mozilla.org/MPL/2.0/.
+ */
+
+package com.yandex.yoctodb.util.mutable.impl;
+
+import com.google.common.primitives.Ints;
+import com.google.common.primitives.Longs;
+import com.yandex.yoctodb.util.mutable.IndexToIndexMultiMap;
+import com.yandex.yoctodb.v1.V1DatabaseFormat;
+import net.jcip.annotations.NotThreadSafe;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Collection;
+import java.util.Iterator;
+
+/**
+ * {@link IndexToIndexMultiMap} implementation splitting each set of sorted
+ * {@link Integer}s into chunks of {@link #CHUNK_SIZE} consecutive values
+ * (like Roaring bitmaps do)
+ *
+ * Each chunk is stored in the most compact container chosen at build time:
+ * <ul>
+ * <li>{@link #ARRAY_CONTAINER} &mdash; sorted lower 16 bits of the values</li>
+ * <li>{@link #BITMAP_CONTAINER} &mdash; bit set of {@link #CHUNK_SIZE}
+ * bits</li>
+ * <li>{@link #RUN_CONTAINER} &mdash; runs of consecutive values</li>
+ * </ul>
+ *
+ * Format:
+ *
+ * <pre>
+ * {@code
+ * type (int)
+ * keys count (int)
+ * offsets
+ *   offset1 (long)
+ *   offset2 (long)
+ *   ...
+ * sets
+ *   set1
+ *     cardinality (int)
+ *     containers count (int)
+ *     container1
+ *       chunk (char)
+ *       container type (byte)
+ *       count - 1 (char)
+ *       array container: values (char) * count
+ *       bitmap container: words (long) * 1024, count is cardinality
+ *       run container: (start (char), length - 1 (char)) * count
+ *     container2
+ *     ...
+ *   set2
+ *   ...
+ * }
+ * </pre>
+ *
+ * @author agent
+ */
+@NotThreadSafe
+public final class HybridIndexToIndexMultiMap implements IndexToIndexMultiMap {
+    public static final int CHUNK_BITS = 16;
+    public static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    public static final int BITMAP_WORDS = CHUNK_SIZE / Long.SIZE;
+
+    public static final byte ARRAY_CONTAINER = 0;
+    public static final byte BITMAP_CONTAINER = 1;
+    public static final byte RUN_CONTAINER = 2;
+
+    // Chunk, container type and count
+    private static final long CONTAINER_HEADER_SIZE = 2L + 1L + 2L;
+
+    private final Collection<? extends Collection<Integer>> map;
+    // Cached for the offsets
+    private final long[] setSizes;
+    private final long sizeInBytes;
+
+    public HybridIndexToIndexMultiMap(
+            @NotNull
+            final Collection<? extends Collection<Integer>> map) {
+        this(map, setSizes(map));
+    }
+
+    /**
+     * @param map      sorted unique values per key
+     * @param setSizes precalculated {@link #setSizeInBytes(int[], int)} of
+     *                 the sets
+     */
+    HybridIndexToIndexMultiMap(
+            @NotNull
+            final Collection<? extends Collection<Integer>> map,
+            @NotNull
+            final long[] setSizes) {
+        assert setSizes.length == map.size();
+
+        this.map = map;
+        this.setSizes = setSizes;
+        long sizeInBytes =
+                4L + // type
+                4L + // keys count
+                8L * map.size(); // offsets
+        for (long setSize : setSizes) {
+            sizeInBytes += setSize;
+        }
+        this.sizeInBytes = sizeInBytes;
+    }
+
+    private static long[] setSizes(
+            @NotNull
+            final Collection<? extends Collection<Integer>> map) {
+        final long[] result = new long[map.size()];
+        int i = 0;
+        for (Collection<Integer> ids : map) {
+            result[i++] = setSizeInBytes(ids);
+        }
+
+        return result;
+    }
+
+    private static int runs(
+            @NotNull
+            final int[] lows,
+            final int count) {
+        int runs = 0;
+        for (int i = 0; i < count; i++) {
+            if (i == 0 || lows[i] != lows[i - 1] + 1) {
+                runs++;
+            }
+        }
+
+        return runs;
+    }
+
+    private static byte containerType(
+            final int count,
+            final int runs) {
+        final long array = 2L * count;
+        final long bitmap = 8L * BITMAP_WORDS;
+        final long run = 4L * runs;
+        if (run < Math.min(array, bitmap)) {
+            return RUN_CONTAINER;
+        } else if (array <= bitmap) {
+            return ARRAY_CONTAINER;
+        } else {
+            return BITMAP_CONTAINER;
+        }
+    }
+
+    private static long containerSize(
+            final int count,
+            final int runs) {
+        final long size;
+        switch (containerType(count, runs)) {
+            case ARRAY_CONTAINER:
+                size = 2L * count;
+                break;
+            case BITMAP_CONTAINER:
+                size = 8L * BITMAP_WORDS;
+                break;
+            default:
+                size = 4L * runs;
+                break;
+        }
+
+        return CONTAINER_HEADER_SIZE + size;
+    }
+
+    private static void writeChar(
+            @NotNull
+            final OutputStream os,
+            final int value) throws IOException {
+        assert 0 <= value && value <= Character.MAX_VALUE;
+
+        os.write(value >>> 8);
+        os.write(value);
+    }
+
+    private static void container(
+            @NotNull
+            final OutputStream os,
+            final int chunk,
+            @NotNull
+            final int[] lows,
+            final int count) throws IOException {
+        final int runs = runs(lows, count);
+        final byte type = containerType(count, runs);
+
+        writeChar(os, chunk);
+        os.write(type);
+        writeChar(os, (type == RUN_CONTAINER ? runs : count) - 1);
+
+        switch (type) {
+            case ARRAY_CONTAINER:
+                for (int i = 0; i < count; i++) {
+                    writeChar(os, lows[i]);
+                }
+                break;
+            case BITMAP_CONTAINER:
+                final long[] words = new long[BITMAP_WORDS];
+                for (int i = 0; i < count; i++) {
+                    words[lows[i] >>> 6] |= 1L << lows[i];
+                }
+                for (long word : words) {
+                    os.write(Longs.toByteArray(word));
+                }
+                break;
+            case RUN_CONTAINER:
+                int start = 0;
+                for (int i = 1; i <= count; i++) {
+                    if (i == count || lows[i] != lows[i - 1] + 1) {
+                        writeChar(os, lows[start]);
+                        writeChar(os, i - 1 - start);
+                        start = i;
+                    }
+                }
+                break;
+        }
+    }
+
+    /**
+     * Splits the set into chunks and writes them
+     */
+    private static void containers(
+            @NotNull
+            final OutputStream os,
+            @NotNull
+            final Collection<Integer> ids) throws IOException {
+        final int[] lows = new int[CHUNK_SIZE];
+        int count = 0;
+        int chunk = -1;
+        int previous = -1;
+        final Iterator<Integer> iterator = ids.iterator();
+        while (iterator.hasNext()) {
+            final int id = iterator.next();
+            assert id >= 0;
+            assert previous < id : "Values must be sorted and unique";
+            previous = id;
+
+            final int idChunk = id >>> CHUNK_BITS;
+            if (idChunk != chunk) {
+                if (count > 0) {
+                    container(os, chunk, lows, count);
+                }
+                chunk = idChunk;
+                count = 0;
+            }
+            lows[count++] = id & (CHUNK_SIZE - 1);
+        }
+
+        if (count > 0) {
+            container(os, chunk, lows, count);
+        }
+    }
+
+    private static int containersCount(
+            @NotNull
+            final Collection<Integer> ids) {
+        int result = 0;
+        int chunk = -1;
+        for (int id : ids) {
+            final int idChunk = id >>> CHUNK_BITS;
+            if (idChunk != chunk) {
+                chunk = idChunk;
+                result++;
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * @param ids sorted unique values
+     * @return size of the set in bytes
+     */
+    static long setSizeInBytes(
+            @NotNull
+            final Collection<Integer> ids) {
+        final int[] values = new int[ids.size()];
+        int count = 0;
+        for (int id : ids) {
+            values[count++] = id;
+        }
+
+        return setSizeInBytes(values, count);
+    }
+
+    /**
+     * @param ids   sorted unique values
+     * @param count count of values
+     * @return size of the set in bytes
+     */
+    static long setSizeInBytes(
+            @NotNull
+            final int[] ids,
+            final int count) {
+        assert IndexToIndexMultiMapFactory.isSortedAndUnique(ids, count) :
+                "Values must be sorted and unique";
+
+        long size = 4L + // cardinality
+                    4L; // containers count
+        int i = 0;
+        while (i < count) {
+            final int chunk = ids[i] >>> CHUNK_BITS;
+            int chunkCount = 0;
+            int runs = 0;
+            int previous = -2;
+            while (i < count && ids[i] >>> CHUNK_BITS == chunk) {
+                if (ids[i] != previous + 1) {
+                    runs++;
+                }
+                previous = ids[i];
+                chunkCount++;
+                i++;
+            }
+            size += containerSize(chunkCount, runs);
+        }
+
+        return size;
+    }
+
+    /**
+     * Writes the set
+     *
+     * @param os  destination
+     * @param ids sorted unique values
+     */
+    static void writeSet(
+            @NotNull
+            final OutputStream os,
+            @NotNull
+            final Collection<Integer> ids) throws IOException {
+        os.write(Ints.toByteArray(ids.size()));
+        os.write(Ints.toByteArray(containersCount(ids)));
+        containers(os, ids);
+    }
+
+    @Override
+    public long getSizeInBytes() {
+        return sizeInBytes;
+    }
+
+    @Override
+    public void writeTo(
+            @NotNull
+            final OutputStream os) throws IOException {
+        // Type
+        os.write(
+                Ints.toByteArray(
+                        V1DatabaseFormat.MultiMapType.HYBRID_BASED.getCode()));
+
+        // Keys count
+        os.write(Ints.toByteArray(map.size()));
+
+        // Offsets
+        long offset = 0L;
+        for (long setSize : setSizes) {
+            os.write(Longs.toByteArray(offset));
+            offset += setSize;
+        }
+
+        // Sets
+        for (Collection<Integer> ids : map) {
+            writeSet(os, ids);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "HybridIndexToIndexMultiMap{" +
+               "keys=" + map.size() +
+               '}';
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ * (C) YANDEX LLC, 2014-2016
+ *
+ * The Source Code called "YoctoDB" available at
+ * https://github.com/yandex/yoctodb is subject to the terms of the
+ * Mozilla Public License, v. 2.0 (hereinafter referred to as the "License").
+ *
+ * A copy of the License is also available at http://mozilla.org/MPL/2.0/.
+ */
+
+package com.yandex.yoctodb.util.mutable.impl;
+
+import com.yandex.yoctodb.util.mutable.IndexToIndexMap;
+
+/**
+ * Chooses the optimal {@link IndexToIndexMap} implementation
+ *
+ * @author agent
+ */
+public final class IndexToIndexMapFactory {
+
+    private IndexToIndexMapFactory() {
+        // Can't instantiate
+    }
+
+    // For test coverage
+    static {
+        new IndexToIndexMapFactory();
+    }
+
+    /**
+     * @param elementsCount count of keys to be put
+     * @param valuesCount   count of distinct values
+     * @return empty map to put {@code elementsCount} keys with values from
+     * {@code 0} to {@code valuesCount - 1}
+     */
+    public static IndexToIndexMap buildIndexToIndexMap(
+            final int elementsCount,
+            final int valuesCount) {
+        if (elementsCount < 0)
+            throw new IllegalArgumentException("Negative elements count");
+        if (valuesCount < 0)
+            throw new IllegalArgumentException("Negative values count");
+
+        // Packed values are read with a couple of shifts, so they are used
+        // unless they don't save anything
+        if (PackedIndexToIndexMap.getSizeInBytes(elementsCount, valuesCount) <
+            IntIndexToIndexMap.getSizeInBytes(elementsCount)) {
+            return new PackedIndexToIndexMap(valuesCount);
+        } else {
+            return new IntIndexToIndexMap();
+        }
+    }
+}
@@ -11,6 +11,7 @@
 package com.yandex.yoctodb.util.mutable.impl;
 
 import com.yandex.yoctodb.util.mutable.IndexToIndexMultiMap;
+import org.jetbrains.annotations.NotNull;
 
 import java.util.Collection;
 
@@ -40,14 +41,74 @@ public final class IndexToIndexMultiMapFactory {
         if (documentsCount <= 0)
             throw new IllegalArgumentException("Nonpositive documents count");
 
-        if (((long) uniqueValuesCount) * documentsCount / 64L <
-            documentsCount * 4L) {
-            // BitSet might be more effective
-            return new BitSetIndexToIndexMultiMap(
-                    valueToDocuments,
-                    documentsCount);
-        } else {
-            return new IntIndexToIndexMultiMap(valueToDocuments);
+        // Bit sets are the fastest to read, so they win ties
+        IndexToIndexMultiMap result =
+                new BitSetIndexToIndexMultiMap(
+                        valueToDocuments,
+                        documentsCount);
+
+        // Hybrid and packed sizes depend on the values, so they are
+        // calculated in a single pass over each set and cached
+        final long[] hybridSetSizes = new long[uniqueValuesCount];
+        final long[] packedSetSizes = new long[uniqueValuesCount];
+        int[] values = new int[0];
+        int i = 0;
+        for (Collection<Integer> ids : valueToDocuments) {
+            final int count = ids.size();
+            if (values.length < count) {
+                values = new int[Math.max(count, 2 * values.length)];
+            }
+            int j = 0;
+            for (int id : ids) {
+                values[j++] = id;
+            }
+
+            hybridSetSizes[i] =
+                    HybridIndexToIndexMultiMap.setSizeInBytes(values, count);
+            packedSetSizes[i] =
+                    PackedIndexToIndexMultiMap.setSizeInBytes(values, count);
+            i++;
+        }
+
+        // Choosing the most compact layout including the one chosen per
+        // value: dense sets as bit sets and sparse sets as lists
+        for (IndexToIndexMultiMap candidate :
+                new IndexToIndexMultiMap[]{
+                        new IntIndexToIndexMultiMap(valueToDocuments),
+                        new MixedIndexToIndexMultiMap(
+                                valueToDocuments,
+                                documentsCount),
+                        new HybridIndexToIndexMultiMap(
+                                valueToDocuments,
+                                hybridSetSizes)}) {
+            if (candidate.getSizeInBytes() < result.getSizeInBytes()) {
+                result = candidate;
+            }
+        }
+
+        // Packed sets are slower to decode in bulk, e.g. for ranges, so
+        // they must be at least a quarter more compact
+        final IndexToIndexMultiMap packed =
+                new PackedIndexToIndexMultiMap(
+                        valueToDocuments,
+                        packedSetSizes);
+        if (4L * packed.getSizeInBytes() <= 3L * result.getSizeInBytes()) {
+            result = packed;
         }
+
+        return result;
+    }
+
+    static boolean isSortedAndUnique(
+            @NotNull
+            final int[] values,
+            final int count) {
+        for (int i = 0; i < count; i++) {
+            if (values[i] < 0 || (i > 0 && values[i - 1] >= values[i])) {
+                return false;
+            }
+        }
+
+        return true;
     }
 }
@@ -45,9 +45,17 @@ public final class IntIndexToIndexMap implements IndexToIndexMap {
                     ">");
     }
 
+    /**
+     * @param elementsCount count of keys
+     * @return size of the map in bytes
+     */
+    static long getSizeInBytes(final int elementsCount) {
+        return 4L + 4L * elementsCount;
+    }
+
     @Override
     public long getSizeInBytes() {
-        return 4L + 4L * elements.size();
+        return getSizeInBytes(elements.size());
     }
 
     @Override
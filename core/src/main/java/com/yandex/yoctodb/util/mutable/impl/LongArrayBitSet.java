@@ -223,6 +223,34 @@ public final class LongArrayBitSet implements ArrayBitSet {
         return notEmpty;
     }
 
+    @Override
+    public boolean or(
+            @NotNull
+            final Buffer longArrayInByteBuffer,
+            final long startPosition,
+            final int fromWord,
+            final int sizeInLongs) {
+        assert 0 <= fromWord && fromWord < usedWords;
+        assert sizeInLongs >= 0;
+
+        boolean notEmpty = false;
+        long currentPosition = startPosition;
+        final int toWord = Math.min(usedWords, fromWord + sizeInLongs);
+
+        for (int i = fromWord; i < toWord; i++) {
+            final long currentWord =
+                    longArrayInByteBuffer.getLong(currentPosition);
+            currentPosition += Longs.BYTES;
+            final long word = words[i] | currentWord;
+            words[i] = word;
+            if (word != 0) {
+                notEmpty = true;
+            }
+        }
+
+        return notEmpty;
+    }
+
     @Override
     public boolean isEmpty() {
         for (long w : words)
@@ -0,0 +1,181 @@
+/*
+ * (C) YANDEX LLC, 2014-2016
+ *
+ * The Source Code called "YoctoDB" available at
+ * https://github.com/yandex/yoctodb is subject to the terms of the
+ * Mozilla Public License, v. 2.0 (hereinafter referred to as the "License").
+ *
+ * A copy of the License is also available at http://mozilla.org/MPL/2.0/.
+ */
+
+package com.yandex.yoctodb.util.mutable.impl;
+
+import com.google.common.primitives.Ints;
+import com.google.common.primitives.Longs;
+import com.yandex.yoctodb.util.mutable.ArrayBitSet;
+import com.yandex.yoctodb.util.mutable.IndexToIndexMultiMap;
+import com.yandex.yoctodb.v1.V1DatabaseFormat;
+import net.jcip.annotations.NotThreadSafe;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Collection;
+
+/**
+ * {@link IndexToIndexMultiMap} implementation choosing layout per key:
+ * dense sets are stored as {@link LongArrayBitSet}s and sparse sets are
+ * stored as lists of {@link Integer}s
+ *
+ * A set is dense if its bit set is not larger than its list.
+ *
+ * Format:
+ *
+ * <pre>
+ * {@code
+ * type (int)
+ * keys count (int)
+ * bit set size in longs (int)
+ * offsets
+ *   offset1 (long)
+ *   offset2 (long)
+ *   ...
+ * sets
+ *   set1
+ *     layout (byte)
+ *     size (int)
+ *     list: values (int) * size
+ *     bit set: words (long) * bit set size in longs
+ *   set2
+ *   ...
+ * }
+ * </pre>
+ *
+ * @author agent
+ */
+@NotThreadSafe
+public final class MixedIndexToIndexMultiMap implements IndexToIndexMultiMap {
+    public static final byte LIST_SET = 0;
+    public static final byte BIT_SET_SET = 1;
+
+    // Layout and size
+    private static final long SET_HEADER_SIZE = 1L + 4L;
+
+    private final int documentsCount;
+    private final int bitSetSizeInLongs;
+    @NotNull
+    private final Collection<? extends Collection<Integer>> map;
+    private final int bitSetsCount;
+    private final long sizeInBytes;
+
+    public MixedIndexToIndexMultiMap(
+            @NotNull
+            final Collection<? extends Collection<Integer>> map,
+            final int documentsCount) {
+        if (documentsCount < 0)
+            throw new IllegalArgumentException("Negative document count");
+
+        this.map = map;
+        this.documentsCount = documentsCount;
+        this.bitSetSizeInLongs = LongArrayBitSet.arraySize(documentsCount);
+
+        int bitSetsCount = 0;
+        long sizeInBytes =
+                4L + // Type
+                4L + // Keys count
+                4L + // Bit set size in longs
+                8L * map.size(); // Offsets
+        for (Collection<Integer> ids : map) {
+            if (isDense(ids)) {
+                bitSetsCount++;
+            }
+            sizeInBytes += setSizeInBytes(ids);
+        }
+        this.bitSetsCount = bitSetsCount;
+        this.sizeInBytes = sizeInBytes;
+    }
+
+    private boolean isDense(
+            @NotNull
+            final Collection<Integer> ids) {
+        return 8L * bitSetSizeInLongs <= 4L * ids.size();
+    }
+
+    private long setSizeInBytes(
+            @NotNull
+            final Collection<Integer> ids) {
+        if (isDense(ids)) {
+            return SET_HEADER_SIZE + 8L * bitSetSizeInLongs;
+        } else {
+            return SET_HEADER_SIZE + 4L * ids.size();
+        }
+    }
+
+    /**
+     * @return count of sets stored as bit sets
+     */
+    int getBitSetsCount() {
+        return bitSetsCount;
+    }
+
+    @Override
+    public long getSizeInBytes() {
+        return sizeInBytes;
+    }
+
+    @Override
+    public void writeTo(
+            @NotNull
+            final OutputStream os) throws IOException {
+        // Type
+        os.write(
+                Ints.toByteArray(
+                        V1DatabaseFormat.MultiMapType.MIXED_BASED.getCode()));
+
+        // Keys count
+        os.write(Ints.toByteArray(map.size()));
+
+        // Count longs in bit-set
+        os.write(Ints.toByteArray(bitSetSizeInLongs));
+
+        // Offsets
+        long offset = 0L;
+        for (Collection<Integer> ids : map) {
+            os.write(Longs.toByteArray(offset));
+            offset += setSizeInBytes(ids);
+        }
+
+        // Sets
+        final ArrayBitSet docs = LongArrayBitSet.zero(documentsCount);
+        for (Collection<Integer> ids : map) {
+            if (isDense(ids)) {
+                os.write(BIT_SET_SET);
+                os.write(Ints.toByteArray(ids.size()));
+                docs.clear();
+                for (int docId : ids) {
+                    assert 0 <= docId && docId < documentsCount;
+                    docs.set(docId);
+                }
+                for (long currentWord : docs.toArray()) {
+                    os.write(Longs.toByteArray(currentWord));
+                }
+            } else {
+                os.write(LIST_SET);
+                os.write(Ints.toByteArray(ids.size()));
+                for (int docId : ids) {
+                    assert 0 <= docId && docId < documentsCount;
+                    os.write(Ints.toByteArray(docId));
+                }
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "MixedIndexToIndexMultiMap{" +
+               "values=" + map.size() +
+               ", bitSets=" + bitSetsCount +
+               ", documentsCount=" + documentsCount +
+               '}';
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * (C) YANDEX LLC, 2014-2016
+ *
+ * The Source Code called "YoctoDB" available at
+ * https://github.com/yandex/yoctodb is subject to the terms of the
+ * Mozilla Public License, v. 2.0 (hereinafter referred to as the "License").
+ *
+ * A copy of the License is also available at http://mozilla.org/MPL/2.0/.
+ */
+
+package com.yandex.yoctodb.util.mutable.impl;
+
+import com.google.common.primitives.Ints;
+import com.google.common.primitives.Longs;
+import com.yandex.yoctodb.util.mutable.IndexToIndexMap;
+import com.yandex.yoctodb.v1.V1DatabaseFormat;
+import net.jcip.annotations.NotThreadSafe;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * {@link IndexToIndexMap} implementation storing each value in the minimal
+ * number of bits enough for values from {@code 0} to {@code valuesCount - 1}
+ *
+ * Value {@code i} occupies bits from {@code i * bits} to
+ * {@code (i + 1) * bits - 1} counting from the least significant bit of the
+ * first word.
+ *
+ * Format:
+ *
+ * <pre>
+ * {@code
+ * -type (int)
+ * elements count (int)
+ * bits per value (int)
+ * words (long) * ceil(elements count * bits per value / 64)
+ * }
+ * </pre>
+ *
+ * @author agent
+ */
+@NotThreadSafe
+public final class PackedIndexToIndexMap implements IndexToIndexMap {
+    private final Map<Integer, Integer> elements =
+            new TreeMap<>();
+    private final int valuesCount;
+    private final int bits;
+
+    public PackedIndexToIndexMap(final int valuesCount) {
+        if (valuesCount < 0)
+            throw new IllegalArgumentException("Negative values count");
+
+        this.valuesCount = valuesCount;
+        this.bits = bits(valuesCount);
+    }
+
+    /**
+     * @param valuesCount count of distinct values
+     * @return bits enough to store values from {@code 0} to
+     * {@code valuesCount - 1}
+     */
+    static int bits(final int valuesCount) {
+        return valuesCount <= 1 ?
+                0 :
+                Integer.SIZE - Integer.numberOfLeadingZeros(valuesCount - 1);
+    }
+
+    /**
+     * @param elementsCount count of keys
+     * @param valuesCount   count of distinct values
+     * @return size of the map in bytes
+     */
+    static long getSizeInBytes(
+            final int elementsCount,
+            final int valuesCount) {
+        final long words =
+                (((long) elementsCount) * bits(valuesCount) + Long.SIZE - 1) /
+                Long.SIZE;
+
+        return 4L + // Type
+               4L + // Elements count
+               4L + // Bits per value
+               8L * words;
+    }
+
+    @Override
+    public void put(final int key, final int value) {
+        if (key < 0)
+            throw new IllegalArgumentException("Negative key");
+        if (value < 0)
+            throw new IllegalArgumentException("Negative value");
+        if (value >= valuesCount)
+            throw new IllegalArgumentException(
+                    "Value <" + value + "> is out of <" + valuesCount + ">");
+
+        final Integer previous = elements.put(key, value);
+
+        if (previous != null)
+            throw new IllegalArgumentException(
+                    "Key <" + key + "> was already bound to <" + previous +
+                    ">");
+    }
+
+    @Override
+    public long getSizeInBytes() {
+        return getSizeInBytes(elements.size(), valuesCount);
+    }
+
+    @Override
+    public void writeTo(
+            @NotNull
+            final OutputStream os) throws IOException {
+        // Type
+        os.write(
+                Ints.toByteArray(
+                        -V1DatabaseFormat.MapType.PACKED_BASED.getCode()));
+
+        // Elements count
+        os.write(Ints.toByteArray(elements.size()));
+
+        // Bits per value
+        os.write(Ints.toByteArray(bits));
+
+        // Values
+        long word = 0L;
+        int used = 0;
+        int index = 0;
+        for (Map.Entry<Integer, Integer> entry : elements.entrySet()) {
+            if (entry.getKey() != index) {
+                throw new IllegalStateException("Indexes are not continuous");
+            }
+
+            final long value = entry.getValue();
+            word |= value << used;
+            used += bits;
+            if (used >= Long.SIZE) {
+                os.write(Longs.toByteArray(word));
+                used -= Long.SIZE;
+                // The rest of the value continues in the next word
+                word = used == 0 ? 0L : value >>> (bits - used);
+            }
+
+            index++;
+        }
+
+        if (used > 0) {
+            os.write(Longs.toByteArray(word));
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "PackedIndexToIndexMap{" +
+               "elements=" + elements.size() +
+               ", bits=" + bits +
+               '}';
+    }
+}
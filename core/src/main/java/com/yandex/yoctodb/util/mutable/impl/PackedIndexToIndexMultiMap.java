@@ -0,0 +1,283 @@
+/*
+ * (C) YANDEX LLC, 2014-2016
+ *
+ * The Source Code called "YoctoDB" available at
+ * https://github.com/yandex/yoctodb is subject to the terms of the
+ * Mozilla Public License, v. 2.0 (hereinafter referred to as the "License").
+ *
+ * A copy of the License is also available at http://mozilla.org/MPL/2.0/.
+ */
+
+package com.yandex.yoctodb.util.mutable.impl;
+
+import com.google.common.primitives.Ints;
+import com.google.common.primitives.Longs;
+import com.yandex.yoctodb.util.mutable.IndexToIndexMultiMap;
+import com.yandex.yoctodb.v1.V1DatabaseFormat;
+import net.jcip.annotations.NotThreadSafe;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Collection;
+import java.util.Iterator;
+
+/**
+ * {@link IndexToIndexMultiMap} implementation based on delta-encoded and
+ * bit-packed blocks of sorted {@link Integer}s
+ *
+ * Each block stores its first value as is and the rest values as gaps
+ * between consecutive values minus one using the minimal bit width for
+ * the block. Gaps are packed into {@code long}s starting from the most
+ * significant bit.
+ *
+ * Format:
+ *
+ * <pre>
+ * {@code
+ * type (int)
+ * keys count (int)
+ * block size (int)
+ * offsets
+ *   offset1 (long)
+ *   offset2 (long)
+ *   ...
+ * sets
+ *   set1
+ *     size (int)
+ *     block1
+ *       first value (int)
+ *       bits per gap (byte)
+ *       packed gaps (long)
+ *       ...
+ *     block2
+ *     ...
+ *   set2
+ *   ...
+ * }
+ * </pre>
+ *
+ * @author agent
+ */
+@NotThreadSafe
+public final class PackedIndexToIndexMultiMap implements IndexToIndexMultiMap {
+    static final int BLOCK_SIZE = 128;
+
+    private final Collection<? extends Collection<Integer>> map;
+    // Cached for the offsets
+    private final long[] setSizes;
+    private final long sizeInBytes;
+
+    public PackedIndexToIndexMultiMap(
+            @NotNull
+            final Collection<? extends Collection<Integer>> map) {
+        this(map, setSizes(map));
+    }
+
+    /**
+     * @param map      sorted unique values per key
+     * @param setSizes precalculated {@link #setSizeInBytes(int[], int)} of
+     *                 the sets
+     */
+    PackedIndexToIndexMultiMap(
+            @NotNull
+            final Collection<? extends Collection<Integer>> map,
+            @NotNull
+            final long[] setSizes) {
+        assert setSizes.length == map.size();
+
+        this.map = map;
+        this.setSizes = setSizes;
+        long sizeInBytes =
+                4L + // type
+                4L + // keys count
+                4L + // block size
+                8L * map.size(); // offsets
+        for (long setSize : setSizes) {
+            sizeInBytes += setSize;
+        }
+        this.sizeInBytes = sizeInBytes;
+    }
+
+    private static long[] setSizes(
+            @NotNull
+            final Collection<? extends Collection<Integer>> map) {
+        final long[] result = new long[map.size()];
+        int i = 0;
+        for (Collection<Integer> ids : map) {
+            result[i++] = setSizeInBytes(ids);
+        }
+
+        return result;
+    }
+
+    private static int fill(
+            @NotNull
+            final Iterator<Integer> ids,
+            @NotNull
+            final int[] block) {
+        int count = 0;
+        while (count < block.length && ids.hasNext()) {
+            final int id = ids.next();
+            assert id >= 0;
+            assert count == 0 || block[count - 1] < id :
+                    "Values must be sorted and unique";
+            block[count++] = id;
+        }
+
+        return count;
+    }
+
+    private static int bits(
+            @NotNull
+            final int[] values,
+            final int from,
+            final int count) {
+        int gaps = 0;
+        for (int i = from + 1; i < from + count; i++) {
+            gaps |= values[i] - values[i - 1] - 1;
+        }
+
+        return Integer.SIZE - Integer.numberOfLeadingZeros(gaps);
+    }
+
+    private static int words(
+            final int count,
+            final int bits) {
+        return (int) (((long) (count - 1) * bits + 63L) >>> 6);
+    }
+
+    /**
+     * @param ids sorted unique values
+     * @return size of packed set in bytes
+     */
+    static long setSizeInBytes(
+            @NotNull
+            final Collection<Integer> ids) {
+        final int[] values = new int[ids.size()];
+        int count = 0;
+        for (int id : ids) {
+            values[count++] = id;
+        }
+
+        return setSizeInBytes(values, count);
+    }
+
+    /**
+     * @param ids   sorted unique values
+     * @param count count of values
+     * @return size of packed set in bytes
+     */
+    static long setSizeInBytes(
+            @NotNull
+            final int[] ids,
+            final int count) {
+        assert IndexToIndexMultiMapFactory.isSortedAndUnique(ids, count) :
+                "Values must be sorted and unique";
+
+        long size = 4L; // size
+        for (int from = 0; from < count; from += BLOCK_SIZE) {
+            final int blockCount = Math.min(BLOCK_SIZE, count - from);
+            size += 4L + // first value
+                    1L + // bits
+                    8L * words(blockCount, bits(ids, from, blockCount));
+        }
+
+        return size;
+    }
+
+    /**
+     * Writes packed set
+     *
+     * @param os  destination
+     * @param ids sorted unique values
+     */
+    static void writeSet(
+            @NotNull
+            final OutputStream os,
+            @NotNull
+            final Collection<Integer> ids) throws IOException {
+        os.write(Ints.toByteArray(ids.size()));
+
+        final int[] block = new int[BLOCK_SIZE];
+        final Iterator<Integer> iterator = ids.iterator();
+        int count;
+        while ((count = fill(iterator, block)) > 0) {
+            os.write(Ints.toByteArray(block[0]));
+
+            final int bits = bits(block, 0, count);
+            os.write(bits);
+
+            if (bits == 0) {
+                continue;
+            }
+
+            long word = 0L;
+            int filled = 0;
+            for (int i = 1; i < count; i++) {
+                final long gap = block[i] - block[i - 1] - 1;
+                if (filled + bits <= Long.SIZE) {
+                    word |= gap << (Long.SIZE - filled - bits);
+                    filled += bits;
+                } else {
+                    // Splitting the gap between two words
+                    final int head = Long.SIZE - filled;
+                    word |= gap >>> (bits - head);
+                    os.write(Longs.toByteArray(word));
+                    filled = bits - head;
+                    word = gap << (Long.SIZE - filled);
+                }
+
+                if (filled == Long.SIZE) {
+                    os.write(Longs.toByteArray(word));
+                    word = 0L;
+                    filled = 0;
+                }
+            }
+
+            if (filled > 0) {
+                os.write(Longs.toByteArray(word));
+            }
+        }
+    }
+
+    @Override
+    public long getSizeInBytes() {
+        return sizeInBytes;
+    }
+
+    @Override
+    public void writeTo(
+            @NotNull
+            final OutputStream os) throws IOException {
+        // Type
+        os.write(
+                Ints.toByteArray(
+                        V1DatabaseFormat.MultiMapType.PACKED_LIST_BASED.getCode()));
+
+        // Keys count
+        os.write(Ints.toByteArray(map.size()));
+
+        // Block size
+        os.write(Ints.toByteArray(BLOCK_SIZE));
+
+        // Offsets
+        long offset = 0L;
+        for (long setSize : setSizes) {
+            os.write(Longs.toByteArray(offset));
+            offset += setSize;
+        }
+
+        // Sets
+        for (Collection<Integer> ids : map) {
+            writeSet(os, ids);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "PackedIndexToIndexMultiMap{" +
+               "keys=" + map.size() +
+               '}';
+    }
+}
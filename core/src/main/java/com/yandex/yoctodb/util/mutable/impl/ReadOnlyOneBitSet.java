@@ -86,6 +86,16 @@ public final class ReadOnlyOneBitSet implements BitSet {
         throw new UnsupportedOperationException();
     }
 
+    @Override
+    public boolean or(
+            @NotNull
+            final Buffer longArrayInByteBuffer,
+            final long startPosition,
+            final int fromWord,
+            final int sizeInLongs) {
+        throw new UnsupportedOperationException();
+    }
+
     @Override
     public boolean isEmpty() {
         return false;
@@ -10,9 +10,11 @@
 
 package com.yandex.yoctodb.v1;
 
+import net.jcip.annotations.Immutable;
 import net.jcip.annotations.ThreadSafe;
 import org.jetbrains.annotations.NotNull;
 import com.yandex.yoctodb.DatabaseFormat;
+import com.yandex.yoctodb.util.Crc32cMessageDigest;
 import com.yandex.yoctodb.immutable.DatabaseReader;
 import com.yandex.yoctodb.mutable.DatabaseBuilder;
 import com.yandex.yoctodb.mutable.DocumentBuilder;
@@ -20,6 +22,8 @@ import com.yandex.yoctodb.v1.immutable.V1DatabaseReader;
 import com.yandex.yoctodb.v1.mutable.V1DatabaseBuilder;
 import com.yandex.yoctodb.v1.mutable.V1DocumentBuilder;
 
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.concurrent.atomic.AtomicReference;
 
 /**
@@ -29,12 +33,23 @@ import java.util.concurrent.atomic.AtomicReference;
  */
 @ThreadSafe
 public final class V1DatabaseFormat extends DatabaseFormat {
-    public final static int FORMAT = 5;
+    // Bumped whenever databases written by default can't be read by the
+    // previous reader:
+    //   6 -- packed list, hybrid and mixed multimaps and packed document to
+    //        value maps
+    //   7 -- segment directory footer
+    //   8 -- per segment digests
+    //   9 -- digest algorithm in the header
+    public final static int FORMAT = 9;
+
+    // Segment data alignment of page aligned databases
+    public final static int PAGE_SIZE = 4096;
 
     private final static DatabaseReader DATABASE_READER = new V1DatabaseReader();
 
-    private final static AtomicReference<String> messageDigestAlgorithm =
-            new AtomicReference<>("MD5");
+    private final static AtomicReference<DigestAlgorithm>
+            messageDigestAlgorithm =
+            new AtomicReference<>(new DigestAlgorithm("MD5"));
 
     public final static DatabaseFormat INSTANCE = new V1DatabaseFormat();
 
@@ -44,27 +59,107 @@ public final class V1DatabaseFormat extends DatabaseFormat {
 
     @NotNull
     public static String getMessageDigestAlgorithm() {
-        return messageDigestAlgorithm.get();
+        return messageDigestAlgorithm.get().name;
     }
 
+    /**
+     * Set algorithm used to checksum databases built afterwards. The
+     * algorithm is recorded in the database header, so it doesn't need to
+     * be set to read the database.
+     *
+     * Integrity checking doesn't need a cryptographic hash, so consider
+     * much faster {@link Crc32cMessageDigest#ALGORITHM}.
+     *
+     * @param algorithm {@link MessageDigest} algorithm name or
+     *                  {@link Crc32cMessageDigest#ALGORITHM}
+     */
     public static void setMessageDigestAlgorithm(
             @NotNull
             final String algorithm) {
-        messageDigestAlgorithm.set(algorithm);
+        messageDigestAlgorithm.set(new DigestAlgorithm(algorithm));
     }
 
-    private final static AtomicReference<Integer> digestSize =
-            new AtomicReference<>(16); // MD5 size
+    /**
+     * Creates digest supporting {@link Crc32cMessageDigest#ALGORITHM} in
+     * addition to the ones provided by {@link MessageDigest}
+     *
+     * @param algorithm algorithm name
+     * @return new digest
+     * @throws NoSuchAlgorithmException if the algorithm is not available
+     */
+    @NotNull
+    public static MessageDigest newMessageDigest(
+            @NotNull
+            final String algorithm) throws NoSuchAlgorithmException {
+        if (Crc32cMessageDigest.ALGORITHM.equals(algorithm)) {
+            return new Crc32cMessageDigest();
+        }
 
+        return MessageDigest.getInstance(algorithm);
+    }
+
+    /**
+     * @return digest size of the current {@link #getMessageDigestAlgorithm()}
+     * @throws IllegalStateException if the algorithm is not available
+     */
     @NotNull
     public static Integer getDigestSizeInBytes() {
-        return digestSize.get();
+        final DigestAlgorithm algorithm = messageDigestAlgorithm.get();
+        if (algorithm.digestSize < 0)
+            throw new IllegalStateException(
+                    "Unavailable digest algorithm <" + algorithm.name + ">");
+
+        return algorithm.digestSize;
+    }
+
+    /**
+     * Digest algorithm name with the digest size calculated once
+     */
+    @Immutable
+    private static final class DigestAlgorithm {
+        @NotNull
+        private final String name;
+        // Negative if the algorithm is not available
+        private final int digestSize;
+
+        DigestAlgorithm(
+                @NotNull
+                final String name) {
+            int digestSize;
+            try {
+                digestSize = newMessageDigest(name).getDigestLength();
+            } catch (NoSuchAlgorithmException e) {
+                // Reported on build
+                digestSize = -1;
+            }
+
+            this.name = name;
+            this.digestSize = digestSize;
+        }
+    }
+
+    private final static AtomicReference<Integer> payloadBlockCacheSize =
+            new AtomicReference<>(16);
+
+    /**
+     * @return count of decompressed payload blocks cached by each
+     * compressed payload segment
+     */
+    @NotNull
+    public static Integer getPayloadBlockCacheSize() {
+        return payloadBlockCacheSize.get();
     }
 
-    public static void setDigestSizeInBytes(final int size) {
+    /**
+     * Set count of decompressed payload blocks cached by each compressed
+     * payload segment read afterwards
+     *
+     * @param size count of blocks
+     */
+    public static void setPayloadBlockCacheSize(final int size) {
         assert size > 0;
 
-        digestSize.set(size);
+        payloadBlockCacheSize.set(size);
     }
 
     // Segment types
@@ -72,12 +167,16 @@ public final class V1DatabaseFormat extends DatabaseFormat {
         // External segments should start from 10E6
         PAYLOAD_FULL(1), // All documents have payload
         PAYLOAD_NONE(2), // No documents have any payload
+        PAYLOAD_COMPRESSED(3), // All documents have block compressed payload
+        PAYLOAD_SPARSE(4), // Some documents have payload
+        PAYLOAD_DEDUPLICATED(5), // All documents reference distinct payloads
         FIXED_LENGTH_FILTER(1000),
         VARIABLE_LENGTH_FILTER(2000),
         FIXED_LENGTH_SORTABLE_INDEX(3000),
         VARIABLE_LENGTH_SORTABLE_INDEX(4000),
         FIXED_LENGTH_FULL_INDEX(5000),
-        VARIABLE_LENGTH_FULL_INDEX(6000);
+        VARIABLE_LENGTH_FULL_INDEX(6000),
+        FRONT_CODED_FILTER(7000);
 
         private final int code;
 
@@ -92,7 +191,10 @@ public final class V1DatabaseFormat extends DatabaseFormat {
 
     public enum MultiMapType {
         LIST_BASED(1000),
-        LONG_ARRAY_BIT_SET_BASED(2000);
+        LONG_ARRAY_BIT_SET_BASED(2000),
+        PACKED_LIST_BASED(3000),
+        HYBRID_BASED(4000),
+        MIXED_BASED(5000);
 
         private final int code;
 
@@ -105,6 +207,22 @@ public final class V1DatabaseFormat extends DatabaseFormat {
         }
     }
 
+    // Document to value maps other than the original int based one are
+    // written starting with the negated type code
+    public enum MapType {
+        PACKED_BASED(1000);
+
+        private final int code;
+
+        MapType(final int code) {
+            this.code = code;
+        }
+
+        public int getCode() {
+            return code;
+        }
+    }
+
     @NotNull
     @Override
     public DocumentBuilder newDocumentBuilder() {
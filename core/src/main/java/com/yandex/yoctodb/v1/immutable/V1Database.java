@@ -15,36 +15,56 @@ import com.yandex.yoctodb.immutable.*;
 import com.yandex.yoctodb.query.DocumentProcessor;
 import com.yandex.yoctodb.query.Query;
 import com.yandex.yoctodb.query.ScoredDocument;
+import com.yandex.yoctodb.util.buf.AccessHint;
 import com.yandex.yoctodb.util.buf.Buffer;
 import com.yandex.yoctodb.util.mutable.ArrayBitSetPool;
 import com.yandex.yoctodb.util.mutable.BitSet;
 import com.yandex.yoctodb.util.mutable.impl.ReadOnlyOneBitSet;
-import net.jcip.annotations.Immutable;
+import com.yandex.yoctodb.v1.immutable.segment.LazySegment;
+import com.yandex.yoctodb.v1.immutable.segment.Segment;
+import net.jcip.annotations.ThreadSafe;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.Map;
+import java.util.Set;
 
 import static java.util.Collections.unmodifiableMap;
 
 /**
  * Immutable {@link Database} implementation in V1 format
  *
+ * Indexes are read on the first access or on {@link #warmUp()}.
+ *
  * @author incubos
  */
-@Immutable
+@ThreadSafe
 public final class V1Database implements IndexedDatabase {
+    @NotNull
+    private final LazySegment payloadSegment;
     @NotNull
     private final Payload payload;
     @NotNull
-    private final Map<String, FilterableIndex> filters;
+    private final Map<String, LazySegment> filters;
     @NotNull
-    private final Map<String, SortableIndex> sorters;
+    private final Map<String, LazySegment> sorters;
     @NotNull
     private final ArrayBitSetPool bitSetPool;
 
+    /**
+     * Database of already read segments
+     *
+     * @param payload    payload segment
+     * @param filters    filterable index segments by field name
+     * @param sorters    sortable index segments by field name
+     * @param bitSetPool bit set pool
+     */
     public V1Database(
             @NotNull
             final Payload payload,
@@ -54,12 +74,144 @@ public final class V1Database implements IndexedDatabase {
             final Map<String, SortableIndex> sorters,
             @NotNull
             final ArrayBitSetPool bitSetPool) {
-        this.payload = payload;
+        this(wrap(payload), wrap(filters), wrap(sorters), bitSetPool);
+    }
+
+    V1Database(
+            @NotNull
+            final LazySegment payload,
+            @NotNull
+            final Map<String, LazySegment> filters,
+            @NotNull
+            final Map<String, LazySegment> sorters,
+            @NotNull
+            final ArrayBitSetPool bitSetPool) {
+        this.payloadSegment = payload;
+        this.payload = (Payload) payload.get();
         this.filters = unmodifiableMap(new HashMap<>(filters));
         this.sorters = unmodifiableMap(new HashMap<>(sorters));
         this.bitSetPool = bitSetPool;
     }
 
+    @NotNull
+    private static LazySegment wrap(
+            @NotNull
+            final Object segment) {
+        if (!(segment instanceof Segment))
+            throw new IllegalArgumentException("Not a segment: " + segment);
+
+        return new LazySegment((Segment) segment);
+    }
+
+    @NotNull
+    private static Map<String, LazySegment> wrap(
+            @NotNull
+            final Map<String, ?> segments) {
+        final Map<String, LazySegment> result = new HashMap<>();
+        for (Map.Entry<String, ?> e : segments.entrySet()) {
+            result.put(e.getKey(), wrap(e.getValue()));
+        }
+
+        return result;
+    }
+
+    /**
+     * Hints how the payload segment is going to be accessed
+     *
+     * @param hint expected access pattern
+     */
+    public void advisePayload(
+            @NotNull
+            final AccessHint hint) {
+        payloadSegment.advise(hint);
+    }
+
+    /**
+     * Hints how the filterable index of the field is going to be accessed
+     *
+     * @param fieldName field name
+     * @param hint      expected access pattern
+     */
+    public void adviseFilter(
+            @NotNull
+            final String fieldName,
+            @NotNull
+            final AccessHint hint) {
+        final LazySegment filter = filters.get(fieldName);
+        if (filter == null)
+            throw new IllegalArgumentException(
+                    "No filterable index for field <" + fieldName + ">");
+
+        filter.advise(hint);
+    }
+
+    /**
+     * Hints how the sortable index of the field is going to be accessed
+     *
+     * @param fieldName field name
+     * @param hint      expected access pattern
+     */
+    public void adviseSorter(
+            @NotNull
+            final String fieldName,
+            @NotNull
+            final AccessHint hint) {
+        final LazySegment sorter = sorters.get(fieldName);
+        if (sorter == null)
+            throw new IllegalArgumentException(
+                    "No sortable index for field <" + fieldName + ">");
+
+        sorter.advise(hint);
+    }
+
+    /**
+     * Loads and reads all the index segments leaving the payload cold
+     */
+    public void warmUp() {
+        final Set<String> fieldNames = new HashSet<>(filters.keySet());
+        fieldNames.addAll(sorters.keySet());
+
+        warmUp(fieldNames);
+    }
+
+    /**
+     * Loads and reads the index segments of the fields leaving the payload
+     * and the rest indexes cold
+     *
+     * Pages of the segments are faulted in with
+     * {@link AccessHint#WILL_NEED}, so the first queries neither wait for
+     * the disk nor read the segments.
+     *
+     * @param fieldNames fields to warm up
+     */
+    public void warmUp(
+            @NotNull
+            final Collection<String> fieldNames) {
+        // Full indexes are shared by filters and sorters
+        final Set<LazySegment> segments =
+                Collections.newSetFromMap(
+                        new IdentityHashMap<LazySegment, Boolean>());
+        for (String fieldName : fieldNames) {
+            final LazySegment filter = filters.get(fieldName);
+            final LazySegment sorter = sorters.get(fieldName);
+            if (filter == null && sorter == null)
+                throw new IllegalArgumentException(
+                        "No indexes for field <" + fieldName + ">");
+
+            if (filter != null) {
+                segments.add(filter);
+            }
+            if (sorter != null) {
+                segments.add(sorter);
+            }
+        }
+
+        for (LazySegment segment : segments) {
+            segment.advise(AccessHint.WILL_NEED);
+            segment.get();
+        }
+    }
+
     @NotNull
     @Override
     public Buffer getDocument(final int i) {
@@ -76,7 +228,9 @@ public final class V1Database implements IndexedDatabase {
     public FilterableIndex getFilter(
             @NotNull
             final String fieldName) {
-        return filters.get(fieldName);
+        final LazySegment filter = filters.get(fieldName);
+
+        return filter == null ? null : (FilterableIndex) filter.get();
     }
 
     @NotNull
@@ -86,7 +240,7 @@ public final class V1Database implements IndexedDatabase {
             final String fieldName) {
         assert sorters.containsKey(fieldName);
 
-        return sorters.get(fieldName);
+        return (SortableIndex) sorters.get(fieldName).get();
     }
 
     @NotNull
@@ -14,16 +14,29 @@ import com.yandex.yoctodb.immutable.*;
 import com.yandex.yoctodb.util.buf.Buffer;
 import com.yandex.yoctodb.util.mutable.ArrayBitSetPool;
 import com.yandex.yoctodb.v1.V1DatabaseFormat;
+import com.yandex.yoctodb.v1.immutable.segment.LazySegment;
 import com.yandex.yoctodb.v1.immutable.segment.Segment;
-import com.yandex.yoctodb.v1.immutable.segment.SegmentRegistry;
+import com.yandex.yoctodb.v1.immutable.segment.SegmentDirectory;
+import com.yandex.yoctodb.v1.immutable.segment.SegmentFootprint;
 import net.jcip.annotations.ThreadSafe;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
-import java.security.MessageDigest;
+import java.nio.charset.StandardCharsets;
 import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
 
 /**
  * Builds immutable {@link Database}s from bytes in V1 format
@@ -32,34 +45,135 @@ import java.util.Map;
  */
 @ThreadSafe
 public class V1DatabaseReader extends DatabaseReader {
-    private static final int DIGEST_BUF_SIZE = 4096;
+    /**
+     * Segment checksum verification mode
+     */
+    public enum Verification {
+        /**
+         * Don't verify
+         */
+        NONE,
+        /**
+         * Verify all the segments on open, in parallel if an
+         * {@link Executor} is supplied
+         */
+        EAGER,
+        /**
+         * Verify each segment right before it is read. Segments read on
+         * open (payload) are verified on open.
+         */
+        LAZY
+    }
+
+    // Segment types read lazily
+    private static final Set<Integer> FILTERABLE_TYPES =
+            codes(
+                    V1DatabaseFormat.SegmentType.FIXED_LENGTH_FILTER,
+                    V1DatabaseFormat.SegmentType.VARIABLE_LENGTH_FILTER,
+                    V1DatabaseFormat.SegmentType.FRONT_CODED_FILTER,
+                    V1DatabaseFormat.SegmentType.FIXED_LENGTH_FULL_INDEX,
+                    V1DatabaseFormat.SegmentType.VARIABLE_LENGTH_FULL_INDEX);
+    private static final Set<Integer> SORTABLE_TYPES =
+            codes(
+                    V1DatabaseFormat.SegmentType.FIXED_LENGTH_SORTABLE_INDEX,
+                    V1DatabaseFormat.SegmentType.VARIABLE_LENGTH_SORTABLE_INDEX,
+                    V1DatabaseFormat.SegmentType.FIXED_LENGTH_FULL_INDEX,
+                    V1DatabaseFormat.SegmentType.VARIABLE_LENGTH_FULL_INDEX);
+
+    private static Set<Integer> codes(
+            final V1DatabaseFormat.SegmentType... types) {
+        final Set<Integer> result = new HashSet<>();
+        for (V1DatabaseFormat.SegmentType type : types) {
+            result.add(type.getCode());
+        }
+        return Collections.unmodifiableSet(result);
+    }
 
-    private static Buffer calculateDigest(
+    /**
+     * Checks the header and reads the segment directory advancing
+     * {@code buffer} to the segments
+     *
+     * @param buffer database
+     * @param verify whether to verify the directory digest
+     * @return segment directory
+     */
+    @NotNull
+    private static SegmentDirectory readDirectory(
             @NotNull
-            final Buffer buffer) {
-        final Buffer data = buffer.slice();
+            final Buffer buffer,
+            final boolean verify) {
+        // Checking the magic
+        for (int i = 0; i < V1DatabaseFormat.MAGIC.length; i++)
+            if (buffer.get() != V1DatabaseFormat.MAGIC[i]) {
+                throw new IllegalArgumentException("Wrong magic");
+            }
 
-        final MessageDigest md;
+        // Checking the format version
+        final int format = buffer.getInt();
+        if (format != V1DatabaseFormat.FORMAT) {
+            throw new IllegalArgumentException(
+                    "Wrong format " + format + ". Supported format is " +
+                    V1DatabaseFormat.FORMAT + ".");
+        }
+
+        // Digest algorithm the database was built with
+        final int algorithmLength = buffer.getInt();
+        if (algorithmLength < 0 || algorithmLength > buffer.remaining()) {
+            throw new IllegalArgumentException(
+                    "Wrong digest algorithm length " + algorithmLength);
+        }
+        final byte[] algorithmBytes = new byte[algorithmLength];
+        buffer.get(algorithmBytes);
+        final String algorithm =
+                new String(algorithmBytes, StandardCharsets.US_ASCII);
+        final int digestSize;
         try {
-            md = MessageDigest.getInstance(
-                    V1DatabaseFormat.getMessageDigestAlgorithm());
+            digestSize =
+                    V1DatabaseFormat.newMessageDigest(algorithm)
+                            .getDigestLength();
         } catch (NoSuchAlgorithmException e) {
             throw new RuntimeException(e);
         }
-        md.reset();
 
-        final byte[] buf = new byte[DIGEST_BUF_SIZE];
-
-        while (data.remaining() >= buf.length) {
-            data.get(buf);
-            md.update(buf);
+        if (buffer.remaining() < digestSize) {
+            throw new IllegalArgumentException("Too small buffer");
         }
 
-        if (data.hasRemaining()) {
-            md.update(data.toByteArray());
+        final Buffer body = buffer.slice(buffer.remaining() - digestSize);
+
+        return SegmentDirectory.from(
+                body,
+                algorithm,
+                verify ?
+                        buffer.slice(
+                                buffer.position() + body.remaining(),
+                                digestSize) :
+                        null);
+    }
+
+    /**
+     * Calculates sizes of segments and their components without reading
+     * the database
+     *
+     * @param buffer database
+     * @return footprints of segments in the order of appearance
+     */
+    @NotNull
+    public List<SegmentFootprint> footprint(
+            @NotNull
+            final Buffer buffer) {
+        final SegmentDirectory directory =
+                readDirectory(buffer.slice(), false);
+
+        final List<SegmentFootprint> result = new ArrayList<>();
+        for (SegmentDirectory.Entry entry : directory.getEntries()) {
+            result.add(
+                    SegmentFootprint.from(
+                            entry.getTypeCode(),
+                            directory.getData(entry)));
         }
 
-        return Buffer.from(md.digest());
+        return result;
     }
 
     @NotNull
@@ -70,81 +184,194 @@ public class V1DatabaseReader extends DatabaseReader {
             @NotNull
             final ArrayBitSetPool bitSetPool,
             final boolean checksum) {
-        // Checking the magic
-        for (int i = 0; i < V1DatabaseFormat.MAGIC.length; i++)
-            if (buffer.get() != V1DatabaseFormat.MAGIC[i]) {
-                throw new IllegalArgumentException("Wrong magic");
-            }
+        return from(
+                buffer,
+                bitSetPool,
+                checksum ? Verification.EAGER : Verification.NONE);
+    }
 
-        // Checking the format version
-        final int format = buffer.getInt();
-        if (format != V1DatabaseFormat.FORMAT) {
-            throw new IllegalArgumentException(
-                    "Wrong format " + format + ". Supported format is " +
-                    V1DatabaseFormat.FORMAT + ".");
+    private static void verify(
+            @NotNull
+            final SegmentDirectory directory,
+            @Nullable
+            final Executor executor) {
+        final List<SegmentDirectory.Entry> entries = directory.getEntries();
+        if (executor == null || entries.size() <= 1) {
+            for (SegmentDirectory.Entry entry : entries) {
+                if (!directory.verify(entry)) {
+                    throw new IllegalArgumentException(
+                            "The database is corrupted");
+                }
+            }
+            return;
         }
 
-        if (buffer.remaining() < V1DatabaseFormat.getDigestSizeInBytes()) {
-            throw new IllegalArgumentException("Too small buffer");
+        // The largest segments first for better balance
+        final List<SegmentDirectory.Entry> sorted = new ArrayList<>(entries);
+        Collections.sort(
+                sorted,
+                new Comparator<SegmentDirectory.Entry>() {
+                    @Override
+                    public int compare(
+                            final SegmentDirectory.Entry left,
+                            final SegmentDirectory.Entry right) {
+                        return Long.compare(right.getSize(), left.getSize());
+                    }
+                });
+
+        final List<FutureTask<Boolean>> tasks = new ArrayList<>(sorted.size());
+        for (final SegmentDirectory.Entry entry : sorted) {
+            final FutureTask<Boolean> task =
+                    new FutureTask<>(
+                            new Callable<Boolean>() {
+                                @Override
+                                public Boolean call() {
+                                    return directory.verify(entry);
+                                }
+                            });
+            tasks.add(task);
+            executor.execute(task);
         }
 
-        final Buffer body =
-                buffer.slice(
-                        buffer.remaining() -
-                        V1DatabaseFormat.getDigestSizeInBytes());
-
-        if (checksum) {
-            final Buffer originalDigest =
-                    buffer.slice(
-                            buffer.position() + body.remaining(),
-                            V1DatabaseFormat.getDigestSizeInBytes());
-            final Buffer currentDigest = calculateDigest(body);
-            if (!currentDigest.equals(originalDigest)) {
-                throw new IllegalArgumentException(
-                        "The database is corrupted");
+        try {
+            // The caller verifies the segments not started yet, so a busy
+            // executor doesn't block it
+            for (FutureTask<Boolean> task : tasks) {
+                task.run();
             }
+
+            for (FutureTask<Boolean> task : tasks) {
+                if (!task.get()) {
+                    throw new IllegalArgumentException(
+                            "The database is corrupted");
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        } finally {
+            for (FutureTask<Boolean> task : tasks) {
+                task.cancel(false);
+            }
+        }
+    }
+
+    /**
+     * Reads the database verifying segment checksums according to
+     * {@code verification} in the calling thread
+     *
+     * @param buffer       database
+     * @param bitSetPool   bit set pool to use
+     * @param verification segment checksum verification mode
+     * @return database
+     */
+    @NotNull
+    public V1Database from(
+            @NotNull
+            final Buffer buffer,
+            @NotNull
+            final ArrayBitSetPool bitSetPool,
+            @NotNull
+            final Verification verification) {
+        return from(buffer, bitSetPool, verification, null);
+    }
+
+    /**
+     * Reads the database verifying segment checksums according to
+     * {@code verification}
+     *
+     * {@link Verification#EAGER} verification runs on {@code executor}
+     * together with the calling thread, which verifies the segments the
+     * executor hasn't started yet.
+     *
+     * @param buffer       database
+     * @param bitSetPool   bit set pool to use
+     * @param verification segment checksum verification mode
+     * @param executor     executor to verify segments in parallel or
+     *                     {@code null} to verify in the calling thread
+     * @return database
+     */
+    @NotNull
+    public V1Database from(
+            @NotNull
+            final Buffer buffer,
+            @NotNull
+            final ArrayBitSetPool bitSetPool,
+            @NotNull
+            final Verification verification,
+            @Nullable
+            final Executor executor) {
+        // Directory contains segment digests
+        final SegmentDirectory directory =
+                readDirectory(buffer, verification != Verification.NONE);
+
+        if (verification == Verification.EAGER) {
+            verify(directory, executor);
         }
 
         // Reading the segments
-        Payload payload = null;
-        final Map<String, FilterableIndex> filters = new HashMap<>();
-        final Map<String, SortableIndex> sorters = new HashMap<>();
-        while (body.hasRemaining()) {
-            final long size = body.getLong();
-            final int type = body.getInt();
+        LazySegment payload = null;
+        final Map<String, LazySegment> filters = new HashMap<>();
+        final Map<String, LazySegment> sorters = new HashMap<>();
+        for (SegmentDirectory.Entry entry : directory.getEntries()) {
+            final int type = entry.getTypeCode();
+            final String fieldName = entry.getFieldName();
+            final boolean filterable = FILTERABLE_TYPES.contains(type);
+            final boolean sortable = SORTABLE_TYPES.contains(type);
+            final LazySegment lazy =
+                    new LazySegment(
+                            directory,
+                            entry,
+                            verification == Verification.LAZY);
+
+            if (fieldName != null && (filterable || sortable)) {
+                // Known index is read on the first access
+                if (filterable) {
+                    assert !filters.containsKey(fieldName) :
+                            "Duplicate filterable index for field <" +
+                            fieldName + ">";
+
+                    filters.put(fieldName, lazy);
+                }
 
-            final Buffer segmentBuffer = body.slice(size);
+                if (sortable) {
+                    assert !sorters.containsKey(fieldName) :
+                            "Duplicate sortable index for field <" +
+                            fieldName + ">";
 
-            final Segment segment = SegmentRegistry.read(type, segmentBuffer);
+                    sorters.put(fieldName, lazy);
+                }
+
+                continue;
+            }
+
+            final Segment segment = lazy.get();
 
             if (segment instanceof Payload) {
                 assert payload == null : "Duplicate payload found";
 
-                payload = (Payload) segment;
+                payload = lazy;
             }
 
             if (segment instanceof FilterableIndex) {
-                final FilterableIndex index = (FilterableIndex) segment;
-                final String name = index.getFieldName();
+                final String name = ((FilterableIndex) segment).getFieldName();
 
                 assert !filters.containsKey(name) :
                         "Duplicate filterable index for field <" + name + ">";
 
-                filters.put(name, index);
+                filters.put(name, lazy);
             }
 
             if (segment instanceof SortableIndex) {
-                final SortableIndex index = (SortableIndex) segment;
-                final String name = index.getFieldName();
+                final String name = ((SortableIndex) segment).getFieldName();
 
                 assert !sorters.containsKey(name) :
                         "Duplicate sortable index for field <" + name + ">";
 
-                sorters.put(name, index);
+                sorters.put(name, lazy);
             }
-
-            // Skipping read index
-            body.position(body.position() + size);
         }
 
         assert payload != null : "No payload found";
@@ -0,0 +1,129 @@
+/*
+ * (C) YANDEX LLC, 2014-2016
+ *
+ * The Source Code called "YoctoDB" available at
+ * https://github.com/yandex/yoctodb is subject to the terms of the
+ * Mozilla Public License, v. 2.0 (hereinafter referred to as the "License").
+ *
+ * A copy of the License is also available at http://mozilla.org/MPL/2.0/.
+ */
+
+package com.yandex.yoctodb.v1.immutable.segment;
+
+import com.yandex.yoctodb.util.buf.AccessHint;
+import com.yandex.yoctodb.util.buf.Buffer;
+import net.jcip.annotations.GuardedBy;
+import net.jcip.annotations.ThreadSafe;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Segment read by {@link SegmentRegistry} on the first access
+ *
+ * Segment data is optionally verified against its digest right before
+ * reading.
+ *
+ * @author agent
+ */
+@ThreadSafe
+public final class LazySegment {
+    @Nullable
+    private final Buffer data;
+    @Nullable
+    @GuardedBy("this")
+    private SegmentDirectory directory;
+    @Nullable
+    private final SegmentDirectory.Entry entry;
+    @Nullable
+    private volatile Segment segment;
+
+    /**
+     * @param directory segment directory
+     * @param entry     segment entry
+     * @param verify    whether to verify the segment data against its
+     *                  digest
+     */
+    public LazySegment(
+            @NotNull
+            final SegmentDirectory directory,
+            @NotNull
+            final SegmentDirectory.Entry entry,
+            final boolean verify) {
+        this.data = directory.getData(entry);
+        this.directory = verify ? directory : null;
+        this.entry = entry;
+        this.segment = null;
+    }
+
+    /**
+     * Wraps the segment which is already read, e.g. kept in memory
+     *
+     * Access hints are ignored.
+     *
+     * @param segment read segment
+     */
+    public LazySegment(
+            @NotNull
+            final Segment segment) {
+        this.data = null;
+        this.directory = null;
+        this.entry = null;
+        this.segment = segment;
+    }
+
+    /**
+     * @return whether the segment has been read
+     */
+    public boolean isRead() {
+        return segment != null;
+    }
+
+    /**
+     * Hints how the segment data is going to be accessed
+     *
+     * @param hint expected access pattern
+     */
+    public void advise(
+            @NotNull
+            final AccessHint hint) {
+        if (data != null) {
+            data.slice().advise(hint);
+        }
+    }
+
+    @NotNull
+    public Segment get() {
+        Segment result = segment;
+        if (result == null) {
+            synchronized (this) {
+                result = segment;
+                if (result == null) {
+                    assert data != null && entry != null;
+
+                    if (directory != null && !directory.verify(entry)) {
+                        throw new IllegalArgumentException(
+                                "The segment is corrupted");
+                    }
+
+                    result =
+                            SegmentRegistry.read(
+                                    entry.getTypeCode(),
+                                    data.slice());
+                    segment = result;
+                    // Not needed any more
+                    directory = null;
+                }
+            }
+        }
+
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "LazySegment{" +
+               "entry=" + entry +
+               ", segment=" + segment +
+               '}';
+    }
+}
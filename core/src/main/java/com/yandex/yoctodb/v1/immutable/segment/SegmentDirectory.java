@@ -0,0 +1,303 @@
+/*
+ * (C) YANDEX LLC, 2014-2016
+ *
+ * The Source Code called "YoctoDB" available at
+ * https://github.com/yandex/yoctodb is subject to the terms of the
+ * Mozilla Public License, v. 2.0 (hereinafter referred to as the "License").
+ *
+ * A copy of the License is also available at http://mozilla.org/MPL/2.0/.
+ */
+
+package com.yandex.yoctodb.v1.immutable.segment;
+
+import com.yandex.yoctodb.util.buf.Buffer;
+import com.yandex.yoctodb.v1.V1DatabaseFormat;
+import net.jcip.annotations.Immutable;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Directory of segments stored after the segments to locate them without
+ * walking the database body
+ *
+ * See {@code com.yandex.yoctodb.v1.mutable.SegmentDirectoryOutputStream}
+ * for the format.
+ *
+ * @author agent
+ */
+@Immutable
+public final class SegmentDirectory {
+    @NotNull
+    private final Buffer segments;
+    @NotNull
+    private final String algorithm;
+    @NotNull
+    private final List<Entry> entries;
+
+    private SegmentDirectory(
+            @NotNull
+            final Buffer segments,
+            @NotNull
+            final String algorithm,
+            @NotNull
+            final List<Entry> entries) {
+        this.segments = segments;
+        this.algorithm = algorithm;
+        this.entries = Collections.unmodifiableList(entries);
+    }
+
+    @NotNull
+    private static MessageDigest newMessageDigest(
+            @NotNull
+            final String algorithm) {
+        try {
+            return V1DatabaseFormat.newMessageDigest(algorithm);
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Calculates digest of the buffer remaining bytes with
+     * {@link V1DatabaseFormat#getMessageDigestAlgorithm()}
+     *
+     * @param buffer bytes to digest
+     * @return digest
+     */
+    @NotNull
+    public static Buffer digest(
+            @NotNull
+            final Buffer buffer) {
+        return digest(buffer, V1DatabaseFormat.getMessageDigestAlgorithm());
+    }
+
+    /**
+     * Calculates digest of the buffer remaining bytes reading them
+     * directly where possible
+     *
+     * @param buffer    bytes to digest
+     * @param algorithm digest algorithm
+     * @return digest
+     */
+    @NotNull
+    public static Buffer digest(
+            @NotNull
+            final Buffer buffer,
+            @NotNull
+            final String algorithm) {
+        final MessageDigest md = newMessageDigest(algorithm);
+        buffer.update(md);
+
+        return Buffer.from(md.digest());
+    }
+
+    /**
+     * Reads the directory from the end of the database body written with
+     * {@link V1DatabaseFormat#getMessageDigestAlgorithm()}
+     *
+     * @param body segments followed by the directory
+     * @return segment directory
+     */
+    @NotNull
+    public static SegmentDirectory from(
+            @NotNull
+            final Buffer body) {
+        return from(body, null);
+    }
+
+    /**
+     * Reads the directory from the end of the database body written with
+     * {@link V1DatabaseFormat#getMessageDigestAlgorithm()} verifying it
+     * before parsing
+     *
+     * @param body   segments followed by the directory
+     * @param digest expected directory digest or {@code null} not to verify
+     * @return segment directory
+     */
+    @NotNull
+    public static SegmentDirectory from(
+            @NotNull
+            final Buffer body,
+            @Nullable
+            final Buffer digest) {
+        return from(body, V1DatabaseFormat.getMessageDigestAlgorithm(), digest);
+    }
+
+    /**
+     * Reads the directory from the end of the database body verifying it
+     * before parsing
+     *
+     * @param body      segments followed by the directory
+     * @param algorithm digest algorithm recorded in the database header
+     * @param digest    expected directory digest or {@code null} not to
+     *                  verify
+     * @return segment directory
+     */
+    @NotNull
+    public static SegmentDirectory from(
+            @NotNull
+            final Buffer body,
+            @NotNull
+            final String algorithm,
+            @Nullable
+            final Buffer digest) {
+        final int digestSize = newMessageDigest(algorithm).getDigestLength();
+
+        if (body.remaining() < 8L)
+            throw new IllegalArgumentException("No segment directory");
+
+        final long directorySize =
+                body.getLong(body.position() + body.remaining() - 8L);
+        if (directorySize < 4L + 8L || directorySize > body.remaining())
+            throw new IllegalArgumentException(
+                    "Wrong segment directory size: " + directorySize);
+
+        final long segmentsSize = body.remaining() - directorySize;
+        final Buffer segments = body.slice(segmentsSize);
+        final Buffer raw =
+                body.slice(body.position() + segmentsSize, directorySize);
+        if (digest != null && !digest(raw, algorithm).equals(digest))
+            throw new IllegalArgumentException("The database is corrupted");
+
+        final Buffer directory = raw.slice(directorySize - 8L);
+
+        final int count = directory.getInt();
+        final List<Entry> entries = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            final int type = directory.getInt();
+            final String fieldName = Segments.extractString(directory);
+            final long offset = directory.getLong();
+            final long size = directory.getLong();
+            final Buffer entryDigest = directory.slice(digestSize);
+            directory.advance(digestSize);
+            if (offset < 0 || size < 0 || offset + size > segmentsSize)
+                throw new IllegalArgumentException(
+                        "Segment out of bounds: " + offset + "+" + size);
+
+            entries.add(
+                    new Entry(
+                            type,
+                            fieldName.isEmpty() ? null : fieldName,
+                            offset,
+                            size,
+                            entryDigest));
+        }
+
+        return new SegmentDirectory(segments, algorithm, entries);
+    }
+
+    /**
+     * @return digest algorithm
+     */
+    @NotNull
+    public String getAlgorithm() {
+        return algorithm;
+    }
+
+    @NotNull
+    public List<Entry> getEntries() {
+        return entries;
+    }
+
+    /**
+     * @param entry segment entry
+     * @return segment data without its size and type
+     */
+    @NotNull
+    public Buffer getData(
+            @NotNull
+            final Entry entry) {
+        return segments.slice(entry.getOffset(), entry.getSize());
+    }
+
+    /**
+     * @param entry segment entry
+     * @return whether segment data matches its digest
+     */
+    public boolean verify(
+            @NotNull
+            final Entry entry) {
+        return digest(getData(entry), algorithm).equals(entry.getDigest());
+    }
+
+    @Override
+    public String toString() {
+        return "SegmentDirectory{" +
+               "algorithm=" + algorithm +
+               ", entries=" + entries +
+               '}';
+    }
+
+    /**
+     * Segment location
+     */
+    @Immutable
+    public static final class Entry {
+        private final int typeCode;
+        @Nullable
+        private final String fieldName;
+        private final long offset;
+        private final long size;
+        @NotNull
+        private final Buffer digest;
+
+        private Entry(
+                final int typeCode,
+                @Nullable
+                final String fieldName,
+                final long offset,
+                final long size,
+                @NotNull
+                final Buffer digest) {
+            this.typeCode = typeCode;
+            this.fieldName = fieldName;
+            this.offset = offset;
+            this.size = size;
+            this.digest = digest;
+        }
+
+        public int getTypeCode() {
+            return typeCode;
+        }
+
+        /**
+         * @return field name or {@code null} for payload
+         */
+        @Nullable
+        public String getFieldName() {
+            return fieldName;
+        }
+
+        public long getOffset() {
+            return offset;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        /**
+         * @return segment data digest
+         */
+        @NotNull
+        public Buffer getDigest() {
+            return digest.slice();
+        }
+
+        @Override
+        public String toString() {
+            return "Entry{" +
+                   "typeCode=" + typeCode +
+                   ", fieldName=" + fieldName +
+                   ", offset=" + offset +
+                   ", size=" + size +
+                   '}';
+        }
+    }
+}
@@ -0,0 +1,250 @@
+/*
+ * (C) YANDEX LLC, 2014-2016
+ *
+ * The Source Code called "YoctoDB" available at
+ * https://github.com/yandex/yoctodb is subject to the terms of the
+ * Mozilla Public License, v. 2.0 (hereinafter referred to as the "License").
+ *
+ * A copy of the License is also available at http://mozilla.org/MPL/2.0/.
+ */
+
+package com.yandex.yoctodb.v1.immutable.segment;
+
+import com.google.common.primitives.Ints;
+import com.google.common.primitives.Longs;
+import com.yandex.yoctodb.util.buf.Buffer;
+import com.yandex.yoctodb.v1.V1DatabaseFormat;
+import net.jcip.annotations.Immutable;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Size of a segment and of its components in bytes
+ *
+ * @author agent
+ */
+@Immutable
+public final class SegmentFootprint {
+    // Segment size and type
+    public static final long HEADER_SIZE = Longs.BYTES + Ints.BYTES;
+
+    public enum Component {
+        VALUES,
+        VALUE_TO_DOCUMENTS,
+        DOCUMENT_TO_VALUE,
+        PAYLOAD
+    }
+
+    private final int typeCode;
+    @Nullable
+    private final String fieldName;
+    private final long sizeInBytes;
+    @NotNull
+    private final Map<Component, Long> components;
+    @Nullable
+    private final V1DatabaseFormat.MultiMapType multiMapType;
+
+    private SegmentFootprint(
+            final int typeCode,
+            @Nullable
+            final String fieldName,
+            final long sizeInBytes,
+            @NotNull
+            final Map<Component, Long> components,
+            @Nullable
+            final V1DatabaseFormat.MultiMapType multiMapType) {
+        this.typeCode = typeCode;
+        this.fieldName = fieldName;
+        this.sizeInBytes = sizeInBytes;
+        this.components = Collections.unmodifiableMap(components);
+        this.multiMapType = multiMapType;
+    }
+
+    public int getTypeCode() {
+        return typeCode;
+    }
+
+    /**
+     * @return segment type or {@code null} for external segments
+     */
+    @Nullable
+    public V1DatabaseFormat.SegmentType getType() {
+        for (V1DatabaseFormat.SegmentType type :
+                V1DatabaseFormat.SegmentType.values()) {
+            if (type.getCode() == typeCode) {
+                return type;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * @return indexed field name or {@code null} for non-index segments
+     */
+    @Nullable
+    public String getFieldName() {
+        return fieldName;
+    }
+
+    /**
+     * @return segment size including {@link #HEADER_SIZE}
+     */
+    public long getSizeInBytes() {
+        return sizeInBytes;
+    }
+
+    /**
+     * @return sizes of known segment components
+     */
+    @NotNull
+    public Map<Component, Long> getComponents() {
+        return components;
+    }
+
+    /**
+     * @return value to documents index type or {@code null} if there is no
+     * such index in the segment
+     */
+    @Nullable
+    public V1DatabaseFormat.MultiMapType getMultiMapType() {
+        return multiMapType;
+    }
+
+    @Override
+    public String toString() {
+        return "SegmentFootprint{" +
+               "typeCode=" + typeCode +
+               ", fieldName=" + fieldName +
+               ", sizeInBytes=" + sizeInBytes +
+               ", components=" + components +
+               ", multiMapType=" + multiMapType +
+               '}';
+    }
+
+    /**
+     * Calculate footprint of the segment without reading it
+     *
+     * @param typeCode segment type code
+     * @param buffer   segment content
+     * @return segment footprint
+     */
+    @NotNull
+    public static SegmentFootprint from(
+            final int typeCode,
+            @NotNull
+            final Buffer buffer) {
+        final Buffer segment = buffer.slice();
+        final long size = HEADER_SIZE + segment.remaining();
+        final Map<Component, Long> components =
+                new EnumMap<>(Component.class);
+
+        if (typeCode == V1DatabaseFormat.SegmentType.PAYLOAD_FULL.getCode() ||
+            typeCode == V1DatabaseFormat.SegmentType
+                    .PAYLOAD_COMPRESSED.getCode()) {
+            components.put(
+                    Component.PAYLOAD,
+                    Segments.extract(segment).remaining());
+            return new SegmentFootprint(
+                    typeCode,
+                    null,
+                    size,
+                    components,
+                    null);
+        }
+
+        if (typeCode ==
+            V1DatabaseFormat.SegmentType.PAYLOAD_SPARSE.getCode()) {
+            // Skip documents count, presence words and ranks
+            segment.advance(4L);
+            final int wordsCount = segment.getInt();
+            segment.advance(12L * wordsCount);
+            components.put(
+                    Component.PAYLOAD,
+                    Segments.extract(segment).remaining());
+            return new SegmentFootprint(
+                    typeCode,
+                    null,
+                    size,
+                    components,
+                    null);
+        }
+
+        if (typeCode ==
+            V1DatabaseFormat.SegmentType.PAYLOAD_DEDUPLICATED.getCode()) {
+            components.put(
+                    Component.DOCUMENT_TO_VALUE,
+                    Segments.extract(segment).remaining());
+            components.put(
+                    Component.PAYLOAD,
+                    Segments.extract(segment).remaining());
+            return new SegmentFootprint(
+                    typeCode,
+                    null,
+                    size,
+                    components,
+                    null);
+        }
+
+        final boolean filterable =
+                typeCode == V1DatabaseFormat.SegmentType
+                        .FIXED_LENGTH_FILTER.getCode() ||
+                typeCode == V1DatabaseFormat.SegmentType
+                        .VARIABLE_LENGTH_FILTER.getCode() ||
+                typeCode == V1DatabaseFormat.SegmentType
+                        .FRONT_CODED_FILTER.getCode();
+        final boolean sortable =
+                typeCode == V1DatabaseFormat.SegmentType
+                        .FIXED_LENGTH_SORTABLE_INDEX.getCode() ||
+                typeCode == V1DatabaseFormat.SegmentType
+                        .VARIABLE_LENGTH_SORTABLE_INDEX.getCode() ||
+                typeCode == V1DatabaseFormat.SegmentType
+                        .FIXED_LENGTH_FULL_INDEX.getCode() ||
+                typeCode == V1DatabaseFormat.SegmentType
+                        .VARIABLE_LENGTH_FULL_INDEX.getCode();
+
+        if (!filterable && !sortable) {
+            // No payload or external segment
+            return new SegmentFootprint(
+                    typeCode,
+                    null,
+                    size,
+                    components,
+                    null);
+        }
+
+        final String fieldName = Segments.extractString(segment);
+        components.put(
+                Component.VALUES,
+                Segments.extract(segment).remaining());
+        final Buffer valueToDocuments = Segments.extract(segment);
+        components.put(
+                Component.VALUE_TO_DOCUMENTS,
+                valueToDocuments.remaining());
+        if (sortable) {
+            components.put(
+                    Component.DOCUMENT_TO_VALUE,
+                    Segments.extract(segment).remaining());
+        }
+
+        final int multiMapTypeCode = valueToDocuments.getInt();
+        V1DatabaseFormat.MultiMapType multiMapType = null;
+        for (V1DatabaseFormat.MultiMapType type :
+                V1DatabaseFormat.MultiMapType.values()) {
+            if (type.getCode() == multiMapTypeCode) {
+                multiMapType = type;
+            }
+        }
+
+        return new SegmentFootprint(
+                typeCode,
+                fieldName,
+                size,
+                components,
+                multiMapType);
+    }
+}
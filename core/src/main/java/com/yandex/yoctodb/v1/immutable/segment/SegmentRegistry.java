@@ -69,6 +69,9 @@ public final class SegmentRegistry {
         V1SortableIndex.registerReader();
         V1FullIndex.registerReader();
         V1FullPayloadSegment.registerReader();
+        V1CompressedPayloadSegment.registerReader();
+        V1SparsePayloadSegment.registerReader();
+        V1DeduplicatedPayloadSegment.registerReader();
         V1NonePayloadSegment.registerReader();
     }
 }
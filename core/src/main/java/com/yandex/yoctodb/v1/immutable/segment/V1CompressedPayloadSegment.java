@@ -0,0 +1,191 @@
+/*
+ * (C) YANDEX LLC, 2014-2016
+ *
+ * The Source Code called "YoctoDB" available at
+ * https://github.com/yandex/yoctodb is subject to the terms of the
+ * Mozilla Public License, v. 2.0 (hereinafter referred to as the "License").
+ *
+ * A copy of the License is also available at http://mozilla.org/MPL/2.0/.
+ */
+
+package com.yandex.yoctodb.v1.immutable.segment;
+
+import com.yandex.yoctodb.immutable.Payload;
+import com.yandex.yoctodb.util.buf.Buffer;
+import com.yandex.yoctodb.v1.V1DatabaseFormat;
+import net.jcip.annotations.GuardedBy;
+import net.jcip.annotations.ThreadSafe;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Immutable block compressed payload segment of V1 format
+ *
+ * Keeps a bounded LRU cache of
+ * {@link V1DatabaseFormat#getPayloadBlockCacheSize()} decompressed blocks.
+ *
+ * @author agent
+ */
+@ThreadSafe
+public final class V1CompressedPayloadSegment implements Payload, Segment {
+    private final int size;
+    private final int documentsPerBlock;
+    @NotNull
+    private final Buffer offsets;
+    @NotNull
+    private final Buffer blocks;
+    @GuardedBy("cache")
+    @NotNull
+    private final Map<Integer, Buffer> cache;
+
+    private V1CompressedPayloadSegment(
+            final int size,
+            final int documentsPerBlock,
+            @NotNull
+            final Buffer offsets,
+            @NotNull
+            final Buffer blocks,
+            final int cacheSize) {
+        assert size >= 0 : "Negative size";
+        assert documentsPerBlock > 0 : "Nonpositive documents per block";
+        assert cacheSize > 0 : "Nonpositive cache size";
+
+        this.size = size;
+        this.documentsPerBlock = documentsPerBlock;
+        this.offsets = offsets;
+        this.blocks = blocks;
+        this.cache =
+                new LinkedHashMap<Integer, Buffer>(16, 0.75f, true) {
+                    @Override
+                    protected boolean removeEldestEntry(
+                            final Map.Entry<Integer, Buffer> eldest) {
+                        return size() > cacheSize;
+                    }
+                };
+    }
+
+    @NotNull
+    private Buffer decompress(final int block) {
+        final long base = ((long) block) << 3;
+        final long start = offsets.getLong(base);
+        final long end = offsets.getLong(base + 8L);
+        final int uncompressedSize = blocks.getInt(start);
+        final byte[] compressed =
+                blocks.slice(start + 4L, end - start - 4L).toByteArray();
+
+        final byte[] result = new byte[uncompressedSize];
+        // Block misses dominate the cost, so the inflater is short-lived
+        // releasing its native memory right away
+        final Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed);
+            int count = 0;
+            while (count < uncompressedSize) {
+                final int inflated =
+                        inflater.inflate(
+                                result,
+                                count,
+                                uncompressedSize - count);
+                if (inflated == 0 &&
+                    (inflater.finished() || inflater.needsInput())) {
+                    throw new IllegalArgumentException(
+                            "Corrupted payload block <" + block + ">");
+                }
+                count += inflated;
+            }
+        } catch (DataFormatException e) {
+            throw new IllegalArgumentException(
+                    "Corrupted payload block <" + block + ">",
+                    e);
+        } finally {
+            inflater.end();
+        }
+
+        return Buffer.from(result);
+    }
+
+    @NotNull
+    private Buffer block(final int block) {
+        synchronized (cache) {
+            final Buffer cached = cache.get(block);
+            if (cached != null) {
+                return cached;
+            }
+        }
+
+        // Decompressing outside of the lock, so concurrent misses may
+        // decompress the same block twice
+        final Buffer result = decompress(block);
+
+        synchronized (cache) {
+            cache.put(block, result);
+        }
+
+        return result;
+    }
+
+    @Override
+    public int getSize() {
+        return size;
+    }
+
+    @NotNull
+    @Override
+    public Buffer getPayload(final int i) {
+        assert 0 <= i && i < size;
+
+        final Buffer block = block(i / documentsPerBlock);
+        final int index = i % documentsPerBlock;
+        final long base = ((long) index) << 2;
+        final int start = block.getInt(base);
+        final int end = block.getInt(base + 4L);
+        final long data =
+                4L * (Math.min(documentsPerBlock, size - i + index) + 1);
+
+        return block.slice(data + start, end - start);
+    }
+
+    @Override
+    public String toString() {
+        return "V1CompressedPayloadSegment{" +
+               "size=" + size +
+               ", documentsPerBlock=" + documentsPerBlock +
+               '}';
+    }
+
+    static void registerReader() {
+        SegmentRegistry.register(
+                V1DatabaseFormat.SegmentType.PAYLOAD_COMPRESSED.getCode(),
+                new SegmentReader() {
+                    @NotNull
+                    @Override
+                    public Segment read(
+                            @NotNull
+                            final Buffer buffer) {
+                        final Buffer data = Segments.extract(buffer);
+                        final int size = data.getInt();
+                        final int documentsPerBlock = data.getInt();
+                        final int blocksCount =
+                                (int) ((size + (long) documentsPerBlock - 1) /
+                                       documentsPerBlock);
+                        final Buffer offsets =
+                                data.slice(((long) (blocksCount + 1)) << 3);
+                        final Buffer blocks =
+                                data.slice()
+                                    .position(offsets.remaining())
+                                    .slice();
+
+                        return new V1CompressedPayloadSegment(
+                                size,
+                                documentsPerBlock,
+                                offsets,
+                                blocks,
+                                V1DatabaseFormat.getPayloadBlockCacheSize());
+                    }
+                });
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * (C) YANDEX LLC, 2014-2016
+ *
+ * The Source Code called "YoctoDB" available at
+ * https://github.com/yandex/yoctodb is subject to the terms of the
+ * Mozilla Public License, v. 2.0 (hereinafter referred to as the "License").
+ *
+ * A copy of the License is also available at http://mozilla.org/MPL/2.0/.
+ */
+
+package com.yandex.yoctodb.v1.immutable.segment;
+
+import com.yandex.yoctodb.immutable.Payload;
+import com.yandex.yoctodb.util.buf.Buffer;
+import com.yandex.yoctodb.util.immutable.ByteArrayIndexedList;
+import com.yandex.yoctodb.util.immutable.IndexToIndexMap;
+import com.yandex.yoctodb.util.immutable.impl.IndexToIndexMapReader;
+import com.yandex.yoctodb.util.immutable.impl.VariableLengthByteArrayIndexedList;
+import com.yandex.yoctodb.v1.V1DatabaseFormat;
+import net.jcip.annotations.Immutable;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Immutable payload segment of V1 format containing distinct payloads
+ * referenced by documents
+ *
+ * @author agent
+ */
+@Immutable
+public final class V1DeduplicatedPayloadSegment implements Payload, Segment {
+    @NotNull
+    private final IndexToIndexMap references;
+    @NotNull
+    private final ByteArrayIndexedList payloads;
+
+    private V1DeduplicatedPayloadSegment(
+            @NotNull
+            final IndexToIndexMap references,
+            @NotNull
+            final ByteArrayIndexedList payloads) {
+        this.references = references;
+        this.payloads = payloads;
+    }
+
+    @Override
+    public int getSize() {
+        return references.size();
+    }
+
+    @NotNull
+    @Override
+    public Buffer getPayload(final int i) {
+        assert 0 <= i && i < references.size();
+
+        return payloads.get(references.get(i));
+    }
+
+    @Override
+    public String toString() {
+        return "V1DeduplicatedPayloadSegment{" +
+               "size=" + references.size() +
+               ", distinct=" + payloads.size() +
+               '}';
+    }
+
+    static void registerReader() {
+        SegmentRegistry.register(
+                V1DatabaseFormat.SegmentType.PAYLOAD_DEDUPLICATED.getCode(),
+                new SegmentReader() {
+                    @NotNull
+                    @Override
+                    public Segment read(
+                            @NotNull
+                            final Buffer buffer) {
+                        final IndexToIndexMap references =
+                                IndexToIndexMapReader.from(
+                                        Segments.extract(buffer));
+                        final ByteArrayIndexedList payloads =
+                                VariableLengthByteArrayIndexedList.from(
+                                        Segments.extract(buffer));
+
+                        return new V1DeduplicatedPayloadSegment(
+                                references,
+                                payloads);
+                    }
+                });
+    }
+}
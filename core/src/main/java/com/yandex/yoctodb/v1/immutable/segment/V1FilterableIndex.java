@@ -15,6 +15,7 @@ import com.yandex.yoctodb.util.buf.Buffer;
 import com.yandex.yoctodb.util.immutable.ByteArraySortedSet;
 import com.yandex.yoctodb.util.immutable.IndexToIndexMultiMap;
 import com.yandex.yoctodb.util.immutable.impl.FixedLengthByteArraySortedSet;
+import com.yandex.yoctodb.util.immutable.impl.FrontCodedByteArraySortedSet;
 import com.yandex.yoctodb.util.immutable.impl.IndexToIndexMultiMapReader;
 import com.yandex.yoctodb.util.immutable.impl.VariableLengthByteArraySortedSet;
 import com.yandex.yoctodb.util.mutable.BitSet;
@@ -197,5 +198,32 @@ public final class V1FilterableIndex implements FilterableIndex, Segment {
 
                 }
         );
+
+        SegmentRegistry.register(
+                V1DatabaseFormat.SegmentType.FRONT_CODED_FILTER.getCode(),
+                new SegmentReader() {
+                    @NotNull
+                    @Override
+                    public Segment read(
+                            @NotNull
+                            final Buffer buffer) {
+                        final String fieldName = Segments.extractString(buffer);
+
+                        final ByteArraySortedSet values =
+                                FrontCodedByteArraySortedSet.from(
+                                        Segments.extract(buffer));
+
+                        final IndexToIndexMultiMap valueToDocuments =
+                                IndexToIndexMultiMapReader.from(
+                                        Segments.extract(buffer));
+
+                        return new V1FilterableIndex(
+                                fieldName,
+                                values,
+                                valueToDocuments);
+                    }
+
+                }
+        );
     }
 }
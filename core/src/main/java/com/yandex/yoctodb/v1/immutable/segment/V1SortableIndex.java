@@ -17,8 +17,8 @@ import com.yandex.yoctodb.util.immutable.IndexToIndexMap;
 import com.yandex.yoctodb.util.immutable.IndexToIndexMultiMap;
 import com.yandex.yoctodb.util.immutable.IntToIntArray;
 import com.yandex.yoctodb.util.immutable.impl.FixedLengthByteArraySortedSet;
+import com.yandex.yoctodb.util.immutable.impl.IndexToIndexMapReader;
 import com.yandex.yoctodb.util.immutable.impl.IndexToIndexMultiMapReader;
-import com.yandex.yoctodb.util.immutable.impl.IntIndexToIndexMap;
 import com.yandex.yoctodb.util.immutable.impl.VariableLengthByteArraySortedSet;
 import com.yandex.yoctodb.util.mutable.BitSet;
 import com.yandex.yoctodb.v1.V1DatabaseFormat;
@@ -114,7 +114,7 @@ public final class V1SortableIndex
                                         Segments.extract(buffer));
 
                         final IndexToIndexMap documentToValues =
-                                IntIndexToIndexMap.from(
+                                IndexToIndexMapReader.from(
                                         Segments.extract(buffer));
 
                         return new V1SortableIndex(
@@ -147,7 +147,7 @@ public final class V1SortableIndex
                                         Segments.extract(buffer));
 
                         final IndexToIndexMap documentToValues =
-                                IntIndexToIndexMap.from(
+                                IndexToIndexMapReader.from(
                                         Segments.extract(buffer));
 
                         return new V1SortableIndex(
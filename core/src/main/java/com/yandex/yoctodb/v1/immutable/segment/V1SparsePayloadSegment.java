@@ -0,0 +1,118 @@
+/*
+ * (C) YANDEX LLC, 2014-2016
+ *
+ * The Source Code called "YoctoDB" available at
+ * https://github.com/yandex/yoctodb is subject to the terms of the
+ * Mozilla Public License, v. 2.0 (hereinafter referred to as the "License").
+ *
+ * A copy of the License is also available at http://mozilla.org/MPL/2.0/.
+ */
+
+package com.yandex.yoctodb.v1.immutable.segment;
+
+import com.yandex.yoctodb.immutable.Payload;
+import com.yandex.yoctodb.util.buf.Buffer;
+import com.yandex.yoctodb.util.immutable.ByteArrayIndexedList;
+import com.yandex.yoctodb.util.immutable.impl.VariableLengthByteArrayIndexedList;
+import com.yandex.yoctodb.v1.V1DatabaseFormat;
+import net.jcip.annotations.Immutable;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.NoSuchElementException;
+
+/**
+ * Immutable payload segment of V1 format containing payloads of some
+ * documents
+ *
+ * Documents without payload throw {@link NoSuchElementException}.
+ *
+ * @author agent
+ */
+@Immutable
+public final class V1SparsePayloadSegment implements Payload, Segment {
+    private final int size;
+    @NotNull
+    private final Buffer words;
+    @NotNull
+    private final Buffer ranks;
+    @NotNull
+    private final ByteArrayIndexedList payloads;
+
+    private V1SparsePayloadSegment(
+            final int size,
+            @NotNull
+            final Buffer words,
+            @NotNull
+            final Buffer ranks,
+            @NotNull
+            final ByteArrayIndexedList payloads) {
+        assert size >= 0 : "Negative size";
+
+        this.size = size;
+        this.words = words;
+        this.ranks = ranks;
+        this.payloads = payloads;
+    }
+
+    @Override
+    public int getSize() {
+        return size;
+    }
+
+    @NotNull
+    @Override
+    public Buffer getPayload(final int i) {
+        assert 0 <= i && i < size;
+
+        final int word = i >>> 6;
+        final long presence = words.getLong(((long) word) << 3);
+        final long bit = 1L << i;
+        if ((presence & bit) == 0) {
+            throw new NoSuchElementException("No payload");
+        }
+
+        final int rank =
+                ranks.getInt(((long) word) << 2) +
+                Long.bitCount(presence & (bit - 1));
+
+        return payloads.get(rank);
+    }
+
+    @Override
+    public String toString() {
+        return "V1SparsePayloadSegment{" +
+               "size=" + size +
+               ", payloads=" + payloads.size() +
+               '}';
+    }
+
+    static void registerReader() {
+        SegmentRegistry.register(
+                V1DatabaseFormat.SegmentType.PAYLOAD_SPARSE.getCode(),
+                new SegmentReader() {
+                    @NotNull
+                    @Override
+                    public Segment read(
+                            @NotNull
+                            final Buffer buffer) {
+                        final int size = buffer.getInt();
+                        final int wordsCount = buffer.getInt();
+                        final Buffer words =
+                                buffer.slice(((long) wordsCount) << 3);
+                        buffer.advance(words.remaining());
+                        final Buffer ranks =
+                                buffer.slice(((long) wordsCount) << 2);
+                        buffer.advance(ranks.remaining());
+                        final ByteArrayIndexedList payloads =
+                                VariableLengthByteArrayIndexedList.from(
+                                        Segments.extract(buffer));
+
+                        return new V1SparsePayloadSegment(
+                                size,
+                                words,
+                                ranks,
+                                payloads);
+                    }
+                });
+    }
+}
@@ -0,0 +1,247 @@
+/*
+ * (C) YANDEX LLC, 2014-2016
+ *
+ * The Source Code called "YoctoDB" available at
+ * https://github.com/yandex/yoctodb is subject to the terms of the
+ * Mozilla Public License, v. 2.0 (hereinafter referred to as the "License").
+ *
+ * A copy of the License is also available at http://mozilla.org/MPL/2.0/.
+ */
+
+package com.yandex.yoctodb.v1.mutable;
+
+import com.google.common.primitives.Ints;
+import com.google.common.primitives.Longs;
+import net.jcip.annotations.NotThreadSafe;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+
+/**
+ * Wraps {@link OutputStream} and collects the segment directory while the
+ * segments are written
+ *
+ * Segments are self-describing: each one starts with its data size
+ * ({@code long}) and type ({@code int}) followed by the data, so the
+ * directory is built from the segment headers.
+ *
+ * Directory format:
+ *
+ * <pre>
+ * {@code
+ * segments count (int)
+ * entries
+ *   entry1
+ *     type (int)
+ *     field name length (int)
+ *     field name (byte) * field name length
+ *     data offset (long)
+ *     data size (long)
+ *     data digest (byte) * digest size
+ *   entry2
+ *   ...
+ * directory size (long)
+ * }
+ * </pre>
+ *
+ * Data offsets are relative to the first segment. Segments may be
+ * separated by zero padding. Payload segment field name is empty.
+ *
+ * @author agent
+ */
+@NotThreadSafe
+final class SegmentDirectoryOutputStream extends OutputStream {
+    // Segment size and type
+    private static final int SEGMENT_HEADER_SIZE = 8 + 4;
+
+    @NotNull
+    private final OutputStream delegate;
+    @NotNull
+    private final MessageDigest digest;
+    private final ByteArrayOutputStream entries = new ByteArrayOutputStream();
+    private final byte[] header = new byte[SEGMENT_HEADER_SIZE];
+    private int segmentsCount = 0;
+    private long position = 0L;
+    private long segmentStart = -1L;
+    @Nullable
+    private byte[] fieldName = null;
+
+    /**
+     * @param delegate stream to write segments to
+     * @param digest   digest to calculate for segment data
+     */
+    SegmentDirectoryOutputStream(
+            @NotNull
+            final OutputStream delegate,
+            @NotNull
+            final MessageDigest digest) {
+        this.delegate = delegate;
+        this.digest = digest;
+    }
+
+    /**
+     * @param fieldNames field names of the segments or {@code null}s for
+     *                   payload segments
+     * @param digestSize segment digest size in bytes
+     * @return directory size in bytes including its trailing size
+     */
+    static long getSizeInBytes(
+            @NotNull
+            final Iterable<String> fieldNames,
+            final int digestSize) {
+        long result = 4L + // Segments count
+                      8L; // Directory size
+        for (String fieldName : fieldNames) {
+            result += 4L + // Type
+                      4L + // Field name length
+                      (fieldName == null ? 0 : fieldName.getBytes().length) +
+                      8L + // Data offset
+                      8L + // Data size
+                      digestSize;
+        }
+
+        return result;
+    }
+
+    /**
+     * @param position  segment position in the file
+     * @param alignment segment data alignment in bytes
+     * @return count of bytes to pad before the segment so that its data
+     * starts at {@code alignment} boundary
+     */
+    static long padding(
+            final long position,
+            final int alignment) {
+        assert alignment > 0;
+
+        final long rest = (position + SEGMENT_HEADER_SIZE) % alignment;
+
+        return rest == 0 ? 0L : alignment - rest;
+    }
+
+    /**
+     * Pads the stream with zeros so that the data of the next segment
+     * starts at {@code alignment} boundary of the file
+     *
+     * @param base      position of the first segment in the file
+     * @param alignment segment data alignment in bytes
+     * @throws IOException if writing fails
+     */
+    void align(
+            final long base,
+            final int alignment) throws IOException {
+        assert segmentStart < 0 : "Segment is not finished";
+
+        final long padding = padding(base + position, alignment);
+        assert padding < alignment;
+
+        delegate.write(new byte[(int) padding]);
+        position += padding;
+    }
+
+    void startSegment(
+            @Nullable
+            final String fieldName) {
+        assert segmentStart < 0 : "Segment is not finished";
+
+        this.segmentStart = position;
+        this.fieldName =
+                fieldName == null ? new byte[0] : fieldName.getBytes();
+        this.digest.reset();
+    }
+
+    void finishSegment() throws IOException {
+        assert segmentStart >= 0 : "Segment is not started";
+        assert fieldName != null;
+
+        final long size = Longs.fromByteArray(header);
+        final int type =
+                Ints.fromBytes(header[8], header[9], header[10], header[11]);
+        if (position - segmentStart != SEGMENT_HEADER_SIZE + size)
+            throw new IllegalStateException("Wrong segment size");
+
+        entries.write(Ints.toByteArray(type));
+        entries.write(Ints.toByteArray(fieldName.length));
+        entries.write(fieldName);
+        entries.write(Longs.toByteArray(segmentStart + SEGMENT_HEADER_SIZE));
+        entries.write(Longs.toByteArray(size));
+        entries.write(digest.digest());
+
+        segmentsCount++;
+        segmentStart = -1L;
+        fieldName = null;
+    }
+
+    /**
+     * Writes the directory to {@code os} following the segments
+     *
+     * @param os stream to write the directory to
+     * @throws IOException if writing fails
+     */
+    void writeDirectory(
+            @NotNull
+            final OutputStream os) throws IOException {
+        assert segmentStart < 0 : "Segment is not finished";
+
+        final long size = 4L + entries.size() + 8L;
+        os.write(Ints.toByteArray(segmentsCount));
+        entries.writeTo(os);
+        os.write(Longs.toByteArray(size));
+    }
+
+    @Override
+    public void write(final int b) throws IOException {
+        final long offsetInSegment = position - segmentStart;
+        if (segmentStart >= 0) {
+            if (offsetInSegment < SEGMENT_HEADER_SIZE) {
+                header[(int) offsetInSegment] = (byte) b;
+            } else {
+                digest.update((byte) b);
+            }
+        }
+        delegate.write(b);
+        position++;
+    }
+
+    @Override
+    public void write(
+            @NotNull
+            final byte[] b,
+            final int off,
+            final int len)
+            throws IOException {
+        final long offsetInSegment = position - segmentStart;
+        if (segmentStart >= 0) {
+            int headerBytes = 0;
+            if (offsetInSegment < SEGMENT_HEADER_SIZE) {
+                headerBytes =
+                        (int) Math.min(
+                                len,
+                                SEGMENT_HEADER_SIZE - offsetInSegment);
+                System.arraycopy(
+                        b,
+                        off,
+                        header,
+                        (int) offsetInSegment,
+                        headerBytes);
+            }
+            digest.update(b, off + headerBytes, len - headerBytes);
+        }
+        delegate.write(b, off, len);
+        position += len;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        delegate.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        delegate.close();
+    }
+}
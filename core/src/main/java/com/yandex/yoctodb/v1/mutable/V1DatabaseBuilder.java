@@ -11,6 +11,7 @@
 package com.yandex.yoctodb.v1.mutable;
 
 import com.google.common.primitives.Ints;
+import com.google.common.primitives.Longs;
 import com.yandex.yoctodb.DatabaseFormat;
 import com.yandex.yoctodb.mutable.DatabaseBuilder;
 import com.yandex.yoctodb.mutable.DocumentBuilder;
@@ -25,6 +26,7 @@ import org.jetbrains.annotations.NotNull;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.*;
@@ -46,6 +48,85 @@ public final class V1DatabaseBuilder
     private final Map<String, IndexSegment> indexes =
             new HashMap<>();
 
+    // Documents per compressed payload block or 0 if not compressed
+    private int payloadDocumentsPerBlock = 0;
+
+    // Whether identical payloads are stored once
+    private boolean deduplicatePayloads = false;
+
+    // Whether segment data starts at page boundaries
+    private boolean alignSegments = false;
+
+    /**
+     * Compress payloads in blocks of
+     * {@link V1CompressedPayloadSegment#DEFAULT_DOCUMENTS_PER_BLOCK}
+     * documents
+     *
+     * Applies only if all the documents have payload.
+     *
+     * @return this builder
+     */
+    @NotNull
+    public V1DatabaseBuilder withCompressedPayloads() {
+        return withCompressedPayloads(
+                V1CompressedPayloadSegment.DEFAULT_DOCUMENTS_PER_BLOCK);
+    }
+
+    /**
+     * Compress payloads in blocks of {@code documentsPerBlock} documents
+     *
+     * @param documentsPerBlock documents per compressed block
+     * @return this builder
+     */
+    @NotNull
+    public V1DatabaseBuilder withCompressedPayloads(
+            final int documentsPerBlock) {
+        if (documentsPerBlock <= 0)
+            throw new IllegalArgumentException(
+                    "Nonpositive documents per block");
+
+        checkNotFrozen();
+
+        this.payloadDocumentsPerBlock = documentsPerBlock;
+
+        return this;
+    }
+
+    /**
+     * Store identical payloads once referencing them from the documents
+     *
+     * Applies only if all the documents have payload and takes precedence
+     * over {@link #withCompressedPayloads()}.
+     *
+     * @return this builder
+     */
+    @NotNull
+    public V1DatabaseBuilder withDeduplicatedPayloads() {
+        checkNotFrozen();
+
+        this.deduplicatePayloads = true;
+
+        return this;
+    }
+
+    /**
+     * Pad segments so that segment data starts at
+     * {@link V1DatabaseFormat#PAGE_SIZE} boundaries of the database file
+     *
+     * Mapped segments then don't share pages, so access hints and warm-up
+     * of a segment don't touch its neighbours.
+     *
+     * @return this builder
+     */
+    @NotNull
+    public V1DatabaseBuilder withPageAlignedSegments() {
+        checkNotFrozen();
+
+        this.alignSegments = true;
+
+        return this;
+    }
+
     @NotNull
     @Override
     public DatabaseBuilder merge(
@@ -84,7 +165,7 @@ public final class V1DatabaseBuilder
                     case FILTERABLE:
                         index = new V1FilterableIndex(
                                 fieldName,
-                                lengthOption == DocumentBuilder.LengthOption.FIXED
+                                lengthOption
                         );
                         break;
                     case SORTABLE:
@@ -135,79 +216,128 @@ public final class V1DatabaseBuilder
 
         final List<OutputStreamWritable> writables =
                 new ArrayList<>(indexes.size() + 1);
-        final Iterator<IndexSegment> indexSegmentIterator =
-                indexes.values().iterator();
+        // Segment field names or null for payload
+        final List<String> fieldNames = new ArrayList<>(indexes.size() + 1);
+        final Iterator<Map.Entry<String, IndexSegment>> indexSegmentIterator =
+                indexes.entrySet().iterator();
         while (indexSegmentIterator.hasNext()) {
-            final IndexSegment segment = indexSegmentIterator.next();
+            final Map.Entry<String, IndexSegment> e =
+                    indexSegmentIterator.next();
+            final IndexSegment segment = e.getValue();
             segment.setDatabaseDocumentsCount(currentDocumentId);
             writables.add(segment.buildWritable());
+            fieldNames.add(e.getKey());
             indexSegmentIterator.remove();
         }
+        fieldNames.add(null);
 
         if (payloads.isEmpty()) {
             writables.add(
                     new V1NonePayloadSegment(currentDocumentId)
                             .buildWritable());
         } else if (payloads.size() == currentDocumentId) {
+            if (deduplicatePayloads) {
+                writables.add(
+                        new V1DeduplicatedPayloadSegment(payloads.values())
+                                .buildWritable());
+            } else if (payloadDocumentsPerBlock > 0) {
+                writables.add(
+                        new V1CompressedPayloadSegment(
+                                payloads.values(),
+                                payloadDocumentsPerBlock)
+                                .buildWritable());
+            } else {
+                writables.add(
+                        new V1FullPayloadSegment(payloads.values())
+                                .buildWritable());
+            }
+        } else {
             writables.add(
-                    new V1FullPayloadSegment(payloads.values())
+                    new V1SparsePayloadSegment(payloads, currentDocumentId)
                             .buildWritable());
-        } else {
-            throw new UnsupportedOperationException(
-                    "Sparse payloads not supported yet");
         }
 
         return new OutputStreamWritable() {
             @Override
             public long getSizeInBytes() {
-                long size =
+                final int digestSize = V1DatabaseFormat.getDigestSizeInBytes();
+
+                final long headerSize =
                         V1DatabaseFormat.MAGIC.length +
                         Ints.BYTES + // Format length
-                        V1DatabaseFormat.getDigestSizeInBytes();
+                        Ints.BYTES + // Digest algorithm length
+                        V1DatabaseFormat.getMessageDigestAlgorithm()
+                                .getBytes(StandardCharsets.US_ASCII).length;
 
+                long segmentsSize = 0L;
                 for (OutputStreamWritable writable : writables) {
-                    size += writable.getSizeInBytes();
+                    if (alignSegments) {
+                        segmentsSize +=
+                                SegmentDirectoryOutputStream.padding(
+                                        headerSize + segmentsSize,
+                                        V1DatabaseFormat.PAGE_SIZE);
+                    }
+                    segmentsSize += Longs.BYTES + // Segment size
+                                    Ints.BYTES + // Segment type
+                                    writable.getSizeInBytes();
                 }
 
-                return size;
+                return headerSize +
+                       segmentsSize +
+                       SegmentDirectoryOutputStream.getSizeInBytes(
+                               fieldNames,
+                               digestSize) +
+                       digestSize;
             }
 
             @Override
             public void writeTo(
                     @NotNull
                     final OutputStream os) throws IOException {
-                // Header
-                os.write(DatabaseFormat.MAGIC);
-                os.write(Ints.toByteArray(V1DatabaseFormat.FORMAT));
-
+                final String algorithm =
+                        V1DatabaseFormat.getMessageDigestAlgorithm();
                 final MessageDigest md;
+                final MessageDigest segmentMd;
                 try {
-                    md = MessageDigest.getInstance(
-                            V1DatabaseFormat.getMessageDigestAlgorithm());
+                    md = V1DatabaseFormat.newMessageDigest(algorithm);
+                    segmentMd = V1DatabaseFormat.newMessageDigest(algorithm);
                 } catch (NoSuchAlgorithmException e) {
                     throw new RuntimeException(e);
                 }
 
                 md.reset();
 
-                // With digest calculation
-                final MessageDigestOutputStreamWrapper mdos =
-                        new MessageDigestOutputStreamWrapper(os, md);
-
-                // Segments
-                for (OutputStreamWritable writable : writables) {
-                    writable.writeTo(mdos);
+                // Header
+                os.write(DatabaseFormat.MAGIC);
+                os.write(Ints.toByteArray(V1DatabaseFormat.FORMAT));
+                final byte[] algorithmBytes =
+                        algorithm.getBytes(StandardCharsets.US_ASCII);
+                os.write(Ints.toByteArray(algorithmBytes.length));
+                os.write(algorithmBytes);
+                final long headerSize =
+                        DatabaseFormat.MAGIC.length +
+                        Ints.BYTES + // Format
+                        Ints.BYTES + // Digest algorithm length
+                        algorithmBytes.length;
+
+                // Segments with per segment digest calculation
+                final SegmentDirectoryOutputStream dos =
+                        new SegmentDirectoryOutputStream(os, segmentMd);
+                for (int i = 0; i < writables.size(); i++) {
+                    if (alignSegments) {
+                        dos.align(headerSize, V1DatabaseFormat.PAGE_SIZE);
+                    }
+                    dos.startSegment(fieldNames.get(i));
+                    writables.get(i).writeTo(dos);
+                    dos.finishSegment();
                 }
 
-                // Writing checksum
-                if (V1DatabaseFormat.getDigestSizeInBytes() !=
-                    md.getDigestLength()) {
-                    throw new IllegalStateException(
-                            "Wrong digest size (" +
-                            V1DatabaseFormat.getDigestSizeInBytes() +
-                            " != " + md.getDigestLength() + ")");
-                }
+                // Segment directory with digest calculation
+                final MessageDigestOutputStreamWrapper mdos =
+                        new MessageDigestOutputStreamWrapper(os, md);
+                dos.writeDirectory(mdos);
 
+                // Writing directory checksum
                 os.write(mdos.digest());
             }
         };
@@ -19,7 +19,7 @@ import com.yandex.yoctodb.util.mutable.ByteArraySortedSet;
 import com.yandex.yoctodb.util.mutable.IndexToIndexMap;
 import com.yandex.yoctodb.util.mutable.IndexToIndexMultiMap;
 import com.yandex.yoctodb.util.mutable.impl.FixedLengthByteArraySortedSet;
-import com.yandex.yoctodb.util.mutable.impl.IntIndexToIndexMap;
+import com.yandex.yoctodb.util.mutable.impl.IndexToIndexMapFactory;
 import com.yandex.yoctodb.util.mutable.impl.IntIndexToIndexMultiMap;
 import com.yandex.yoctodb.util.mutable.impl.VariableLengthByteArraySortedSet;
 import com.yandex.yoctodb.v1.V1DatabaseFormat;
@@ -112,7 +112,10 @@ abstract class AbstractV1FullIndex
                             valueToDocuments.keySet());
         }
 
-        final IndexToIndexMap documentToValueIndex = new IntIndexToIndexMap();
+        final IndexToIndexMap documentToValueIndex =
+                IndexToIndexMapFactory.buildIndexToIndexMap(
+                        documentToValue.size(),
+                        valueToDocuments.keySet().size());
         for (Map.Entry<Integer, UnsignedByteArray> entry :
                 documentToValue.entrySet()) {
             documentToValueIndex.put(
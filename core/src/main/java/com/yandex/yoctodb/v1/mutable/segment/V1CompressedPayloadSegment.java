@@ -0,0 +1,192 @@
+/*
+ * (C) YANDEX LLC, 2014-2016
+ *
+ * The Source Code called "YoctoDB" available at
+ * https://github.com/yandex/yoctodb is subject to the terms of the
+ * Mozilla Public License, v. 2.0 (hereinafter referred to as the "License").
+ *
+ * A copy of the License is also available at http://mozilla.org/MPL/2.0/.
+ */
+
+package com.yandex.yoctodb.v1.mutable.segment;
+
+import com.google.common.primitives.Ints;
+import com.google.common.primitives.Longs;
+import com.yandex.yoctodb.util.OutputStreamWritable;
+import com.yandex.yoctodb.util.UnsignedByteArray;
+import com.yandex.yoctodb.v1.V1DatabaseFormat;
+import net.jcip.annotations.NotThreadSafe;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.zip.Deflater;
+
+/**
+ * Payload segment grouping payloads of consecutive documents into blocks
+ * compressed with {@link Deflater}
+ *
+ * Format:
+ *
+ * <pre>
+ * {@code
+ * documents count (int)
+ * documents per block (int)
+ * block offsets
+ *   offset1 (long)
+ *   offset2 (long)
+ *   ...
+ *   end offset (long)
+ * blocks
+ *   block1
+ *     uncompressed size (int)
+ *     compressed
+ *       payload offsets (int) * (documents in block + 1)
+ *       payloads
+ *   block2
+ *   ...
+ * }
+ * </pre>
+ *
+ * @author agent
+ */
+@NotThreadSafe
+public final class V1CompressedPayloadSegment
+        extends Freezable
+        implements PayloadSegment {
+    public static final int DEFAULT_DOCUMENTS_PER_BLOCK = 64;
+
+    @NotNull
+    private final Collection<UnsignedByteArray> payloads;
+    private final int documentsPerBlock;
+
+    public V1CompressedPayloadSegment(
+            @NotNull
+            final Collection<UnsignedByteArray> payloads,
+            final int documentsPerBlock) {
+        if (documentsPerBlock <= 0)
+            throw new IllegalArgumentException(
+                    "Nonpositive documents per block");
+
+        this.payloads = payloads;
+        this.documentsPerBlock = documentsPerBlock;
+    }
+
+    @NotNull
+    private static byte[] compress(
+            @NotNull
+            final List<UnsignedByteArray> block) throws IOException {
+        // Uncompressed block
+        final ByteArrayOutputStream raw = new ByteArrayOutputStream();
+        int offset = 0;
+        raw.write(Ints.toByteArray(offset));
+        for (UnsignedByteArray payload : block) {
+            offset += payload.length();
+            raw.write(Ints.toByteArray(offset));
+        }
+        for (UnsignedByteArray payload : block) {
+            payload.writeTo(raw);
+        }
+        final byte[] input = raw.toByteArray();
+
+        // Compressed block
+        final ByteArrayOutputStream result = new ByteArrayOutputStream();
+        result.write(Ints.toByteArray(input.length));
+        final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(input);
+            deflater.finish();
+            final byte[] buffer = new byte[4096];
+            while (!deflater.finished()) {
+                final int count = deflater.deflate(buffer);
+                result.write(buffer, 0, count);
+            }
+        } finally {
+            deflater.end();
+        }
+
+        return result.toByteArray();
+    }
+
+    @NotNull
+    @Override
+    public OutputStreamWritable buildWritable() {
+        checkNotFrozen();
+
+        freeze();
+
+        // Compressing blocks
+        final List<byte[]> blocks = new ArrayList<>();
+        final List<UnsignedByteArray> block =
+                new ArrayList<>(documentsPerBlock);
+        try {
+            for (UnsignedByteArray payload : payloads) {
+                block.add(payload);
+                if (block.size() == documentsPerBlock) {
+                    blocks.add(compress(block));
+                    block.clear();
+                }
+            }
+            if (!block.isEmpty()) {
+                blocks.add(compress(block));
+            }
+        } catch (IOException e) {
+            // Writing to memory
+            throw new IllegalStateException(e);
+        }
+
+        long blocksSize = 0L;
+        for (byte[] b : blocks) {
+            blocksSize += b.length;
+        }
+        final long dataSize =
+                4L + // Documents count
+                4L + // Documents per block
+                8L * (blocks.size() + 1) + // Block offsets
+                blocksSize;
+
+        return new OutputStreamWritable() {
+            @Override
+            public long getSizeInBytes() {
+                //without code and full size (8 bytes)
+                return 8 + // Payload
+                       dataSize;
+            }
+
+            @Override
+            public void writeTo(
+                    @NotNull
+                    final OutputStream os) throws IOException {
+                // full size in bytes
+                os.write(Longs.toByteArray(getSizeInBytes()));
+
+                // Payload segment type
+                os.write(
+                        Ints.toByteArray(
+                                V1DatabaseFormat.SegmentType
+                                        .PAYLOAD_COMPRESSED
+                                        .getCode()));
+
+                // data
+                os.write(Longs.toByteArray(dataSize));
+                os.write(Ints.toByteArray(payloads.size()));
+                os.write(Ints.toByteArray(documentsPerBlock));
+
+                long offset = 0L;
+                for (byte[] b : blocks) {
+                    os.write(Longs.toByteArray(offset));
+                    offset += b.length;
+                }
+                os.write(Longs.toByteArray(offset));
+
+                for (byte[] b : blocks) {
+                    os.write(b);
+                }
+            }
+        };
+    }
+}
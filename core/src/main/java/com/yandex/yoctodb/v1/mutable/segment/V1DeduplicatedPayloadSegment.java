@@ -0,0 +1,123 @@
+/*
+ * (C) YANDEX LLC, 2014-2016
+ *
+ * The Source Code called "YoctoDB" available at
+ * https://github.com/yandex/yoctodb is subject to the terms of the
+ * Mozilla Public License, v. 2.0 (hereinafter referred to as the "License").
+ *
+ * A copy of the License is also available at http://mozilla.org/MPL/2.0/.
+ */
+
+package com.yandex.yoctodb.v1.mutable.segment;
+
+import com.google.common.primitives.Ints;
+import com.google.common.primitives.Longs;
+import com.yandex.yoctodb.util.OutputStreamWritable;
+import com.yandex.yoctodb.util.UnsignedByteArray;
+import com.yandex.yoctodb.util.mutable.ByteArrayIndexedList;
+import com.yandex.yoctodb.util.mutable.IndexToIndexMap;
+import com.yandex.yoctodb.util.mutable.impl.IndexToIndexMapFactory;
+import com.yandex.yoctodb.util.mutable.impl.VariableLengthByteArrayIndexedList;
+import com.yandex.yoctodb.v1.V1DatabaseFormat;
+import net.jcip.annotations.NotThreadSafe;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Payload segment storing each distinct payload once and referencing it by
+ * index from the documents
+ *
+ * Format:
+ *
+ * <pre>
+ * {@code
+ * document to payload map size (long)
+ * document to payload map
+ * payloads size (long)
+ * distinct payloads
+ * }
+ * </pre>
+ *
+ * @author agent
+ */
+@NotThreadSafe
+public final class V1DeduplicatedPayloadSegment
+        extends Freezable
+        implements PayloadSegment {
+    @NotNull
+    private final Collection<UnsignedByteArray> payloads;
+
+    public V1DeduplicatedPayloadSegment(
+            @NotNull
+            final Collection<UnsignedByteArray> payloads) {
+        this.payloads = payloads;
+    }
+
+    @NotNull
+    @Override
+    public OutputStreamWritable buildWritable() {
+        checkNotFrozen();
+
+        freeze();
+
+        // Distinct payloads in order of first occurrence
+        final Map<UnsignedByteArray, Integer> distinct =
+                new LinkedHashMap<>();
+        for (UnsignedByteArray payload : payloads) {
+            if (!distinct.containsKey(payload)) {
+                distinct.put(payload, distinct.size());
+            }
+        }
+
+        final IndexToIndexMap references =
+                IndexToIndexMapFactory.buildIndexToIndexMap(
+                        payloads.size(),
+                        distinct.size());
+        int document = 0;
+        for (UnsignedByteArray payload : payloads) {
+            references.put(document++, distinct.get(payload));
+        }
+
+        final ByteArrayIndexedList list =
+                new VariableLengthByteArrayIndexedList(distinct.keySet());
+
+        return new OutputStreamWritable() {
+            @Override
+            public long getSizeInBytes() {
+                //without code and full size (8 bytes)
+                return 8L + // References
+                       references.getSizeInBytes() +
+                       8L + // Payloads
+                       list.getSizeInBytes();
+            }
+
+            @Override
+            public void writeTo(
+                    @NotNull
+                    final OutputStream os) throws IOException {
+                // full size in bytes
+                os.write(Longs.toByteArray(getSizeInBytes()));
+
+                // Payload segment type
+                os.write(
+                        Ints.toByteArray(
+                                V1DatabaseFormat.SegmentType
+                                        .PAYLOAD_DEDUPLICATED
+                                        .getCode()));
+
+                // References
+                os.write(Longs.toByteArray(references.getSizeInBytes()));
+                references.writeTo(os);
+
+                // data
+                os.write(Longs.toByteArray(list.getSizeInBytes()));
+                list.writeTo(os);
+            }
+        };
+    }
+}
@@ -13,10 +13,12 @@ package com.yandex.yoctodb.v1.mutable.segment;
 import com.google.common.collect.TreeMultimap;
 import com.google.common.primitives.Ints;
 import com.google.common.primitives.Longs;
+import com.yandex.yoctodb.mutable.DocumentBuilder;
 import com.yandex.yoctodb.util.OutputStreamWritable;
 import com.yandex.yoctodb.util.UnsignedByteArray;
 import com.yandex.yoctodb.util.mutable.IndexToIndexMultiMap;
 import com.yandex.yoctodb.util.mutable.impl.FixedLengthByteArraySortedSet;
+import com.yandex.yoctodb.util.mutable.impl.FrontCodedByteArraySortedSet;
 import com.yandex.yoctodb.util.mutable.impl.IndexToIndexMultiMapFactory;
 import com.yandex.yoctodb.util.mutable.impl.VariableLengthByteArraySortedSet;
 import com.yandex.yoctodb.v1.V1DatabaseFormat;
@@ -40,15 +42,28 @@ public final class V1FilterableIndex
     private final byte[] fieldName;
     private TreeMultimap<UnsignedByteArray, Integer> valueToDocuments =
             TreeMultimap.create();
-    private final boolean fixedLength;
+    @NotNull
+    private final DocumentBuilder.LengthOption length;
     private int databaseDocumentsCount = -1;
 
     public V1FilterableIndex(
             @NotNull
             final String fieldName,
             final boolean fixedLength) {
+        this(
+                fieldName,
+                fixedLength ?
+                        DocumentBuilder.LengthOption.FIXED :
+                        DocumentBuilder.LengthOption.VARIABLE);
+    }
+
+    public V1FilterableIndex(
+            @NotNull
+            final String fieldName,
+            @NotNull
+            final DocumentBuilder.LengthOption length) {
         this.fieldName = fieldName.getBytes();
-        this.fixedLength = fixedLength;
+        this.length = length;
     }
 
     @NotNull
@@ -92,14 +107,32 @@ public final class V1FilterableIndex
                         databaseDocumentsCount);
 
         final OutputStreamWritable values;
-        if (fixedLength) {
-            values =
-                    new FixedLengthByteArraySortedSet(
-                            valueToDocuments.keySet());
-        } else {
-            values =
-                    new VariableLengthByteArraySortedSet(
-                            valueToDocuments.keySet());
+        final V1DatabaseFormat.SegmentType segmentType;
+        switch (length) {
+            case FIXED:
+                values =
+                        new FixedLengthByteArraySortedSet(
+                                valueToDocuments.keySet());
+                segmentType =
+                        V1DatabaseFormat.SegmentType.FIXED_LENGTH_FILTER;
+                break;
+            case VARIABLE:
+                values =
+                        new VariableLengthByteArraySortedSet(
+                                valueToDocuments.keySet());
+                segmentType =
+                        V1DatabaseFormat.SegmentType.VARIABLE_LENGTH_FILTER;
+                break;
+            case FRONT_CODED:
+                values =
+                        new FrontCodedByteArraySortedSet(
+                                valueToDocuments.keySet());
+                segmentType =
+                        V1DatabaseFormat.SegmentType.FRONT_CODED_FILTER;
+                break;
+            default:
+                throw new UnsupportedOperationException(
+                        "Unsupported length option: " + length);
         }
 
         // Free memory
@@ -123,17 +156,7 @@ public final class V1FilterableIndex
                 os.write(Longs.toByteArray(getSizeInBytes()));
 
                 // Payload segment type
-                os.write(
-                        Ints.toByteArray(
-                                fixedLength ?
-                                        V1DatabaseFormat.SegmentType
-                                                .FIXED_LENGTH_FILTER
-                                                .getCode() :
-                                        V1DatabaseFormat.SegmentType
-                                                .VARIABLE_LENGTH_FILTER
-                                                .getCode()
-                        )
-                );
+                os.write(Ints.toByteArray(segmentType.getCode()));
 
                 // Field name
                 os.write(Ints.toByteArray(fieldName.length));
@@ -0,0 +1,134 @@
+/*
+ * (C) YANDEX LLC, 2014-2016
+ *
+ * The Source Code called "YoctoDB" available at
+ * https://github.com/yandex/yoctodb is subject to the terms of the
+ * Mozilla Public License, v. 2.0 (hereinafter referred to as the "License").
+ *
+ * A copy of the License is also available at http://mozilla.org/MPL/2.0/.
+ */
+
+package com.yandex.yoctodb.v1.mutable.segment;
+
+import com.google.common.primitives.Ints;
+import com.google.common.primitives.Longs;
+import com.yandex.yoctodb.util.OutputStreamWritable;
+import com.yandex.yoctodb.util.UnsignedByteArray;
+import com.yandex.yoctodb.util.mutable.ByteArrayIndexedList;
+import com.yandex.yoctodb.util.mutable.impl.VariableLengthByteArrayIndexedList;
+import com.yandex.yoctodb.v1.V1DatabaseFormat;
+import net.jcip.annotations.NotThreadSafe;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.SortedMap;
+
+/**
+ * Payload segment of documents only some of which have payload
+ *
+ * Presence of document {@code i} payload is bit {@code i % 64} of word
+ * {@code i / 64}. Its index among the existing payloads is the rank of the
+ * word plus the number of ones before the bit in the word.
+ *
+ * Format:
+ *
+ * <pre>
+ * {@code
+ * documents count (int)
+ * words count (int)
+ * presence words (long) * words count
+ * ranks (int) * words count
+ * payloads size (long)
+ * payloads
+ * }
+ * </pre>
+ *
+ * @author agent
+ */
+@NotThreadSafe
+public final class V1SparsePayloadSegment
+        extends Freezable
+        implements PayloadSegment {
+    @NotNull
+    private final SortedMap<Integer, UnsignedByteArray> payloads;
+    private final int documentsCount;
+
+    public V1SparsePayloadSegment(
+            @NotNull
+            final SortedMap<Integer, UnsignedByteArray> payloads,
+            final int documentsCount) {
+        if (documentsCount < 0)
+            throw new IllegalArgumentException("Negative documents count");
+        if (!payloads.isEmpty() &&
+            (payloads.firstKey() < 0 || payloads.lastKey() >= documentsCount))
+            throw new IllegalArgumentException("Document out of bounds");
+
+        this.payloads = payloads;
+        this.documentsCount = documentsCount;
+    }
+
+    @NotNull
+    @Override
+    public OutputStreamWritable buildWritable() {
+        checkNotFrozen();
+
+        freeze();
+
+        final int wordsCount = (documentsCount + Long.SIZE - 1) >>> 6;
+        final long[] words = new long[wordsCount];
+        for (int document : payloads.keySet()) {
+            words[document >>> 6] |= 1L << document;
+        }
+
+        final ByteArrayIndexedList list =
+                new VariableLengthByteArrayIndexedList(payloads.values());
+
+        return new OutputStreamWritable() {
+            @Override
+            public long getSizeInBytes() {
+                //without code and full size (8 bytes)
+                return 4L + // Documents count
+                       4L + // Words count
+                       8L * wordsCount + // Presence words
+                       4L * wordsCount + // Ranks
+                       8L + // Payloads
+                       list.getSizeInBytes();
+            }
+
+            @Override
+            public void writeTo(
+                    @NotNull
+                    final OutputStream os) throws IOException {
+                // full size in bytes
+                os.write(Longs.toByteArray(getSizeInBytes()));
+
+                // Payload segment type
+                os.write(
+                        Ints.toByteArray(
+                                V1DatabaseFormat.SegmentType
+                                        .PAYLOAD_SPARSE
+                                        .getCode()));
+
+                os.write(Ints.toByteArray(documentsCount));
+                os.write(Ints.toByteArray(wordsCount));
+
+                // Presence
+                for (long word : words) {
+                    os.write(Longs.toByteArray(word));
+                }
+
+                // Ranks
+                int rank = 0;
+                for (long word : words) {
+                    os.write(Ints.toByteArray(rank));
+                    rank += Long.bitCount(word);
+                }
+
+                // data
+                os.write(Longs.toByteArray(list.getSizeInBytes()));
+                list.writeTo(os);
+            }
+        };
+    }
+}
@@ -203,8 +203,47 @@ public class PartialDocumentTest {
         assertEquals(0, db.getDocument(0).remaining());
     }
 
-    @Test(expected = UnsupportedOperationException.class)
-    public void sparseUnsupported() throws IOException {
+    @Test
+    public void sparsePayloads() throws IOException {
+        final DatabaseBuilder dbBuilder =
+                DatabaseFormat.getCurrent().newDatabaseBuilder();
+
+        // Empty document
+        dbBuilder.merge(
+                DatabaseFormat
+                        .getCurrent()
+                        .newDocumentBuilder()
+                        .withField(
+                                "a",
+                                1,
+                                DocumentBuilder.IndexOption.FILTERABLE));
+
+        // Nonempty document
+        dbBuilder.merge(
+                DatabaseFormat
+                        .getCurrent()
+                        .newDocumentBuilder()
+                        .withField(
+                                "a",
+                                2,
+                                DocumentBuilder.IndexOption.FILTERABLE)
+                        .withPayload("doc".getBytes()));
+
+        final ByteArrayOutputStream os = new ByteArrayOutputStream();
+        dbBuilder.buildWritable().writeTo(os);
+
+        final Database db =
+                DatabaseFormat.getCurrent()
+                        .getDatabaseReader()
+                        .from(Buffer.from(os.toByteArray()));
+
+        assertEquals(2, db.getDocumentCount());
+        assertEquals(1, db.count(select().where(eq("a", from(2)))));
+        assertEquals(Buffer.from("doc".getBytes()), db.getDocument(1));
+    }
+
+    @Test(expected = NoSuchElementException.class)
+    public void sparseMissingPayload() throws IOException {
         final DatabaseBuilder dbBuilder =
                 DatabaseFormat.getCurrent().newDatabaseBuilder();
 
@@ -223,5 +262,10 @@ public class PartialDocumentTest {
 
         final ByteArrayOutputStream os = new ByteArrayOutputStream();
         dbBuilder.buildWritable().writeTo(os);
+
+        DatabaseFormat.getCurrent()
+                .getDatabaseReader()
+                .from(Buffer.from(os.toByteArray()))
+                .getDocument(0);
     }
 }
@@ -18,6 +18,7 @@ import com.yandex.yoctodb.query.Query;
 import com.yandex.yoctodb.query.simple.SimpleDescendingOrder;
 import com.yandex.yoctodb.query.simple.SimpleRangeCondition;
 import com.yandex.yoctodb.util.buf.Buffer;
+import com.yandex.yoctodb.v1.mutable.V1DatabaseBuilder;
 import org.jetbrains.annotations.NotNull;
 import org.junit.Test;
 
@@ -1031,4 +1032,177 @@ public class SimpleDatabaseTest {
         assertEquals(DOCS, db.executeAndUnlimitedCount(select, processor));
         assertEquals(Collections.singletonList(0), ids);
     }
+
+    @Test
+    public void frontCodedField() throws IOException {
+        final DatabaseBuilder dbBuilder =
+                DatabaseFormat.getCurrent().newDatabaseBuilder();
+
+        final SortedSet<String> urls = new TreeSet<>();
+        for (int i = 0; i < DOCS; i++) {
+            final String url = "https://example.com/item/" + i;
+            urls.add(url);
+            dbBuilder.merge(
+                    DatabaseFormat
+                            .getCurrent()
+                            .newDocumentBuilder()
+                            .withField(
+                                    "url",
+                                    from(url),
+                                    DocumentBuilder.IndexOption.FILTERABLE,
+                                    DocumentBuilder.LengthOption.FRONT_CODED)
+                            .withField(
+                                    "sortedUrl",
+                                    from(url),
+                                    DocumentBuilder.IndexOption.FULL,
+                                    DocumentBuilder.LengthOption.FRONT_CODED)
+                            .withPayload(url.getBytes())
+            );
+        }
+
+        final ByteArrayOutputStream os = new ByteArrayOutputStream();
+        dbBuilder.buildWritable().writeTo(os);
+        final Database db =
+                DatabaseFormat.getCurrent()
+                        .getDatabaseReader()
+                        .from(Buffer.from(os.toByteArray()));
+
+        for (String url : urls) {
+            assertEquals(1, db.count(select().where(eq("url", from(url)))));
+            assertEquals(
+                    urls.tailSet(url).size(),
+                    db.count(select().where(gte("url", from(url)))));
+            assertEquals(
+                    urls.headSet(url).size(),
+                    db.count(select().where(lt("url", from(url)))));
+            assertEquals(
+                    1,
+                    db.count(select().where(eq("sortedUrl", from(url)))));
+        }
+
+        // Missing values inside and outside of the value range
+        final String missing = "https://example.com/item/5a";
+        assertEquals(0, db.count(select().where(eq("url", from(missing)))));
+        assertEquals(
+                urls.tailSet(missing).size(),
+                db.count(select().where(gt("url", from(missing)))));
+        assertEquals(
+                urls.headSet(missing).size(),
+                db.count(select().where(lte("url", from(missing)))));
+        assertEquals(
+                0,
+                db.count(select().where(eq("url", from("https://")))));
+        assertEquals(
+                DOCS,
+                db.count(select().where(gt("url", from("https://")))));
+        assertEquals(
+                0,
+                db.count(select().where(gt("url", from("https://f")))));
+    }
+
+    @Test
+    public void compressedPayloads() throws IOException {
+        final V1DatabaseBuilder dbBuilder =
+                ((V1DatabaseBuilder) DatabaseFormat.getCurrent()
+                        .newDatabaseBuilder())
+                        .withCompressedPayloads(10);
+
+        for (int i = 0; i < DOCS; i++) {
+            dbBuilder.merge(
+                    DatabaseFormat
+                            .getCurrent()
+                            .newDocumentBuilder()
+                            .withField(
+                                    "id",
+                                    i,
+                                    DocumentBuilder.IndexOption.FULL)
+                            .withPayload(("payload" + i).getBytes())
+            );
+        }
+
+        final ByteArrayOutputStream os = new ByteArrayOutputStream();
+        dbBuilder.buildWritable().writeTo(os);
+        final Database db =
+                DatabaseFormat.getCurrent()
+                        .getDatabaseReader()
+                        .from(Buffer.from(os.toByteArray()));
+
+        assertEquals(DOCS, db.getDocumentCount());
+        for (int i = 0; i < DOCS; i++) {
+            assertEquals(
+                    Buffer.from(("payload" + i).getBytes()),
+                    db.getDocument(i));
+        }
+
+        final List<Integer> ids = new ArrayList<>();
+        db.execute(
+                select().where(gte("id", from(DOCS / 2))),
+                new DocumentProcessor() {
+                    @Override
+                    public boolean process(
+                            final int document,
+                            @NotNull
+                            final Database database) {
+                        ids.add(document);
+                        assertEquals(
+                                Buffer.from(("payload" + document).getBytes()),
+                                database.getDocument(document));
+                        return true;
+                    }
+                });
+        assertEquals(DOCS / 2, ids.size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void nonpositiveDocumentsPerBlock() {
+        ((V1DatabaseBuilder) DatabaseFormat.getCurrent().newDatabaseBuilder())
+                .withCompressedPayloads(0);
+    }
+
+    @Test
+    public void deduplicatedPayloads() throws IOException {
+        final DatabaseBuilder plainBuilder =
+                DatabaseFormat.getCurrent().newDatabaseBuilder();
+        final V1DatabaseBuilder dbBuilder =
+                ((V1DatabaseBuilder) DatabaseFormat.getCurrent()
+                        .newDatabaseBuilder())
+                        .withDeduplicatedPayloads();
+
+        for (int i = 0; i < DOCS; i++) {
+            for (DatabaseBuilder builder :
+                    Arrays.asList(plainBuilder, dbBuilder)) {
+                builder.merge(
+                        DatabaseFormat
+                                .getCurrent()
+                                .newDocumentBuilder()
+                                .withField(
+                                        "id",
+                                        i,
+                                        DocumentBuilder.IndexOption.FULL)
+                                .withPayload(
+                                        ("shared payload " + i % 3)
+                                                .getBytes())
+                );
+            }
+        }
+
+        final ByteArrayOutputStream plain = new ByteArrayOutputStream();
+        plainBuilder.buildWritable().writeTo(plain);
+        final ByteArrayOutputStream os = new ByteArrayOutputStream();
+        dbBuilder.buildWritable().writeTo(os);
+        assertTrue(os.size() < plain.size());
+
+        final Database db =
+                DatabaseFormat.getCurrent()
+                        .getDatabaseReader()
+                        .from(Buffer.from(os.toByteArray()));
+
+        assertEquals(DOCS, db.getDocumentCount());
+        for (int i = 0; i < DOCS; i++) {
+            assertEquals(
+                    Buffer.from(("shared payload " + i % 3).getBytes()),
+                    db.getDocument(i));
+        }
+        assertEquals(1, db.count(select().where(eq("id", from(DOCS / 2)))));
+    }
 }
@@ -10,6 +10,8 @@
 
 package com.yandex.yoctodb.mutable.util;
 
+import com.google.common.primitives.Longs;
+import com.yandex.yoctodb.util.buf.Buffer;
 import com.yandex.yoctodb.util.mutable.BitSet;
 import com.yandex.yoctodb.util.mutable.impl.LongArrayBitSet;
 import org.junit.Test;
@@ -44,6 +46,31 @@ public class LongArrayBitSetTest {
         }
     }
 
+    @Test
+    public void orWords() {
+        final long[] source = {0L, 0x5L, -1L};
+        final byte[] bytes = new byte[8 * source.length];
+        for (int i = 0; i < source.length; i++)
+            System.arraycopy(
+                    Longs.toByteArray(source[i]), 0, bytes, 8 * i, 8);
+        final Buffer buf = Buffer.from(bytes);
+
+        final BitSet bs = LongArrayBitSet.zero(SIZE);
+        assertFalse(bs.or(buf, 0L, 2, 1));
+        assertTrue(bs.or(buf, 8L, 2, 2));
+        assertEquals(2 + 64, bs.cardinality());
+        assertTrue(bs.get(128));
+        assertFalse(bs.get(129));
+        assertTrue(bs.get(130));
+        for (int i = 192; i < 256; i++)
+            assertTrue(bs.get(i));
+
+        // Words beyond the bit set are ignored
+        final BitSet small = LongArrayBitSet.zero(191);
+        assertTrue(small.or(buf, 8L, 2, 2));
+        assertEquals(2, small.cardinality());
+    }
+
     @Test
     public void empty() {
         for (int i = 1; i < SIZE; i++) {
@@ -0,0 +1,99 @@
+/*
+ * (C) YANDEX LLC, 2014-2016
+ *
+ * The Source Code called "YoctoDB" available at
+ * https://github.com/yandex/yoctodb is subject to the terms of the
+ * Mozilla Public License, v. 2.0 (hereinafter referred to as the "License").
+ *
+ * A copy of the License is also available at http://mozilla.org/MPL/2.0/.
+ */
+
+package com.yandex.yoctodb.util;
+
+import com.google.common.primitives.Ints;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.zip.CRC32;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for {@link Crc32cMessageDigest} and {@link Crc32c}
+ *
+ * @author agent
+ */
+public class Crc32cMessageDigestTest {
+    private static final byte[] CHECK = "123456789".getBytes();
+    private static final int CHECK_VALUE = 0xE3069283;
+
+    @Test
+    public void check() {
+        final Crc32cMessageDigest md = new Crc32cMessageDigest();
+        assertEquals(4, md.getDigestLength());
+        assertEquals(Crc32cMessageDigest.ALGORITHM, md.getAlgorithm());
+        assertArrayEquals(Ints.toByteArray(CHECK_VALUE), md.digest(CHECK));
+
+        // Digest resets the state
+        assertArrayEquals(Ints.toByteArray(CHECK_VALUE), md.digest(CHECK));
+    }
+
+    @Test
+    public void pureJavaCheck() {
+        final Crc32c crc = new Crc32c();
+        crc.update(CHECK, 0, CHECK.length);
+        assertEquals(CHECK_VALUE & 0xFFFFFFFFL, crc.getValue());
+
+        crc.reset();
+        for (byte b : CHECK) {
+            crc.update(b);
+        }
+        assertEquals(CHECK_VALUE & 0xFFFFFFFFL, crc.getValue());
+    }
+
+    @Test
+    public void pureJavaDiffersFromCrc32() {
+        final Crc32c crc32c = new Crc32c();
+        crc32c.update(CHECK, 0, CHECK.length);
+        final CRC32 crc32 = new CRC32();
+        crc32.update(CHECK, 0, CHECK.length);
+        assertNotEquals(crc32.getValue(), crc32c.getValue());
+    }
+
+    @Test
+    public void byteBuffers() {
+        final Random random = new Random(42);
+        final byte[] data = new byte[10000];
+        random.nextBytes(data);
+
+        for (int length : new int[]{0, 1, 7, 8, 9, 4095, 4096, 10000}) {
+            final Crc32c crc = new Crc32c();
+            crc.update(data, 0, length);
+            final byte[] expected = Ints.toByteArray((int) crc.getValue());
+
+            final Crc32cMessageDigest md = new Crc32cMessageDigest();
+            md.update(data, 0, length);
+            assertArrayEquals(expected, md.digest());
+
+            md.update(ByteBuffer.wrap(data, 0, length));
+            assertArrayEquals(expected, md.digest());
+
+            final ByteBuffer direct = ByteBuffer.allocateDirect(length);
+            direct.put(data, 0, length);
+            direct.flip();
+            md.update(direct);
+            assertArrayEquals(expected, md.digest());
+            assertFalse(direct.hasRemaining());
+        }
+    }
+
+    @Test
+    public void split() {
+        final Crc32cMessageDigest md = new Crc32cMessageDigest();
+        md.update(CHECK, 0, 2);
+        md.update(CHECK[2]);
+        md.update(ByteBuffer.wrap(CHECK, 3, CHECK.length - 3));
+        assertArrayEquals(Ints.toByteArray(CHECK_VALUE), md.digest());
+    }
+}
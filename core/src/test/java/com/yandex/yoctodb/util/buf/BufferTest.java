@@ -14,6 +14,8 @@ import com.google.common.base.Charsets;
 import org.junit.Test;
 
 import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 
 import static org.junit.Assert.*;
 
@@ -114,4 +116,36 @@ public abstract class BufferTest {
                 buf.toString().contains(
                         Integer.toString(ALPHABET_BYTES.length)));
     }
+
+    @Test
+    public void testUpdate() throws NoSuchAlgorithmException {
+        final Buffer buf = bufferOf(ALPHABET);
+        buf.advance(3);
+
+        final MessageDigest md = MessageDigest.getInstance("MD5");
+        buf.update(md);
+
+        final MessageDigest expected = MessageDigest.getInstance("MD5");
+        expected.update(ALPHABET_BYTES, 3, ALPHABET_BYTES.length - 3);
+        assertArrayEquals(expected.digest(), md.digest());
+
+        // Position is not changed
+        assertEquals(3, buf.position());
+    }
+
+    @Test
+    public void testAdvise() {
+        final Buffer buf = bufferOf(ALPHABET);
+        buf.advance(3);
+
+        for (AccessHint hint : AccessHint.values()) {
+            assertSame(buf, buf.advise(hint));
+        }
+
+        // Neither position nor contents are changed
+        assertEquals(3, buf.position());
+        assertArrayEquals(
+                ALPHABET.substring(3).getBytes(Charsets.US_ASCII),
+                buf.toByteArray());
+    }
 }
@@ -0,0 +1,140 @@
+/*
+ * (C) YANDEX LLC, 2014-2016
+ *
+ * The Source Code called "YoctoDB" available at
+ * https://github.com/yandex/yoctodb is subject to the terms of the
+ * Mozilla Public License, v. 2.0 (hereinafter referred to as the "License").
+ *
+ * A copy of the License is also available at http://mozilla.org/MPL/2.0/.
+ */
+
+package com.yandex.yoctodb.util.buf;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests for {@link com.yandex.yoctodb.util.buf.MultiRegionBuffer}
+ *
+ * @author agent
+ */
+public class MultiRegionBufferTest extends BufferTest {
+    // 8 byte regions to cross boundaries all the time
+    private static final int SHIFT = 3;
+
+    private static Buffer regions(final byte[] data) {
+        final int regionSize = 1 << SHIFT;
+        final int count =
+                data.length == 0 ?
+                        1 :
+                        (data.length + regionSize - 1) >>> SHIFT;
+        final ByteBuffer[] regions = new ByteBuffer[count];
+        for (int i = 0; i < count; i++) {
+            final int from = i << SHIFT;
+            regions[i] =
+                    ByteBuffer.wrap(
+                            data,
+                            from,
+                            Math.min(
+                                    regionSize + MultiRegionBuffer.OVERLAP,
+                                    data.length - from)).slice();
+        }
+
+        return new MultiRegionBuffer(regions, SHIFT, data.length);
+    }
+
+    @Override
+    protected Buffer bufferOf(final byte[] data) {
+        return regions(data);
+    }
+
+    private static byte[] data(final int length) {
+        final byte[] result = new byte[length];
+        for (int i = 0; i < length; i++) {
+            result[i] = (byte) (i * 31 + 7);
+        }
+        return result;
+    }
+
+    private static void check(
+            final byte[] data,
+            final Buffer buf) {
+        final ByteBuffer expected = ByteBuffer.wrap(data);
+        assertEquals(data.length, buf.remaining());
+        for (int i = 0; i < data.length; i++) {
+            assertEquals(expected.get(i), buf.get(i));
+        }
+        for (int i = 0; i + 4 <= data.length; i++) {
+            assertEquals(expected.getInt(i), buf.getInt(i));
+        }
+        for (int i = 0; i + 8 <= data.length; i++) {
+            assertEquals(expected.getLong(i), buf.getLong(i));
+        }
+        for (int from = 0; from < data.length; from++) {
+            for (int size = 0; from + size <= data.length; size++) {
+                final byte[] slice = new byte[size];
+                System.arraycopy(data, from, slice, 0, size);
+                assertArrayEquals(
+                        slice,
+                        buf.slice(from, size).toByteArray());
+            }
+        }
+    }
+
+    @Test
+    public void crossingReads() {
+        final byte[] data = data(50);
+        check(data, regions(data));
+    }
+
+    @Test
+    public void relativeReads() {
+        final byte[] data = data(50);
+        final ByteBuffer expected = ByteBuffer.wrap(data);
+        final Buffer buf = regions(data);
+        assertEquals(expected.get(), buf.get());
+        assertEquals(expected.getInt(), buf.getInt());
+        assertEquals(expected.getLong(), buf.getLong());
+        assertEquals(expected.getLong(), buf.getLong());
+        assertEquals(expected.position(), buf.position());
+        final byte[] rest = new byte[expected.remaining()];
+        expected.get(rest);
+        assertArrayEquals(rest, buf.toByteArray());
+    }
+
+    @Test
+    public void nestedSlices() {
+        final byte[] data = data(50);
+        final Buffer slice = regions(data).slice(5, 40).slice(3, 30);
+        final byte[] expected = new byte[30];
+        System.arraycopy(data, 8, expected, 0, 30);
+        check(expected, slice);
+    }
+
+    @Test
+    public void mmap() throws IOException {
+        final byte[] data = data(100);
+        final File file = File.createTempFile("multi_region_buffer_test_", "");
+        file.deleteOnExit();
+        try (FileOutputStream os = new FileOutputStream(file)) {
+            os.write(data);
+        }
+
+        check(data, MultiRegionBuffer.mmap(file, true, SHIFT));
+        check(data, MultiRegionBuffer.mmap(file, false, 4));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void wrongRegionShift() throws IOException {
+        final File file = File.createTempFile("multi_region_buffer_test_", "");
+        file.deleteOnExit();
+        MultiRegionBuffer.mmap(file, false, 2);
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ * (C) YANDEX LLC, 2014-2016
+ *
+ * The Source Code called "YoctoDB" available at
+ * https://github.com/yandex/yoctodb is subject to the terms of the
+ * Mozilla Public License, v. 2.0 (hereinafter referred to as the "License").
+ *
+ * A copy of the License is also available at http://mozilla.org/MPL/2.0/.
+ */
+
+package com.yandex.yoctodb.util.immutable.impl;
+
+import com.yandex.yoctodb.util.UnsignedByteArray;
+import com.yandex.yoctodb.util.buf.Buffer;
+import com.yandex.yoctodb.util.immutable.ByteArraySortedSet;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+import static com.yandex.yoctodb.util.UnsignedByteArrays.from;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for {@link FrontCodedByteArraySortedSet}
+ *
+ * @author agent
+ */
+public class FrontCodedByteArraySortedSetTest {
+    private final int VALUES = 100;
+
+    private static List<String> strings() {
+        final List<String> result = new ArrayList<>();
+        for (int i = 0; i < 100; i++)
+            result.add("https://example.com/item/" + i);
+        // Prefixes of other elements
+        result.add("https://example.com/item/");
+        result.add("https://example.com/");
+        return result;
+    }
+
+    private static SortedSet<UnsignedByteArray> elements() {
+        final SortedSet<UnsignedByteArray> elements = new TreeSet<>();
+        for (String s : strings())
+            elements.add(from(s));
+        return elements;
+    }
+
+    private static ByteArraySortedSet build(
+            final com.yandex.yoctodb.util.mutable.ByteArraySortedSet mutable,
+            final boolean frontCoded) throws IOException {
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        mutable.writeTo(baos);
+
+        final Buffer buf = Buffer.from(baos.toByteArray());
+
+        return frontCoded ?
+                FrontCodedByteArraySortedSet.from(buf) :
+                VariableLengthByteArraySortedSet.from(buf);
+    }
+
+    private static ByteArraySortedSet frontCoded() throws IOException {
+        return build(
+                new com.yandex.yoctodb.util.mutable.impl.FrontCodedByteArraySortedSet(
+                        elements()),
+                true);
+    }
+
+    private static ByteArraySortedSet variableLength() throws IOException {
+        return build(
+                new com.yandex.yoctodb.util.mutable.impl.VariableLengthByteArraySortedSet(
+                        elements()),
+                false);
+    }
+
+    private static List<Buffer> probes() {
+        final List<Buffer> result = new ArrayList<>();
+        for (String s : strings()) {
+            result.add(from(s).toByteBuffer());
+            result.add(from(s + "0").toByteBuffer());
+            result.add(from(s + "a").toByteBuffer());
+            result.add(from(s + "/").toByteBuffer());
+        }
+        result.add(from("a").toByteBuffer());
+        result.add(from("https://example.com/item").toByteBuffer());
+        result.add(from("https://example.com/item0").toByteBuffer());
+        result.add(from("https://example.com/item/99999").toByteBuffer());
+        result.add(from("z").toByteBuffer());
+        return result;
+    }
+
+    @Test
+    public void get() throws IOException {
+        final ByteArraySortedSet expected = variableLength();
+        final ByteArraySortedSet set = frontCoded();
+        assertEquals(expected.size(), set.size());
+        for (int i = 0; i < set.size(); i++)
+            assertEquals(expected.get(i), set.get(i));
+    }
+
+    @Test
+    public void indexOf() throws IOException {
+        final ByteArraySortedSet set = frontCoded();
+        for (int i = 1; i < set.size(); i++)
+            assertEquals(i, set.indexOf(set.get(i)));
+        final ByteArraySortedSet expected = variableLength();
+        for (Buffer probe : probes())
+            assertEquals(expected.indexOf(probe), set.indexOf(probe));
+    }
+
+    @Test
+    public void indexOfGreaterThan() throws IOException {
+        final ByteArraySortedSet expected = variableLength();
+        final ByteArraySortedSet set = frontCoded();
+        for (Buffer probe : probes()) {
+            for (int upTo : new int[]{0, 20, set.size() - 1}) {
+                assertEquals(
+                        expected.indexOfGreaterThan(probe, true, upTo),
+                        set.indexOfGreaterThan(probe, true, upTo));
+                assertEquals(
+                        expected.indexOfGreaterThan(probe, false, upTo),
+                        set.indexOfGreaterThan(probe, false, upTo));
+            }
+        }
+    }
+
+    @Test
+    public void indexOfLessThan() throws IOException {
+        final ByteArraySortedSet expected = variableLength();
+        final ByteArraySortedSet set = frontCoded();
+        for (Buffer probe : probes()) {
+            for (int from : new int[]{0, 20, set.size() - 1}) {
+                assertEquals(
+                        expected.indexOfLessThan(probe, true, from),
+                        set.indexOfLessThan(probe, true, from));
+                assertEquals(
+                        expected.indexOfLessThan(probe, false, from),
+                        set.indexOfLessThan(probe, false, from));
+            }
+        }
+    }
+
+    @Test
+    public void string() throws IOException {
+        final String text = frontCoded().toString();
+        assertTrue(text.contains(Integer.toString(VALUES + 2)));
+    }
+}
@@ -0,0 +1,297 @@
+/*
+ * (C) YANDEX LLC, 2014-2016
+ *
+ * The Source Code called "YoctoDB" available at
+ * https://github.com/yandex/yoctodb is subject to the terms of the
+ * Mozilla Public License, v. 2.0 (hereinafter referred to as the "License").
+ *
+ * A copy of the License is also available at http://mozilla.org/MPL/2.0/.
+ */
+
+package com.yandex.yoctodb.util.immutable.impl;
+
+import com.google.common.collect.TreeMultimap;
+import com.yandex.yoctodb.util.buf.Buffer;
+import com.yandex.yoctodb.util.immutable.IndexToIndexMultiMap;
+import com.yandex.yoctodb.util.immutable.IntToIntArray;
+import com.yandex.yoctodb.util.mutable.BitSet;
+import com.yandex.yoctodb.util.mutable.impl.LongArrayBitSet;
+import com.yandex.yoctodb.v1.V1DatabaseFormat;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for {@link HybridIndexToIndexMultiMap}
+ *
+ * @author agent
+ */
+public class HybridIndexToIndexMultiMapTest {
+    private final int DOCS = 4 << 16;
+
+    private final TreeMultimap<Integer, Integer> elements =
+            TreeMultimap.create();
+
+    public HybridIndexToIndexMultiMapTest() {
+        // Runs spanning chunks
+        for (int i = 0; i < 100000; i++)
+            elements.put(0, i);
+        // Bitmaps
+        for (int i = 0; i < DOCS; i += 3)
+            elements.put(1, i);
+        // Arrays
+        final Random random = new Random(42);
+        for (int i = 0; i < 1000; i++)
+            elements.put(2, random.nextInt(DOCS));
+        // Single value
+        elements.put(3, DOCS - 1);
+        // Mixed containers
+        for (int i = 2 << 16; i < 3 << 16; i++)
+            if (random.nextBoolean())
+                elements.put(4, i);
+        for (int i = 0; i < 100; i++)
+            elements.put(4, (3 << 16) + i);
+        // Chunk boundaries
+        elements.put(5, (1 << 16) - 1);
+        elements.put(5, 1 << 16);
+        elements.put(5, (2 << 16) - 1);
+        elements.put(5, 2 << 16);
+    }
+
+    private IndexToIndexMultiMap build(
+            final Collection<? extends Collection<Integer>> sets)
+            throws IOException {
+        final com.yandex.yoctodb.util.mutable.IndexToIndexMultiMap mutable =
+                new com.yandex.yoctodb.util.mutable.impl.HybridIndexToIndexMultiMap(
+                        sets);
+
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        mutable.writeTo(baos);
+
+        final Buffer buf = Buffer.from(baos.toByteArray());
+
+        assertEquals(
+                V1DatabaseFormat.MultiMapType.HYBRID_BASED.getCode(),
+                buf.getInt());
+
+        final IndexToIndexMultiMap result =
+                HybridIndexToIndexMultiMap.from(buf);
+
+        assertEquals(sets.size(), result.getKeysCount());
+
+        return result;
+    }
+
+    private IndexToIndexMultiMap build() throws IOException {
+        return build(elements.asMap().values());
+    }
+
+    private BitSet expected(
+            final int fromInclusive,
+            final int toExclusive) {
+        final BitSet result = LongArrayBitSet.zero(DOCS);
+        for (int key = fromInclusive; key < toExclusive; key++)
+            for (int value : elements.get(key))
+                result.set(value);
+        return result;
+    }
+
+    @Test
+    public void string() throws IOException {
+        assertTrue(
+                build().toString().contains(
+                        Integer.toString(elements.keySet().size())));
+    }
+
+    @Test
+    public void get() throws IOException {
+        final IndexToIndexMultiMap map = build();
+        for (int key = 0; key < map.getKeysCount(); key++) {
+            final BitSet dest = LongArrayBitSet.zero(DOCS);
+            assertTrue(map.get(dest, key));
+            assertBitSetEquals(expected(key, key + 1), dest);
+        }
+    }
+
+    @Test
+    public void getFrom() throws IOException {
+        final IndexToIndexMultiMap map = build();
+        for (int key = 0; key < map.getKeysCount(); key++) {
+            final BitSet dest = LongArrayBitSet.zero(DOCS);
+            assertTrue(map.getFrom(dest, key));
+            assertBitSetEquals(expected(key, map.getKeysCount()), dest);
+        }
+    }
+
+    @Test
+    public void getTo() throws IOException {
+        final IndexToIndexMultiMap map = build();
+        for (int key = 1; key <= map.getKeysCount(); key++) {
+            final BitSet dest = LongArrayBitSet.zero(DOCS);
+            assertTrue(map.getTo(dest, key));
+            assertBitSetEquals(expected(0, key), dest);
+        }
+    }
+
+    @Test
+    public void getBetween() throws IOException {
+        final IndexToIndexMultiMap map = build();
+        for (int from = 0; from < map.getKeysCount(); from++) {
+            for (int to = from + 1; to <= map.getKeysCount(); to++) {
+                final BitSet dest = LongArrayBitSet.zero(DOCS);
+                assertTrue(map.getBetween(dest, from, to));
+                assertBitSetEquals(expected(from, to), dest);
+            }
+        }
+    }
+
+    @Test
+    public void largeValues() throws IOException {
+        final List<Integer> values =
+                Arrays.asList(
+                        0,
+                        1,
+                        Integer.MAX_VALUE / 3,
+                        Integer.MAX_VALUE / 2,
+                        Integer.MAX_VALUE - 1,
+                        Integer.MAX_VALUE);
+        final List<List<Integer>> sets = new ArrayList<>();
+        sets.add(values);
+        final IndexToIndexMultiMap map = build(sets);
+        assertEquals(1, map.getKeysCount());
+
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        new com.yandex.yoctodb.util.mutable.impl.HybridIndexToIndexMultiMap(
+                sets).writeTo(baos);
+        final Buffer buf = Buffer.from(baos.toByteArray());
+        // Type, keys count and offset
+        final HybridIndexToIndexMultiMap.Cursor cursor =
+                new HybridIndexToIndexMultiMap.Cursor(
+                        buf.position(16L).slice(),
+                        0L);
+        assertEquals(values.size(), cursor.cardinality());
+        for (int value : values) {
+            assertEquals(value, cursor.next());
+        }
+        assertEquals(-1, cursor.next());
+    }
+
+    @Test
+    public void ascendingIterator() throws IOException {
+        final Iterator<IntToIntArray> iter =
+                build().ascending(LongArrayBitSet.one(DOCS));
+        for (int key : elements.keySet()) {
+            assertTrue(iter.hasNext());
+            final IntToIntArray e = iter.next();
+            assertEquals(key, e.getKey());
+            assertEquals(elements.get(key).size(), e.getCount());
+            assertArrayEquals(
+                    toArray(elements.get(key)),
+                    Arrays.copyOf(e.getValues(), e.getCount()));
+        }
+        assertFalse(iter.hasNext());
+    }
+
+    @Test
+    public void ascendingSparseIterator() throws IOException {
+        final BitSet filter = LongArrayBitSet.zero(DOCS);
+        final int step = 11;
+        for (int i = 0; i < DOCS; i += step)
+            filter.set(i);
+
+        final Iterator<IntToIntArray> iter = build().ascending(filter);
+
+        for (int key : elements.keySet()) {
+            final List<Integer> expected = new ArrayList<>();
+            for (int value : elements.get(key))
+                if (value % step == 0)
+                    expected.add(value);
+            if (expected.isEmpty())
+                continue;
+
+            assertTrue(iter.hasNext());
+            final IntToIntArray e = iter.next();
+            assertEquals(key, e.getKey());
+            assertArrayEquals(
+                    toArray(expected),
+                    Arrays.copyOf(e.getValues(), e.getCount()));
+        }
+        assertFalse(iter.hasNext());
+    }
+
+    @Test(expected = NoSuchElementException.class)
+    public void ascendingEmptyIterator() throws IOException {
+        final Iterator<IntToIntArray> iter =
+                build().ascending(LongArrayBitSet.zero(DOCS));
+        assertFalse(iter.hasNext());
+        iter.next();
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void ascendingRemoveUnsupported() throws IOException {
+        final Iterator<IntToIntArray> iter =
+                build().ascending(LongArrayBitSet.one(DOCS));
+        assertTrue(iter.hasNext());
+        iter.remove();
+    }
+
+    @Test
+    public void descendingIterator() throws IOException {
+        final Iterator<IntToIntArray> iter =
+                build().descending(LongArrayBitSet.one(DOCS));
+        for (int key : elements.keySet().descendingSet()) {
+            assertTrue(iter.hasNext());
+            final IntToIntArray e = iter.next();
+            assertEquals(key, e.getKey());
+            assertEquals(elements.get(key).size(), e.getCount());
+            assertArrayEquals(
+                    toArray(elements.get(key)),
+                    Arrays.copyOf(e.getValues(), e.getCount()));
+        }
+        assertFalse(iter.hasNext());
+    }
+
+    @Test(expected = NoSuchElementException.class)
+    public void descendingEmptyIterator() throws IOException {
+        final Iterator<IntToIntArray> iter =
+                build().descending(LongArrayBitSet.zero(DOCS));
+        assertFalse(iter.hasNext());
+        iter.next();
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void descendingRemoveUnsupported() throws IOException {
+        final Iterator<IntToIntArray> iter =
+                build().descending(LongArrayBitSet.one(DOCS));
+        assertTrue(iter.hasNext());
+        iter.remove();
+    }
+
+    private static void assertBitSetEquals(
+            final BitSet expected,
+            final BitSet actual) {
+        assertEquals(expected.cardinality(), actual.cardinality());
+        for (int i = expected.nextSetBit(0);
+             i >= 0;
+             i = expected.nextSetBit(i + 1))
+            assertTrue(actual.get(i));
+    }
+
+    private static int[] toArray(final Collection<Integer> values) {
+        final int[] result = new int[values.size()];
+        int i = 0;
+        for (int value : values)
+            result[i++] = value;
+        return result;
+    }
+}
@@ -73,6 +73,70 @@ public class IndexToIndexMultiMapReaderTest {
         assertTrue(result instanceof BitSetIndexToIndexMultiMap);
     }
 
+    @Test
+    public void buildPacked() throws IOException {
+        final TreeMultimap<Integer, Integer> elements = TreeMultimap.create();
+        for (int i = 0; i < DOCS; i++) {
+            elements.put(i / 2, i);
+        }
+        final com.yandex.yoctodb.util.mutable.IndexToIndexMultiMap mutable =
+                new com.yandex.yoctodb.util.mutable.impl.PackedIndexToIndexMultiMap(
+                        elements.asMap().values());
+
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        mutable.writeTo(baos);
+
+        final Buffer buf = Buffer.from(baos.toByteArray());
+
+        final IndexToIndexMultiMap result =
+                IndexToIndexMultiMapReader.from(buf);
+
+        assertTrue(result instanceof PackedIndexToIndexMultiMap);
+    }
+
+    @Test
+    public void buildHybrid() throws IOException {
+        final TreeMultimap<Integer, Integer> elements = TreeMultimap.create();
+        for (int i = 0; i < DOCS; i++) {
+            elements.put(i / 2, i);
+        }
+        final com.yandex.yoctodb.util.mutable.IndexToIndexMultiMap mutable =
+                new com.yandex.yoctodb.util.mutable.impl.HybridIndexToIndexMultiMap(
+                        elements.asMap().values());
+
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        mutable.writeTo(baos);
+
+        final Buffer buf = Buffer.from(baos.toByteArray());
+
+        final IndexToIndexMultiMap result =
+                IndexToIndexMultiMapReader.from(buf);
+
+        assertTrue(result instanceof HybridIndexToIndexMultiMap);
+    }
+
+    @Test
+    public void buildMixed() throws IOException {
+        final TreeMultimap<Integer, Integer> elements = TreeMultimap.create();
+        for (int i = 0; i < DOCS; i++) {
+            elements.put(i / 2, i);
+        }
+        final com.yandex.yoctodb.util.mutable.IndexToIndexMultiMap mutable =
+                new com.yandex.yoctodb.util.mutable.impl.MixedIndexToIndexMultiMap(
+                        elements.asMap().values(),
+                        DOCS);
+
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        mutable.writeTo(baos);
+
+        final Buffer buf = Buffer.from(baos.toByteArray());
+
+        final IndexToIndexMultiMap result =
+                IndexToIndexMultiMapReader.from(buf);
+
+        assertTrue(result instanceof MixedIndexToIndexMultiMap);
+    }
+
     @Test(expected = UnsupportedOperationException.class)
     public void unsupported() throws IOException {
         final ByteArrayOutputStream baos = new ByteArrayOutputStream();
@@ -0,0 +1,103 @@
+/*
+ * (C) YANDEX LLC, 2014-2016
+ *
+ * The Source Code called "YoctoDB" available at
+ * https://github.com/yandex/yoctodb is subject to the terms of the
+ * Mozilla Public License, v. 2.0 (hereinafter referred to as the "License").
+ *
+ * A copy of the License is also available at http://mozilla.org/MPL/2.0/.
+ */
+
+package com.yandex.yoctodb.util.immutable.impl;
+
+import com.yandex.yoctodb.util.buf.Buffer;
+import com.yandex.yoctodb.util.immutable.IndexToIndexMap;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for {@link PackedIndexToIndexMap}
+ *
+ * @author agent
+ */
+public class PackedIndexToIndexMapTest {
+    private final int VALUES = 1000;
+
+    private IndexToIndexMap build(
+            final int[] values,
+            final int valuesCount) throws IOException {
+        final com.yandex.yoctodb.util.mutable.IndexToIndexMap mutable =
+                new com.yandex.yoctodb.util.mutable.impl.PackedIndexToIndexMap(
+                        valuesCount);
+        for (int i = 0; i < values.length; i++) {
+            mutable.put(i, values[i]);
+        }
+
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        mutable.writeTo(baos);
+
+        final Buffer buf = Buffer.from(baos.toByteArray());
+
+        final IndexToIndexMap result = IndexToIndexMapReader.from(buf);
+
+        assertTrue(result instanceof PackedIndexToIndexMap);
+        assertEquals(values.length, result.size());
+
+        return result;
+    }
+
+    @Test
+    public void get() throws IOException {
+        final Random random = new Random(42);
+        for (int valuesCount :
+                new int[]{1, 2, 3, 7, 255, 256, 1000, 1 << 20, Integer.MAX_VALUE}) {
+            final int[] values = new int[VALUES];
+            for (int i = 0; i < VALUES; i++) {
+                values[i] = random.nextInt(valuesCount);
+            }
+            values[VALUES - 1] = valuesCount - 1;
+
+            final IndexToIndexMap map = build(values, valuesCount);
+            for (int i = 0; i < VALUES; i++) {
+                assertEquals(values[i], map.get(i));
+            }
+        }
+    }
+
+    @Test
+    public void legacy() throws IOException {
+        final com.yandex.yoctodb.util.mutable.IndexToIndexMap mutable =
+                new com.yandex.yoctodb.util.mutable.impl.IntIndexToIndexMap();
+        mutable.put(0, 1);
+        mutable.put(1, 0);
+
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        mutable.writeTo(baos);
+
+        final IndexToIndexMap result =
+                IndexToIndexMapReader.from(Buffer.from(baos.toByteArray()));
+
+        assertTrue(result instanceof IntIndexToIndexMap);
+        assertEquals(1, result.get(0));
+        assertEquals(0, result.get(1));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void unsupported() {
+        IndexToIndexMapReader.from(Buffer.from(new byte[]{-1, -1, -1, -1}));
+    }
+
+    @Test
+    public void string() throws IOException {
+        assertTrue(
+                build(new int[VALUES], 1)
+                        .toString()
+                        .contains(Integer.toString(VALUES)));
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * (C) YANDEX LLC, 2014-2016
+ *
+ * The Source Code called "YoctoDB" available at
+ * https://github.com/yandex/yoctodb is subject to the terms of the
+ * Mozilla Public License, v. 2.0 (hereinafter referred to as the "License").
+ *
+ * A copy of the License is also available at http://mozilla.org/MPL/2.0/.
+ */
+
+package com.yandex.yoctodb.util.mutable.impl;
+
+import com.yandex.yoctodb.util.UnsignedByteArray;
+import com.yandex.yoctodb.util.mutable.ByteArraySortedSet;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+import static com.yandex.yoctodb.util.UnsignedByteArrays.from;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for {@link FrontCodedByteArraySortedSet}
+ *
+ * @author agent
+ */
+public class FrontCodedByteArraySortedSetTest {
+    private static SortedSet<UnsignedByteArray> urls(final int size) {
+        final SortedSet<UnsignedByteArray> elements = new TreeSet<>();
+        for (int i = 0; i < size; i++)
+            elements.add(from("https://example.com/item/" + i));
+        return elements;
+    }
+
+    @Test
+    public void indexing() {
+        final int size = 100;
+        final ByteArraySortedSet set =
+                new FrontCodedByteArraySortedSet(urls(size));
+        for (int i = 0; i < size; i++)
+            assertEquals(
+                    urls(size).headSet(from("https://example.com/item/" + i)).size(),
+                    set.indexOf(from("https://example.com/item/" + i)));
+    }
+
+    @Test
+    public void sizeInBytes() throws IOException {
+        final ByteArraySortedSet set =
+                new FrontCodedByteArraySortedSet(urls(100));
+        final ByteArrayOutputStream os = new ByteArrayOutputStream();
+        set.writeTo(os);
+        assertEquals(set.getSizeInBytes(), os.size());
+    }
+
+    @Test
+    public void smallerThanVariableLength() {
+        final SortedSet<UnsignedByteArray> elements = urls(1000);
+        assertTrue(
+                new FrontCodedByteArraySortedSet(elements).getSizeInBytes() <
+                new VariableLengthByteArraySortedSet(elements).getSizeInBytes() / 2);
+    }
+
+    @Test
+    public void longElements() throws IOException {
+        final SortedSet<UnsignedByteArray> elements = new TreeSet<>();
+        final byte[] e = new byte[300];
+        elements.add(from(e.clone()));
+        e[299] = 1;
+        elements.add(from(e.clone()));
+        e[0] = 1;
+        elements.add(from(e.clone()));
+        final ByteArraySortedSet set =
+                new FrontCodedByteArraySortedSet(elements);
+        final ByteArrayOutputStream os = new ByteArrayOutputStream();
+        set.writeTo(os);
+        assertEquals(set.getSizeInBytes(), os.size());
+    }
+
+    @Test
+    public void string() {
+        final int size = 10;
+        final ByteArraySortedSet set =
+                new FrontCodedByteArraySortedSet(urls(size));
+        final String s = set.toString();
+        assertTrue(s.contains(Integer.toString(size)));
+    }
+}
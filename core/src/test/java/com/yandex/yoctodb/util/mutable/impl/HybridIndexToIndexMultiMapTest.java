@@ -0,0 +1,111 @@
+/*
+ * (C) YANDEX LLC, 2014-2016
+ *
+ * The Source Code called "YoctoDB" available at
+ * https://github.com/yandex/yoctodb is subject to the terms of the
+ * Mozilla Public License, v. 2.0 (hereinafter referred to as the "License").
+ *
+ * A copy of the License is also available at http://mozilla.org/MPL/2.0/.
+ */
+
+package com.yandex.yoctodb.util.mutable.impl;
+
+import com.google.common.collect.TreeMultimap;
+import com.yandex.yoctodb.util.mutable.IndexToIndexMultiMap;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+import static java.util.Collections.singletonList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for {@link HybridIndexToIndexMultiMap}
+ *
+ * @author agent
+ */
+public class HybridIndexToIndexMultiMapTest {
+    @Test(expected = AssertionError.class)
+    public void negativeValue() throws IOException {
+        new HybridIndexToIndexMultiMap(
+                singletonList(singletonList(-1)))
+                .writeTo(new ByteArrayOutputStream());
+    }
+
+    @Test(expected = AssertionError.class)
+    public void unsorted() throws IOException {
+        new HybridIndexToIndexMultiMap(
+                singletonList(Arrays.asList(2, 1)))
+                .writeTo(new ByteArrayOutputStream());
+    }
+
+    @Test
+    public void size() throws IOException {
+        final TreeMultimap<Integer, Integer> elements = TreeMultimap.create();
+        final Random random = new Random(42);
+        for (int i = 0; i < 1 << 20; i++) {
+            if (i < 100000) {
+                // Runs
+                elements.put(0, i);
+            }
+            if (i % 3 == 0) {
+                // Bitmaps
+                elements.put(1, i);
+            }
+            if (random.nextInt(1000) == 0) {
+                // Arrays
+                elements.put(2, i);
+            }
+        }
+        final IndexToIndexMultiMap map =
+                new HybridIndexToIndexMultiMap(elements.asMap().values());
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        map.writeTo(baos);
+        assertEquals(map.getSizeInBytes(), baos.size());
+    }
+
+    @Test
+    public void runs() {
+        final TreeMultimap<Integer, Integer> elements = TreeMultimap.create();
+        for (int i = 0; i < 1 << 20; i++) {
+            elements.put(0, i);
+        }
+        // Type, keys count, offset, cardinality, containers count
+        // and a single run per chunk
+        assertEquals(
+                4 + 4 + 8 + 4 + 4 + 16 * (5 + 4),
+                new HybridIndexToIndexMultiMap(
+                        elements.asMap().values()).getSizeInBytes());
+    }
+
+    @Test
+    public void bitmaps() {
+        final TreeMultimap<Integer, Integer> elements = TreeMultimap.create();
+        for (int i = 0; i < 1 << 20; i += 2) {
+            elements.put(0, i);
+        }
+        // Type, keys count, offset, cardinality, containers count
+        // and a bitmap per chunk
+        assertEquals(
+                4 + 4 + 8 + 4 + 4 + 16 * (5 + 8192),
+                new HybridIndexToIndexMultiMap(
+                        elements.asMap().values()).getSizeInBytes());
+    }
+
+    @Test
+    public void string() {
+        final TreeMultimap<Integer, Integer> elements = TreeMultimap.create();
+        final int documents = 10;
+        for (int i = 0; i < documents; i++)
+            elements.put(i / 2, i);
+        final IndexToIndexMultiMap set =
+                new HybridIndexToIndexMultiMap(
+                        elements.asMap().values());
+        final String text = set.toString();
+        assertTrue(text.contains(Integer.toString(documents / 2)));
+    }
+}
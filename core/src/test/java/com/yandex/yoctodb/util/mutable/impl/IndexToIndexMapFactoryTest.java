@@ -0,0 +1,55 @@
+/*
+ * (C) YANDEX LLC, 2014-2016
+ *
+ * The Source Code called "YoctoDB" available at
+ * https://github.com/yandex/yoctodb is subject to the terms of the
+ * Mozilla Public License, v. 2.0 (hereinafter referred to as the "License").
+ *
+ * A copy of the License is also available at http://mozilla.org/MPL/2.0/.
+ */
+
+package com.yandex.yoctodb.util.mutable.impl;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for {@link IndexToIndexMapFactory}
+ *
+ * @author agent
+ */
+public class IndexToIndexMapFactoryTest {
+    @Test(expected = IllegalArgumentException.class)
+    public void negativeElements() {
+        IndexToIndexMapFactory.buildIndexToIndexMap(-1, 1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void negativeValues() {
+        IndexToIndexMapFactory.buildIndexToIndexMap(1, -1);
+    }
+
+    @Test
+    public void fewValues() {
+        assertTrue(
+                IndexToIndexMapFactory.buildIndexToIndexMap(1000, 3)
+                        instanceof PackedIndexToIndexMap);
+    }
+
+    @Test
+    public void fewElementsManyValues() {
+        assertTrue(
+                IndexToIndexMapFactory.buildIndexToIndexMap(
+                        10,
+                        Integer.MAX_VALUE)
+                        instanceof IntIndexToIndexMap);
+    }
+
+    @Test
+    public void singleElement() {
+        assertTrue(
+                IndexToIndexMapFactory.buildIndexToIndexMap(1, 1)
+                        instanceof IntIndexToIndexMap);
+    }
+}
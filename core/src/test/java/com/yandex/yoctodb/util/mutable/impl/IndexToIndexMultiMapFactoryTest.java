@@ -14,11 +14,14 @@ import com.google.common.collect.TreeMultimap;
 import com.yandex.yoctodb.util.mutable.IndexToIndexMultiMap;
 import org.junit.Test;
 
-import java.util.Arrays;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.List;
+import java.util.Random;
 
 import static java.util.Collections.singletonList;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
 /**
@@ -54,13 +57,136 @@ public class IndexToIndexMultiMapFactoryTest {
         assertTrue(map instanceof IntIndexToIndexMultiMap);
     }
 
+    @Test
+    public void smallGaps() {
+        final TreeMultimap<Integer, Integer> elements = TreeMultimap.create();
+        final int values = 300;
+        final int run = 250;
+        final Random random = new Random(42);
+        for (int i = 0; i < values * run; i += 1 + random.nextInt(8)) {
+            elements.put(i / run, i);
+        }
+        final IndexToIndexMultiMap map =
+                IndexToIndexMultiMapFactory.buildIndexToIndexMultiMap(
+                        elements.asMap().values(),
+                        values * run);
+        assertTrue(map instanceof PackedIndexToIndexMultiMap);
+    }
+
+    @Test
+    public void highCardinality() {
+        // 16 documents per value with 2-byte gaps
+        final int values = 1 << 16;
+        final int run = 16;
+        final List<List<Integer>> elements = new ArrayList<>(values);
+        for (int i = 0; i < values; i++) {
+            final List<Integer> documents = new ArrayList<>(run);
+            for (int j = 0; j < run; j++) {
+                documents.add(i + j * values);
+            }
+            elements.add(documents);
+        }
+        final IndexToIndexMultiMap map =
+                IndexToIndexMultiMapFactory.buildIndexToIndexMultiMap(
+                        elements,
+                        values * run);
+        assertTrue(map instanceof PackedIndexToIndexMultiMap);
+    }
+
+    @Test
+    public void runs() {
+        // Packed sets need a block header per 128 consecutive documents
+        final TreeMultimap<Integer, Integer> elements = TreeMultimap.create();
+        final int values = 16;
+        final int run = 4096;
+        for (int i = 0; i < values * run; i++) {
+            elements.put(i / run, i);
+        }
+        final IndexToIndexMultiMap map =
+                IndexToIndexMultiMapFactory.buildIndexToIndexMultiMap(
+                        elements.asMap().values(),
+                        values * run);
+        assertTrue(map instanceof HybridIndexToIndexMultiMap);
+    }
+
+    @Test
+    public void commonValueWithHundredsOfRareOnes() {
+        final TreeMultimap<Integer, Integer> elements = TreeMultimap.create();
+        final int documents = 200000;
+        final int rare = 299;
+        final Random random = new Random(42);
+        for (int i = 0; i < documents; i++) {
+            if (random.nextInt(10) == 0) {
+                elements.put(1 + random.nextInt(rare), i);
+            } else {
+                elements.put(0, i);
+            }
+        }
+        // Rare values have about 70 documents each, so 16-bit array
+        // containers beat int lists
+        final IndexToIndexMultiMap map =
+                IndexToIndexMultiMapFactory.buildIndexToIndexMultiMap(
+                        elements.asMap().values(),
+                        documents);
+        assertTrue(map instanceof HybridIndexToIndexMultiMap);
+    }
+
+    @Test
+    public void commonValueWithThousandsOfRareOnes() {
+        final TreeMultimap<Integer, Integer> elements = TreeMultimap.create();
+        final int documents = 200000;
+        final int rare = 5000;
+        final Random random = new Random(42);
+        for (int i = 0; i < documents; i++) {
+            if (random.nextInt(10) == 0) {
+                elements.put(1 + random.nextInt(rare), i);
+            } else {
+                elements.put(0, i);
+            }
+        }
+        // Rare values have a few documents each, so per container
+        // overhead of the hybrid layout outweighs 4-byte list elements
+        final IndexToIndexMultiMap map =
+                IndexToIndexMultiMapFactory.buildIndexToIndexMultiMap(
+                        elements.asMap().values(),
+                        documents);
+        assertTrue(map instanceof MixedIndexToIndexMultiMap);
+        // Only the common value is a bit set
+        assertEquals(1, ((MixedIndexToIndexMultiMap) map).getBitSetsCount());
+    }
+
+    @Test
+    public void perValue() {
+        final TreeMultimap<Integer, Integer> elements = TreeMultimap.create();
+        final int documents = 100000;
+        final Random random = new Random(42);
+        for (int i = 0; i < documents; i++) {
+            if (random.nextInt(10) == 0) {
+                // Rare values
+                elements.put(1 + i, i);
+            } else {
+                elements.put(0, i);
+            }
+        }
+        final IndexToIndexMultiMap map =
+                IndexToIndexMultiMapFactory.buildIndexToIndexMultiMap(
+                        elements.asMap().values(),
+                        documents);
+        assertTrue(map instanceof MixedIndexToIndexMultiMap);
+    }
+
     @Test
     public void nonSelective() {
-        @SuppressWarnings("unchecked")
+        final TreeMultimap<Integer, Integer> elements = TreeMultimap.create();
+        final int documents = 1024;
+        final Random random = new Random(42);
+        for (int i = 0; i < documents; i++) {
+            elements.put(random.nextInt(2), i);
+        }
         final IndexToIndexMultiMap map =
                 IndexToIndexMultiMapFactory.buildIndexToIndexMultiMap(
-                        Arrays.asList(singletonList(0), singletonList(1)),
-                        128);
+                        elements.asMap().values(),
+                        documents);
         assertTrue(map instanceof BitSetIndexToIndexMultiMap);
     }
 }
@@ -0,0 +1,94 @@
+/*
+ * (C) YANDEX LLC, 2014-2016
+ *
+ * The Source Code called "YoctoDB" available at
+ * https://github.com/yandex/yoctodb is subject to the terms of the
+ * Mozilla Public License, v. 2.0 (hereinafter referred to as the "License").
+ *
+ * A copy of the License is also available at http://mozilla.org/MPL/2.0/.
+ */
+
+package com.yandex.yoctodb.util.mutable.impl;
+
+import com.yandex.yoctodb.util.mutable.IndexToIndexMap;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for {@link PackedIndexToIndexMap}
+ *
+ * @author agent
+ */
+public class PackedIndexToIndexMapTest {
+    @Test
+    public void bits() {
+        assertEquals(0, PackedIndexToIndexMap.bits(0));
+        assertEquals(0, PackedIndexToIndexMap.bits(1));
+        assertEquals(1, PackedIndexToIndexMap.bits(2));
+        assertEquals(2, PackedIndexToIndexMap.bits(3));
+        assertEquals(2, PackedIndexToIndexMap.bits(4));
+        assertEquals(3, PackedIndexToIndexMap.bits(5));
+        assertEquals(31, PackedIndexToIndexMap.bits(Integer.MAX_VALUE));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void negativeValuesCount() {
+        new PackedIndexToIndexMap(-1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void negativeKey() {
+        new PackedIndexToIndexMap(1).put(-1, 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void negativeValue() {
+        new PackedIndexToIndexMap(1).put(0, -1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void tooLargeValue() {
+        new PackedIndexToIndexMap(3).put(0, 3);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void nonContinuous() throws IOException {
+        final IndexToIndexMap idx = new PackedIndexToIndexMap(1);
+        idx.put(0, 0);
+        idx.put(2, 0);
+        idx.writeTo(new ByteArrayOutputStream());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void overwrite() {
+        final IndexToIndexMap idx = new PackedIndexToIndexMap(1);
+        idx.put(0, 0);
+        idx.put(0, 0);
+    }
+
+    @Test
+    public void sizeInBytes() throws IOException {
+        for (int valuesCount : new int[]{1, 3, 1000, 1 << 20}) {
+            final IndexToIndexMap idx = new PackedIndexToIndexMap(valuesCount);
+            for (int i = 0; i < 100; i++) {
+                idx.put(i, i % valuesCount);
+            }
+            final ByteArrayOutputStream os = new ByteArrayOutputStream();
+            idx.writeTo(os);
+            assertEquals(idx.getSizeInBytes(), os.size());
+        }
+    }
+
+    @Test
+    public void string() {
+        final IndexToIndexMap idx = new PackedIndexToIndexMap(3);
+        idx.put(0, 0);
+        idx.put(1, 2);
+        assertTrue(idx.toString().contains("2"));
+    }
+}
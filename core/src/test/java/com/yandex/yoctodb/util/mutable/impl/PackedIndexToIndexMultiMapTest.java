@@ -0,0 +1,83 @@
+/*
+ * (C) YANDEX LLC, 2014-2016
+ *
+ * The Source Code called "YoctoDB" available at
+ * https://github.com/yandex/yoctodb is subject to the terms of the
+ * Mozilla Public License, v. 2.0 (hereinafter referred to as the "License").
+ *
+ * A copy of the License is also available at http://mozilla.org/MPL/2.0/.
+ */
+
+package com.yandex.yoctodb.util.mutable.impl;
+
+import com.google.common.collect.TreeMultimap;
+import com.yandex.yoctodb.util.mutable.IndexToIndexMultiMap;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import static java.util.Collections.singletonList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for {@link PackedIndexToIndexMultiMap}
+ *
+ * @author agent
+ */
+public class PackedIndexToIndexMultiMapTest {
+    @Test(expected = AssertionError.class)
+    public void negativeValue() throws IOException {
+        new PackedIndexToIndexMultiMap(
+                singletonList(singletonList(-1)))
+                .writeTo(new ByteArrayOutputStream());
+    }
+
+    @Test(expected = AssertionError.class)
+    public void unsorted() throws IOException {
+        new PackedIndexToIndexMultiMap(
+                singletonList(Arrays.asList(2, 1)))
+                .writeTo(new ByteArrayOutputStream());
+    }
+
+    @Test
+    public void size() throws IOException {
+        final TreeMultimap<Integer, Integer> elements = TreeMultimap.create();
+        for (int i = 0; i < 10000; i++) {
+            elements.put(i % 3, i * (i % 7 + 1));
+        }
+        final IndexToIndexMultiMap map =
+                new PackedIndexToIndexMultiMap(elements.asMap().values());
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        map.writeTo(baos);
+        assertEquals(map.getSizeInBytes(), baos.size());
+    }
+
+    @Test
+    public void smallerThanList() {
+        final TreeMultimap<Integer, Integer> elements = TreeMultimap.create();
+        for (int i = 0; i < 10000; i++) {
+            elements.put(i % 3, i);
+        }
+        assertTrue(
+                new PackedIndexToIndexMultiMap(
+                        elements.asMap().values()).getSizeInBytes() * 4 <
+                new IntIndexToIndexMultiMap(
+                        elements.asMap().values()).getSizeInBytes());
+    }
+
+    @Test
+    public void string() {
+        final TreeMultimap<Integer, Integer> elements = TreeMultimap.create();
+        final int documents = 10;
+        for (int i = 0; i < documents; i++)
+            elements.put(i / 2, i);
+        final IndexToIndexMultiMap set =
+                new PackedIndexToIndexMultiMap(
+                        elements.asMap().values());
+        final String text = set.toString();
+        assertTrue(text.contains(Integer.toString(documents / 2)));
+    }
+}
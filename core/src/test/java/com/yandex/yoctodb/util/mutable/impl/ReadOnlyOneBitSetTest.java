@@ -82,6 +82,15 @@ public class ReadOnlyOneBitSetTest {
                 1);
     }
 
+    @Test(expected = UnsupportedOperationException.class)
+    public void unsupportedOrBufferWords() {
+        new ReadOnlyOneBitSet(1).or(
+                Buffer.from(new byte[]{0, 0, 0, 0, 0, 0, 0, 0}),
+                0,
+                0,
+                1);
+    }
+
     @Test
     public void nextSetBit() {
         final BitSet bs = new ReadOnlyOneBitSet(SIZE);
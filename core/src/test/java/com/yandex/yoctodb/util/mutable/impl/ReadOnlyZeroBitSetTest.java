@@ -90,6 +90,15 @@ public class ReadOnlyZeroBitSetTest {
                 1);
     }
 
+    @Test(expected = UnsupportedOperationException.class)
+    public void unsupportedOrBufferWords() {
+        new ReadOnlyZeroBitSet(1).or(
+                Buffer.from(new byte[]{0, 0, 0, 0, 0, 0, 0, 0}),
+                0,
+                0,
+                1);
+    }
+
     @Test
     public void nextSetBit() {
         final BitSet bs = new ReadOnlyZeroBitSet(SIZE);
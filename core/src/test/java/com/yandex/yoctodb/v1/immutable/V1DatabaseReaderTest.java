@@ -10,18 +10,43 @@
 
 package com.yandex.yoctodb.v1.immutable;
 
+import com.google.common.primitives.Ints;
+import com.google.common.primitives.Longs;
 import com.yandex.yoctodb.DatabaseFormat;
 import com.yandex.yoctodb.mutable.DatabaseBuilder;
 import com.yandex.yoctodb.mutable.DocumentBuilder;
+import com.yandex.yoctodb.immutable.FilterableIndex;
+import com.yandex.yoctodb.immutable.IndexedDatabase;
+import com.yandex.yoctodb.immutable.Payload;
+import com.yandex.yoctodb.immutable.SortableIndex;
+import com.yandex.yoctodb.util.Crc32cMessageDigest;
+import com.yandex.yoctodb.util.buf.AccessHint;
 import com.yandex.yoctodb.util.buf.Buffer;
+import com.yandex.yoctodb.util.mutable.impl.AllocatingArrayBitSetPool;
+import com.yandex.yoctodb.v1.immutable.segment.SegmentFootprint;
+import com.yandex.yoctodb.v1.immutable.segment.SegmentRegistry;
+import org.jetbrains.annotations.NotNull;
 import org.junit.Test;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.security.NoSuchAlgorithmException;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import static com.yandex.yoctodb.v1.V1DatabaseFormat.*;
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static org.junit.Assert.*;
 
 /**
  * Unit tests for {@link V1DatabaseReader}
@@ -73,20 +98,135 @@ public class V1DatabaseReaderTest {
         return os.toByteArray();
     }
 
+    // Magic, format and digest algorithm
+    private static int headerSize() {
+        return MAGIC.length + Ints.BYTES +
+               Ints.BYTES +
+               getMessageDigestAlgorithm().getBytes(US_ASCII).length;
+    }
+
     @Test(expected = NoSuchAlgorithmException.class)
     public void wrongDigestAlgorithm() throws Throwable {
-        final Buffer buffer = Buffer.from(buildDatabase());
-        final String originalAlgorithm = getMessageDigestAlgorithm();
-        final int originalSize = getDigestSizeInBytes();
+        final byte[] bytes = buildDatabase();
+        // First letter of the digest algorithm recorded in the header
+        final int position = MAGIC.length + Ints.BYTES + Ints.BYTES;
+        bytes[position] = (byte) ~bytes[position];
         try {
-            setMessageDigestAlgorithm("WRONG");
-            INSTANCE.from(buffer);
+            INSTANCE.from(Buffer.from(bytes));
         } catch (Exception e) {
             throw e.getCause();
+        }
+    }
+
+    @Test
+    public void crc32c() throws IOException {
+        final String originalAlgorithm = getMessageDigestAlgorithm();
+        final byte[] bytes;
+        try {
+            setMessageDigestAlgorithm(Crc32cMessageDigest.ALGORITHM);
+            bytes = buildDatabase();
         } finally {
-            setDigestSizeInBytes(originalSize);
             setMessageDigestAlgorithm(originalAlgorithm);
         }
+
+        // The algorithm is taken from the header
+        final IndexedDatabase db = INSTANCE.from(Buffer.from(bytes));
+        assertEquals(2, db.getDocumentCount());
+        assertEquals(Buffer.from("payload2".getBytes()), db.getDocument(1));
+        assertEquals(3, INSTANCE.footprint(Buffer.from(bytes)).size());
+
+        // Segment corruption is detected
+        final int position =
+                MAGIC.length + Ints.BYTES + // Magic and format
+                Ints.BYTES + // Digest algorithm length
+                Crc32cMessageDigest.ALGORITHM.getBytes().length +
+                Longs.BYTES + Ints.BYTES + // Segment size and type
+                Ints.BYTES; // Field name length
+        bytes[position] = (byte) ~bytes[position];
+        try {
+            INSTANCE.from(Buffer.from(bytes));
+            fail();
+        } catch (IllegalArgumentException e) {
+            // Expected
+        }
+    }
+
+    private byte[] buildCorruptedDatabase() throws IOException {
+        final byte[] bytes = buildDatabase();
+        // First letter of the first index field name
+        final int position =
+                headerSize() +
+                Longs.BYTES + Ints.BYTES + // Segment size and type
+                Ints.BYTES; // Field name length
+        bytes[position] = (byte) ~bytes[position];
+        return bytes;
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void corruptedSegment() throws IOException {
+        INSTANCE.from(Buffer.from(buildCorruptedDatabase()));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void corruptedSegmentLazy() throws IOException {
+        final IndexedDatabase db =
+                INSTANCE.from(
+                        Buffer.from(buildCorruptedDatabase()),
+                        AllocatingArrayBitSetPool.INSTANCE,
+                        V1DatabaseReader.Verification.LAZY);
+        assertEquals(Buffer.from("payload1".getBytes()), db.getDocument(0));
+
+        db.getFilter("text");
+        db.getFilter("int");
+    }
+
+    @Test
+    public void verifiedOnExecutor() throws IOException {
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            final IndexedDatabase db =
+                    INSTANCE.from(
+                            Buffer.from(buildDatabase()),
+                            AllocatingArrayBitSetPool.INSTANCE,
+                            V1DatabaseReader.Verification.EAGER,
+                            executor);
+            assertEquals(2, db.getDocumentCount());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void corruptedSegmentOnExecutor() throws IOException {
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            INSTANCE.from(
+                    Buffer.from(buildCorruptedDatabase()),
+                    AllocatingArrayBitSetPool.INSTANCE,
+                    V1DatabaseReader.Verification.EAGER,
+                    executor);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void corruptedSegmentNotVerified() throws IOException {
+        final IndexedDatabase db =
+                INSTANCE.from(
+                        Buffer.from(buildCorruptedDatabase()),
+                        AllocatingArrayBitSetPool.INSTANCE,
+                        V1DatabaseReader.Verification.NONE);
+        assertEquals(2, db.getDocumentCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void corruptedDirectory() throws IOException {
+        final byte[] bytes = buildDatabase();
+        // Directory size
+        final int position = bytes.length - getDigestSizeInBytes() - 1;
+        bytes[position] = (byte) ~bytes[position];
+        INSTANCE.from(Buffer.from(bytes));
     }
 
     @Test(expected = IllegalArgumentException.class)
@@ -111,4 +251,193 @@ public class V1DatabaseReaderTest {
                         MAGIC.length + getDigestSizeInBytes() - 1);
         INSTANCE.from(Buffer.from(bytes));
     }
+
+    @Test
+    public void advise() throws IOException {
+        final byte[] bytes = buildDatabase();
+        final ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length);
+        direct.put(bytes);
+        direct.flip();
+
+        final V1Database db =
+                INSTANCE.from(
+                        Buffer.from(direct),
+                        AllocatingArrayBitSetPool.INSTANCE,
+                        V1DatabaseReader.Verification.NONE);
+        db.advisePayload(AccessHint.WILL_NEED);
+        db.adviseFilter("text", AccessHint.RANDOM);
+        db.adviseFilter("int", AccessHint.WILL_NEED);
+        db.adviseSorter("int", AccessHint.SEQUENTIAL);
+
+        assertEquals(Buffer.from("payload2".getBytes()), db.getDocument(1));
+        assertNotNull(db.getFilter("text"));
+
+        // Still possible after the segment is read
+        db.adviseFilter("text", AccessHint.NORMAL);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void adviseUnknownField() throws IOException {
+        final V1Database db =
+                INSTANCE.from(
+                        Buffer.from(buildDatabase()),
+                        AllocatingArrayBitSetPool.INSTANCE,
+                        V1DatabaseReader.Verification.NONE);
+        db.adviseFilter("unknown", AccessHint.WILL_NEED);
+    }
+
+    @Test
+    public void warmUp() throws IOException {
+        final byte[] bytes = buildDatabase();
+        final ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length);
+        direct.put(bytes);
+        direct.flip();
+
+        final V1Database db =
+                INSTANCE.from(
+                        Buffer.from(direct),
+                        AllocatingArrayBitSetPool.INSTANCE,
+                        V1DatabaseReader.Verification.NONE);
+        db.warmUp(Collections.singleton("int"));
+        db.warmUp();
+
+        assertNotNull(db.getFilter("text"));
+        assertEquals(Buffer.from("payload1".getBytes()), db.getDocument(0));
+    }
+
+    @Test
+    public void warmUpReadsSegments() throws IOException {
+        final V1Database db =
+                INSTANCE.from(
+                        Buffer.from(buildCorruptedDatabase()),
+                        AllocatingArrayBitSetPool.INSTANCE,
+                        V1DatabaseReader.Verification.LAZY);
+
+        // Nothing to read
+        db.warmUp(Collections.<String>emptySet());
+
+        try {
+            db.warmUp();
+            fail();
+        } catch (IllegalArgumentException e) {
+            // Corrupted index is verified while reading
+        }
+    }
+
+    @Test
+    public void readSegments() throws IOException {
+        final V1Database read =
+                INSTANCE.from(
+                        Buffer.from(buildDatabase()),
+                        AllocatingArrayBitSetPool.INSTANCE,
+                        V1DatabaseReader.Verification.NONE);
+        final Map<String, FilterableIndex> filters = new HashMap<>();
+        filters.put("int", read.getFilter("int"));
+        final Map<String, SortableIndex> sorters = new HashMap<>();
+        sorters.put("int", read.getSorter("int"));
+        final Payload payload =
+                (Payload) SegmentRegistry.read(
+                        SegmentType.PAYLOAD_NONE.getCode(),
+                        Buffer.from(Ints.toByteArray(2)));
+
+        final V1Database db =
+                new V1Database(
+                        payload,
+                        filters,
+                        sorters,
+                        AllocatingArrayBitSetPool.INSTANCE);
+        db.adviseFilter("int", AccessHint.WILL_NEED);
+        db.warmUp();
+
+        assertEquals(2, db.getDocumentCount());
+        assertSame(read.getFilter("int"), db.getFilter("int"));
+        assertEquals(read.getFieldValue(1, "int"), db.getFieldValue(1, "int"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void readNotSegments() {
+        new V1Database(
+                new Payload() {
+                    @Override
+                    public int getSize() {
+                        return 0;
+                    }
+
+                    @NotNull
+                    @Override
+                    public Buffer getPayload(final int i) {
+                        throw new NoSuchElementException();
+                    }
+                },
+                Collections.<String, FilterableIndex>emptyMap(),
+                Collections.<String, SortableIndex>emptyMap(),
+                AllocatingArrayBitSetPool.INSTANCE);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void warmUpUnknownField() throws IOException {
+        final V1Database db =
+                INSTANCE.from(
+                        Buffer.from(buildDatabase()),
+                        AllocatingArrayBitSetPool.INSTANCE,
+                        V1DatabaseReader.Verification.NONE);
+        db.warmUp(Collections.singleton("unknown"));
+    }
+
+    @Test
+    public void footprint() throws IOException {
+        final byte[] bytes = buildDatabase();
+        final List<SegmentFootprint> footprints =
+                INSTANCE.footprint(Buffer.from(bytes));
+
+        // Two full indexes and payload
+        assertEquals(3, footprints.size());
+
+        // Segment directory size is stored right before the digest
+        final long directorySize =
+                Buffer.from(bytes).getLong(
+                        bytes.length - getDigestSizeInBytes() - Longs.BYTES);
+        long size =
+                headerSize() + directorySize +
+                getDigestSizeInBytes();
+        final Set<String> fields = new HashSet<>();
+        for (SegmentFootprint footprint : footprints) {
+            size += footprint.getSizeInBytes();
+
+            long components = 0;
+            for (long component : footprint.getComponents().values()) {
+                components += component;
+            }
+            assertTrue(
+                    footprint.getSizeInBytes() >=
+                    SegmentFootprint.HEADER_SIZE + components);
+
+            if (footprint.getType() == SegmentType.PAYLOAD_FULL) {
+                assertNull(footprint.getFieldName());
+                assertNull(footprint.getMultiMapType());
+                assertTrue(
+                        footprint.getComponents().get(
+                                SegmentFootprint.Component.PAYLOAD) > 0);
+            } else {
+                fields.add(footprint.getFieldName());
+                assertNotNull(footprint.getMultiMapType());
+                assertEquals(
+                        EnumSet.of(
+                                SegmentFootprint.Component.VALUES,
+                                SegmentFootprint.Component.VALUE_TO_DOCUMENTS,
+                                SegmentFootprint.Component.DOCUMENT_TO_VALUE),
+                        footprint.getComponents().keySet());
+            }
+        }
+
+        assertEquals(bytes.length, size);
+        assertEquals(new HashSet<>(Arrays.asList("text", "int")), fields);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void footprintWrongMagic() throws IOException {
+        final byte[] bytes = buildDatabase();
+        bytes[0] = (byte) ~MAGIC[0];
+        INSTANCE.footprint(Buffer.from(bytes));
+    }
 }
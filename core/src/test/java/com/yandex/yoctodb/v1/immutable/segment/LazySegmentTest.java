@@ -0,0 +1,196 @@
+/*
+ * (C) YANDEX LLC, 2014-2016
+ *
+ * The Source Code called "YoctoDB" available at
+ * https://github.com/yandex/yoctodb is subject to the terms of the
+ * Mozilla Public License, v. 2.0 (hereinafter referred to as the "License").
+ *
+ * A copy of the License is also available at http://mozilla.org/MPL/2.0/.
+ */
+
+package com.yandex.yoctodb.v1.immutable.segment;
+
+import com.google.common.primitives.Ints;
+import com.yandex.yoctodb.DatabaseFormat;
+import com.yandex.yoctodb.immutable.Payload;
+import com.yandex.yoctodb.mutable.DatabaseBuilder;
+import com.yandex.yoctodb.mutable.DocumentBuilder;
+import com.yandex.yoctodb.util.buf.AccessHint;
+import com.yandex.yoctodb.util.buf.Buffer;
+import com.yandex.yoctodb.v1.V1DatabaseFormat;
+import org.jetbrains.annotations.NotNull;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Unit tests for {@link LazySegment}
+ *
+ * @author agent
+ */
+public class LazySegmentTest {
+    private static byte[] buildDatabase(final int documents)
+            throws IOException {
+        final DatabaseBuilder dbBuilder =
+                DatabaseFormat.getCurrent().newDatabaseBuilder();
+        for (int i = 0; i < documents; i++) {
+            dbBuilder.merge(
+                    DatabaseFormat
+                            .getCurrent()
+                            .newDocumentBuilder()
+                            .withField(
+                                    "id",
+                                    i,
+                                    DocumentBuilder.IndexOption.FILTERABLE));
+        }
+
+        final ByteArrayOutputStream os = new ByteArrayOutputStream();
+        dbBuilder.buildWritable().writeTo(os);
+        return os.toByteArray();
+    }
+
+    private static int headerSize() {
+        return V1DatabaseFormat.MAGIC.length + Ints.BYTES + // Format
+               Ints.BYTES + // Digest algorithm
+               V1DatabaseFormat.getMessageDigestAlgorithm()
+                       .getBytes(US_ASCII).length;
+    }
+
+    @NotNull
+    private static SegmentDirectory directory(
+            @NotNull
+            final byte[] database) {
+        // Without header and digest
+        final Buffer buf = Buffer.from(database);
+        return SegmentDirectory.from(
+                buf.slice(
+                        headerSize(),
+                        buf.remaining() - headerSize() -
+                        V1DatabaseFormat.getDigestSizeInBytes()));
+    }
+
+    @NotNull
+    private static SegmentDirectory.Entry payloadEntry(
+            @NotNull
+            final SegmentDirectory directory) {
+        for (SegmentDirectory.Entry entry : directory.getEntries()) {
+            if (entry.getFieldName() == null) {
+                assertEquals(
+                        V1DatabaseFormat.SegmentType.PAYLOAD_NONE.getCode(),
+                        entry.getTypeCode());
+                return entry;
+            }
+        }
+
+        throw new AssertionError("No payload");
+    }
+
+    @NotNull
+    private static LazySegment payload(
+            @NotNull
+            final byte[] database,
+            final boolean verify) {
+        final SegmentDirectory directory = directory(database);
+        return new LazySegment(directory, payloadEntry(directory), verify);
+    }
+
+    private static LazySegment build(final int documents) throws IOException {
+        return payload(buildDatabase(documents), false);
+    }
+
+    @Test
+    public void readOnce() throws IOException {
+        final LazySegment lazy = build(10);
+        assertFalse(lazy.isRead());
+
+        final Segment segment = lazy.get();
+        assertTrue(lazy.isRead());
+        assertEquals(10, ((Payload) segment).getSize());
+        assertSame(segment, lazy.get());
+        assertTrue(lazy.toString().contains("segment="));
+    }
+
+    @Test
+    public void alreadyRead() throws IOException {
+        final Segment segment = build(3).get();
+        final LazySegment lazy = new LazySegment(segment);
+        assertTrue(lazy.isRead());
+        lazy.advise(AccessHint.WILL_NEED);
+        assertSame(segment, lazy.get());
+    }
+
+    @Test
+    public void verified() throws IOException {
+        final LazySegment lazy = payload(buildDatabase(5), true);
+        assertEquals(5, ((Payload) lazy.get()).getSize());
+    }
+
+    @Test
+    public void corrupted() throws IOException {
+        final byte[] database = buildDatabase(5);
+        final SegmentDirectory directory = directory(database);
+        final SegmentDirectory.Entry entry = payloadEntry(directory);
+        final LazySegment verified = new LazySegment(directory, entry, true);
+        final LazySegment unverified =
+                new LazySegment(directory, entry, false);
+
+        // Segment data is read from the database bytes on the first access
+        final int position =
+                headerSize() + (int) (entry.getOffset() + entry.getSize()) - 1;
+        database[position] = (byte) ~database[position];
+
+        try {
+            verified.get();
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertFalse(verified.isRead());
+        }
+
+        assertTrue(unverified.get() instanceof Payload);
+    }
+
+    @Test
+    public void concurrent() throws Exception {
+        final LazySegment lazy = build(10);
+        final int threads = 8;
+        final CountDownLatch start = new CountDownLatch(1);
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            final Collection<Future<Segment>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(
+                        executor.submit(
+                                new Callable<Segment>() {
+                                    @Override
+                                    public Segment call() throws Exception {
+                                        start.await();
+                                        return lazy.get();
+                                    }
+                                }));
+            }
+            start.countDown();
+
+            final Segment expected = lazy.get();
+            for (Future<Segment> future : futures) {
+                assertSame(expected, future.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
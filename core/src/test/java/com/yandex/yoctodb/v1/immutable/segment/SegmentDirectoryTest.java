@@ -0,0 +1,159 @@
+/*
+ * (C) YANDEX LLC, 2014-2016
+ *
+ * The Source Code called "YoctoDB" available at
+ * https://github.com/yandex/yoctodb is subject to the terms of the
+ * Mozilla Public License, v. 2.0 (hereinafter referred to as the "License").
+ *
+ * A copy of the License is also available at http://mozilla.org/MPL/2.0/.
+ */
+
+package com.yandex.yoctodb.v1.immutable.segment;
+
+import com.google.common.primitives.Ints;
+import com.google.common.primitives.Longs;
+import com.yandex.yoctodb.DatabaseFormat;
+import com.yandex.yoctodb.mutable.DatabaseBuilder;
+import com.yandex.yoctodb.mutable.DocumentBuilder;
+import com.yandex.yoctodb.util.buf.Buffer;
+import com.yandex.yoctodb.v1.V1DatabaseFormat;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for {@link SegmentDirectory}
+ *
+ * @author agent
+ */
+public class SegmentDirectoryTest {
+    private static Buffer buildBody() throws IOException {
+        final DatabaseBuilder dbBuilder =
+                DatabaseFormat.getCurrent().newDatabaseBuilder();
+        for (int i = 0; i < 10; i++) {
+            dbBuilder.merge(
+                    DatabaseFormat
+                            .getCurrent()
+                            .newDocumentBuilder()
+                            .withField(
+                                    "id",
+                                    i,
+                                    DocumentBuilder.IndexOption.FULL)
+                            .withField(
+                                    "name",
+                                    "name" + i,
+                                    DocumentBuilder.IndexOption.FILTERABLE)
+                            .withPayload(("payload" + i).getBytes()));
+        }
+
+        final ByteArrayOutputStream os = new ByteArrayOutputStream();
+        dbBuilder.buildWritable().writeTo(os);
+
+        // Without header and digest
+        final Buffer buf = Buffer.from(os.toByteArray());
+        final int header =
+                V1DatabaseFormat.MAGIC.length + Ints.BYTES + // Format
+                Ints.BYTES + // Digest algorithm
+                V1DatabaseFormat.getMessageDigestAlgorithm()
+                        .getBytes(US_ASCII).length;
+        return buf.slice(
+                header,
+                buf.remaining() - header -
+                V1DatabaseFormat.getDigestSizeInBytes());
+    }
+
+    @Test
+    public void entries() throws IOException {
+        final Buffer body = buildBody();
+        final SegmentDirectory directory = SegmentDirectory.from(body);
+        assertEquals(3, directory.getEntries().size());
+
+        final Map<String, Integer> types = new HashMap<>();
+        for (SegmentDirectory.Entry entry : directory.getEntries()) {
+            // Segment header is right before the data
+            final Buffer data = directory.getData(entry);
+            assertEquals(entry.getSize(), data.remaining());
+            assertEquals(entry.getSize(), body.getLong(entry.getOffset() - 12));
+            assertEquals(
+                    entry.getTypeCode(),
+                    body.getInt(entry.getOffset() - 4));
+            assertTrue(entry.toString().contains(
+                    Long.toString(entry.getOffset())));
+
+            if (entry.getFieldName() == null) {
+                assertEquals(
+                        V1DatabaseFormat.SegmentType.PAYLOAD_FULL.getCode(),
+                        entry.getTypeCode());
+                assertEquals(
+                        10,
+                        ((com.yandex.yoctodb.immutable.Payload)
+                                SegmentRegistry.read(
+                                        entry.getTypeCode(),
+                                        data)).getSize());
+            } else {
+                types.put(entry.getFieldName(), entry.getTypeCode());
+            }
+        }
+
+        assertEquals(
+                V1DatabaseFormat.SegmentType.FIXED_LENGTH_FULL_INDEX.getCode(),
+                (int) types.get("id"));
+        assertTrue(types.containsKey("name"));
+    }
+
+    @Test
+    public void verify() throws IOException {
+        final SegmentDirectory directory = SegmentDirectory.from(buildBody());
+        assertEquals(
+                V1DatabaseFormat.getMessageDigestAlgorithm(),
+                directory.getAlgorithm());
+        for (SegmentDirectory.Entry entry : directory.getEntries()) {
+            assertTrue(directory.verify(entry));
+            assertEquals(
+                    SegmentDirectory.digest(directory.getData(entry)),
+                    entry.getDigest());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void wrongDirectoryDigest() throws IOException {
+        SegmentDirectory.from(
+                buildBody(),
+                Buffer.from(new byte[V1DatabaseFormat.getDigestSizeInBytes()]));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void noDirectory() {
+        SegmentDirectory.from(Buffer.from(new byte[4]));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void wrongDirectorySize() {
+        SegmentDirectory.from(Buffer.from(Longs.toByteArray(1000L)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void segmentOutOfBounds() throws IOException {
+        final ByteArrayOutputStream os = new ByteArrayOutputStream();
+        // Segments count
+        os.write(Ints.toByteArray(1));
+        // Entry
+        os.write(Ints.toByteArray(
+                V1DatabaseFormat.SegmentType.PAYLOAD_FULL.getCode()));
+        os.write(Ints.toByteArray(0));
+        os.write(Longs.toByteArray(12L));
+        os.write(Longs.toByteArray(100L));
+        os.write(new byte[V1DatabaseFormat.getDigestSizeInBytes()]);
+        // Directory size
+        os.write(Longs.toByteArray(os.size() + 8L));
+
+        SegmentDirectory.from(Buffer.from(os.toByteArray()));
+    }
+}
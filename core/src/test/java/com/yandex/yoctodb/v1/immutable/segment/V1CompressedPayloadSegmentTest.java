@@ -0,0 +1,134 @@
+/*
+ * (C) YANDEX LLC, 2014-2016
+ *
+ * The Source Code called "YoctoDB" available at
+ * https://github.com/yandex/yoctodb is subject to the terms of the
+ * Mozilla Public License, v. 2.0 (hereinafter referred to as the "License").
+ *
+ * A copy of the License is also available at http://mozilla.org/MPL/2.0/.
+ */
+
+package com.yandex.yoctodb.v1.immutable.segment;
+
+import com.yandex.yoctodb.immutable.Payload;
+import com.yandex.yoctodb.util.UnsignedByteArray;
+import com.yandex.yoctodb.util.UnsignedByteArrays;
+import com.yandex.yoctodb.util.buf.Buffer;
+import com.yandex.yoctodb.v1.V1DatabaseFormat;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for {@link V1CompressedPayloadSegment}
+ *
+ * @author agent
+ */
+public class V1CompressedPayloadSegmentTest {
+    private static byte[] payload(final int i) {
+        // Empty payloads included
+        final StringBuilder result = new StringBuilder();
+        for (int j = 0; j < i % 7; j++) {
+            result.append("payload").append(i);
+        }
+        return result.toString().getBytes();
+    }
+
+    private static Payload build(
+            final int documents,
+            final int documentsPerBlock) throws IOException {
+        final Collection<UnsignedByteArray> elements = new ArrayList<>();
+        for (int i = 0; i < documents; i++) {
+            elements.add(UnsignedByteArrays.from(payload(i)));
+        }
+
+        final ByteArrayOutputStream os = new ByteArrayOutputStream();
+        new com.yandex.yoctodb.v1.mutable.segment.V1CompressedPayloadSegment(
+                elements,
+                documentsPerBlock).buildWritable().writeTo(os);
+
+        final Buffer buf = Buffer.from(os.toByteArray());
+        final long size = buf.getLong();
+        assertEquals(size + 4, buf.remaining());
+        final int code = buf.getInt();
+        assertEquals(
+                V1DatabaseFormat.SegmentType.PAYLOAD_COMPRESSED.getCode(),
+                code);
+
+        final Payload result = (Payload) SegmentRegistry.read(code, buf);
+        assertEquals(documents, result.getSize());
+        assertTrue(result.toString().contains(Integer.toString(documents)));
+
+        return result;
+    }
+
+    @Test
+    public void sequential() throws IOException {
+        for (int documentsPerBlock : new int[]{1, 7, 64, 1000}) {
+            final Payload segment = build(100, documentsPerBlock);
+            for (int i = 0; i < segment.getSize(); i++) {
+                assertArrayEquals(
+                        payload(i),
+                        segment.getPayload(i).toByteArray());
+            }
+        }
+    }
+
+    @Test
+    public void random() throws IOException {
+        final Payload segment = build(10000, 16);
+        final Random random = new Random(42);
+        for (int k = 0; k < 10000; k++) {
+            final int i = random.nextInt(segment.getSize());
+            assertArrayEquals(
+                    payload(i),
+                    segment.getPayload(i).toByteArray());
+        }
+    }
+
+    @Test
+    public void concurrent() throws Exception {
+        final Payload segment = build(10000, 16);
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            final Collection<Future<Void>> futures = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                final int seed = t;
+                futures.add(
+                        executor.submit(
+                                new Callable<Void>() {
+                                    @Override
+                                    public Void call() {
+                                        final Random random = new Random(seed);
+                                        for (int k = 0; k < 10000; k++) {
+                                            final int i =
+                                                    random.nextInt(
+                                                            segment.getSize());
+                                            assertArrayEquals(
+                        payload(i),
+                        segment.getPayload(i).toByteArray());
+                                        }
+                                        return null;
+                                    }
+                                }));
+            }
+            for (Future<Void> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * (C) YANDEX LLC, 2014-2016
+ *
+ * The Source Code called "YoctoDB" available at
+ * https://github.com/yandex/yoctodb is subject to the terms of the
+ * Mozilla Public License, v. 2.0 (hereinafter referred to as the "License").
+ *
+ * A copy of the License is also available at http://mozilla.org/MPL/2.0/.
+ */
+
+package com.yandex.yoctodb.v1.immutable.segment;
+
+import com.yandex.yoctodb.immutable.Payload;
+import com.yandex.yoctodb.util.UnsignedByteArray;
+import com.yandex.yoctodb.util.UnsignedByteArrays;
+import com.yandex.yoctodb.util.buf.Buffer;
+import com.yandex.yoctodb.v1.V1DatabaseFormat;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for {@link V1DeduplicatedPayloadSegment}
+ *
+ * @author agent
+ */
+public class V1DeduplicatedPayloadSegmentTest {
+    private static byte[] payload(
+            final int i,
+            final int distinct) {
+        // Empty payloads included
+        final int variant = i % distinct;
+        return variant == 0 ? new byte[0] : ("payload" + variant).getBytes();
+    }
+
+    private static Payload build(
+            final int documents,
+            final int distinct) throws IOException {
+        final Collection<UnsignedByteArray> elements = new ArrayList<>();
+        for (int i = 0; i < documents; i++) {
+            elements.add(UnsignedByteArrays.from(payload(i, distinct)));
+        }
+
+        final ByteArrayOutputStream os = new ByteArrayOutputStream();
+        new com.yandex.yoctodb.v1.mutable.segment.V1DeduplicatedPayloadSegment(
+                elements).buildWritable().writeTo(os);
+
+        final Buffer buf = Buffer.from(os.toByteArray());
+        final long size = buf.getLong();
+        assertEquals(size + 4, buf.remaining());
+        final int code = buf.getInt();
+        assertEquals(
+                V1DatabaseFormat.SegmentType.PAYLOAD_DEDUPLICATED.getCode(),
+                code);
+
+        final Payload result = (Payload) SegmentRegistry.read(code, buf);
+        assertEquals(documents, result.getSize());
+        assertTrue(result.toString().contains(Integer.toString(documents)));
+
+        return result;
+    }
+
+    @Test
+    public void lookup() throws IOException {
+        for (int distinct : new int[]{1, 2, 7, 1000}) {
+            final Payload segment = build(1000, distinct);
+            for (int i = 0; i < segment.getSize(); i++) {
+                assertArrayEquals(
+                        payload(i, distinct),
+                        segment.getPayload(i).toByteArray());
+            }
+        }
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * (C) YANDEX LLC, 2014-2016
+ *
+ * The Source Code called "YoctoDB" available at
+ * https://github.com/yandex/yoctodb is subject to the terms of the
+ * Mozilla Public License, v. 2.0 (hereinafter referred to as the "License").
+ *
+ * A copy of the License is also available at http://mozilla.org/MPL/2.0/.
+ */
+
+package com.yandex.yoctodb.v1.immutable.segment;
+
+import com.yandex.yoctodb.immutable.Payload;
+import com.yandex.yoctodb.util.UnsignedByteArray;
+import com.yandex.yoctodb.util.UnsignedByteArrays;
+import com.yandex.yoctodb.util.buf.Buffer;
+import com.yandex.yoctodb.v1.V1DatabaseFormat;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.NoSuchElementException;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Unit tests for {@link V1SparsePayloadSegment}
+ *
+ * @author agent
+ */
+public class V1SparsePayloadSegmentTest {
+    private static boolean present(final int i) {
+        return i % 3 == 0 || i % 64 == 63;
+    }
+
+    private static byte[] payload(final int i) {
+        // Empty payloads included
+        return i % 5 == 0 ? new byte[0] : ("payload" + i).getBytes();
+    }
+
+    private static Payload build(final int documents) throws IOException {
+        final SortedMap<Integer, UnsignedByteArray> payloads =
+                new TreeMap<>();
+        for (int i = 0; i < documents; i++) {
+            if (present(i)) {
+                payloads.put(i, UnsignedByteArrays.from(payload(i)));
+            }
+        }
+
+        final ByteArrayOutputStream os = new ByteArrayOutputStream();
+        new com.yandex.yoctodb.v1.mutable.segment.V1SparsePayloadSegment(
+                payloads,
+                documents).buildWritable().writeTo(os);
+
+        final Buffer buf = Buffer.from(os.toByteArray());
+        final long size = buf.getLong();
+        assertEquals(size + 4, buf.remaining());
+        final int code = buf.getInt();
+        assertEquals(
+                V1DatabaseFormat.SegmentType.PAYLOAD_SPARSE.getCode(),
+                code);
+
+        final Payload result = (Payload) SegmentRegistry.read(code, buf);
+        assertEquals(documents, result.getSize());
+        assertTrue(result.toString().contains(Integer.toString(documents)));
+
+        return result;
+    }
+
+    @Test
+    public void lookup() throws IOException {
+        for (int documents : new int[]{1, 63, 64, 65, 1000}) {
+            final Payload segment = build(documents);
+            for (int i = 0; i < documents; i++) {
+                if (present(i)) {
+                    assertArrayEquals(
+                            payload(i),
+                            segment.getPayload(i).toByteArray());
+                } else {
+                    try {
+                        segment.getPayload(i);
+                        fail();
+                    } catch (NoSuchElementException ignored) {
+                        // Expected
+                    }
+                }
+            }
+        }
+    }
+
+    @Test(expected = NoSuchElementException.class)
+    public void noPayloads() throws IOException {
+        final ByteArrayOutputStream os = new ByteArrayOutputStream();
+        new com.yandex.yoctodb.v1.mutable.segment.V1SparsePayloadSegment(
+                new TreeMap<Integer, UnsignedByteArray>(),
+                10).buildWritable().writeTo(os);
+
+        final Buffer buf = Buffer.from(os.toByteArray());
+        buf.getLong();
+        final Payload segment =
+                (Payload) SegmentRegistry.read(buf.getInt(), buf);
+        segment.getPayload(5);
+    }
+}
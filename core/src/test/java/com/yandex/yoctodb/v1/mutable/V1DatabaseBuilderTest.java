@@ -10,15 +10,25 @@
 
 package com.yandex.yoctodb.v1.mutable;
 
+import com.google.common.primitives.Ints;
 import com.yandex.yoctodb.DatabaseFormat;
+import com.yandex.yoctodb.immutable.IndexedDatabase;
 import com.yandex.yoctodb.mutable.DatabaseBuilder;
 import com.yandex.yoctodb.mutable.DocumentBuilder;
+import com.yandex.yoctodb.util.Crc32cMessageDigest;
+import com.yandex.yoctodb.util.OutputStreamWritable;
+import com.yandex.yoctodb.util.buf.Buffer;
+import com.yandex.yoctodb.v1.immutable.segment.SegmentDirectory;
 import org.junit.Test;
 
 import java.io.ByteArrayOutputStream;
 import java.security.NoSuchAlgorithmException;
 
+import static com.yandex.yoctodb.query.QueryBuilder.*;
+import static com.yandex.yoctodb.util.UnsignedByteArrays.from;
 import static com.yandex.yoctodb.v1.V1DatabaseFormat.*;
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
 /**
@@ -156,7 +166,19 @@ public class V1DatabaseBuilderTest {
     }
 
     @Test(expected = IllegalStateException.class)
-    public void wrongDigestLength() throws Throwable {
+    public void unavailableDigestSize() {
+        final String originalAlgorithm = getMessageDigestAlgorithm();
+        try {
+            setMessageDigestAlgorithm("WRONG");
+
+            getDigestSizeInBytes();
+        } finally {
+            setMessageDigestAlgorithm(originalAlgorithm);
+        }
+    }
+
+    @Test
+    public void digestLengthOfAlgorithm() throws Exception {
         final DocumentBuilder doc =
                 DatabaseFormat
                         .getCurrent()
@@ -167,17 +189,110 @@ public class V1DatabaseBuilderTest {
                                 DocumentBuilder.IndexOption.FULL)
                         .withPayload("payload1".getBytes());
 
-
         final DatabaseBuilder db =
                 DatabaseFormat.getCurrent().newDatabaseBuilder().merge(doc);
 
-        final int originalDigestSize = getDigestSizeInBytes();
+        final String originalAlgorithm = getMessageDigestAlgorithm();
+        final OutputStreamWritable writable;
+        final ByteArrayOutputStream os = new ByteArrayOutputStream();
         try {
-            setDigestSizeInBytes(originalDigestSize * 2);
+            setMessageDigestAlgorithm(Crc32cMessageDigest.ALGORITHM);
+            assertEquals(4, getDigestSizeInBytes().intValue());
 
-            db.buildWritable().writeTo(new ByteArrayOutputStream());
+            writable = db.buildWritable();
+            writable.writeTo(os);
+            assertEquals(writable.getSizeInBytes(), os.size());
         } finally {
-            setDigestSizeInBytes(originalDigestSize);
+            setMessageDigestAlgorithm(originalAlgorithm);
+        }
+
+        final IndexedDatabase read =
+                DatabaseFormat.getCurrent().getDatabaseReader()
+                        .from(Buffer.from(os.toByteArray()));
+        assertEquals(1, read.getDocumentCount());
+    }
+
+    @Test
+    public void exactSize() throws Exception {
+        final DatabaseBuilder db =
+                DatabaseFormat.getCurrent().newDatabaseBuilder();
+        for (int i = 0; i < 10; i++) {
+            db.merge(
+                    DatabaseFormat
+                            .getCurrent()
+                            .newDocumentBuilder()
+                            .withField(
+                                    "id",
+                                    i,
+                                    DocumentBuilder.IndexOption.FULL)
+                            .withField(
+                                    "name",
+                                    "name" + i,
+                                    DocumentBuilder.IndexOption.FILTERABLE)
+                            .withPayload(("payload" + i).getBytes()));
         }
+
+        final OutputStreamWritable writable = db.buildWritable();
+        final ByteArrayOutputStream os = new ByteArrayOutputStream();
+        writable.writeTo(os);
+
+        assertEquals(writable.getSizeInBytes(), os.size());
+    }
+
+    @Test
+    public void pageAlignedSegments() throws Exception {
+        final V1DatabaseBuilder db = new V1DatabaseBuilder();
+        db.withPageAlignedSegments();
+        for (int i = 0; i < 10; i++) {
+            db.merge(
+                    DatabaseFormat
+                            .getCurrent()
+                            .newDocumentBuilder()
+                            .withField(
+                                    "id",
+                                    i,
+                                    DocumentBuilder.IndexOption.FULL)
+                            .withField(
+                                    "name",
+                                    "name" + i,
+                                    DocumentBuilder.IndexOption.FILTERABLE)
+                            .withPayload(("payload" + i).getBytes()));
+        }
+
+        final OutputStreamWritable writable = db.buildWritable();
+        final ByteArrayOutputStream os = new ByteArrayOutputStream();
+        writable.writeTo(os);
+        final byte[] bytes = os.toByteArray();
+        assertEquals(writable.getSizeInBytes(), bytes.length);
+
+        // Segment data starts at page boundaries
+        final int headerSize =
+                MAGIC.length + Ints.BYTES + // Magic and format
+                Ints.BYTES + // Digest algorithm length
+                getMessageDigestAlgorithm().getBytes(US_ASCII).length;
+        final SegmentDirectory directory =
+                SegmentDirectory.from(
+                        Buffer.from(bytes).slice(
+                                headerSize,
+                                bytes.length - headerSize -
+                                getDigestSizeInBytes()));
+        assertEquals(3, directory.getEntries().size());
+        for (SegmentDirectory.Entry entry : directory.getEntries()) {
+            assertEquals(0, (headerSize + entry.getOffset()) % PAGE_SIZE);
+        }
+
+        // Padding is transparent to the reader
+        final IndexedDatabase read =
+                DatabaseFormat.getCurrent().getDatabaseReader()
+                        .from(Buffer.from(bytes));
+        assertEquals(10, read.getDocumentCount());
+        assertEquals(
+                Buffer.from("payload7".getBytes()),
+                read.getDocument(7));
+        assertEquals(
+                1,
+                read.count(
+                        select().where(
+                                eq("name", from("name3")))));
     }
 }
@@ -0,0 +1,81 @@
+/*
+ * (C) YANDEX LLC, 2014-2016
+ *
+ * The Source Code called "YoctoDB" available at
+ * https://github.com/yandex/yoctodb is subject to the terms of the
+ * Mozilla Public License, v. 2.0 (hereinafter referred to as the "License").
+ *
+ * A copy of the License is also available at http://mozilla.org/MPL/2.0/.
+ */
+
+package com.yandex.yoctodb.v1.mutable.segment;
+
+import com.yandex.yoctodb.util.OutputStreamWritable;
+import com.yandex.yoctodb.util.UnsignedByteArray;
+import com.yandex.yoctodb.util.UnsignedByteArrays;
+import com.yandex.yoctodb.util.buf.Buffer;
+import com.yandex.yoctodb.v1.V1DatabaseFormat;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for {@link V1CompressedPayloadSegment}
+ *
+ * @author agent
+ */
+public class V1CompressedPayloadSegmentTest {
+    @Test(expected = IllegalArgumentException.class)
+    public void nonpositiveDocumentsPerBlock() {
+        new V1CompressedPayloadSegment(
+                Collections.<UnsignedByteArray>emptyList(),
+                0);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void buildTwice() {
+        final V1CompressedPayloadSegment segment =
+                new V1CompressedPayloadSegment(
+                        Collections.<UnsignedByteArray>emptyList(),
+                        1);
+        segment.buildWritable();
+        segment.buildWritable();
+    }
+
+    @Test
+    public void writing() throws IOException {
+        final Collection<UnsignedByteArray> payloads = new ArrayList<>();
+        final int documents = 100;
+        long uncompressed = 0L;
+        for (int i = 0; i < documents; i++) {
+            final byte[] payload =
+                    ("{\"id\":" + i + ",\"title\":\"Some document\"}")
+                            .getBytes();
+            uncompressed += payload.length;
+            payloads.add(UnsignedByteArrays.from(payload));
+        }
+
+        final OutputStreamWritable writable =
+                new V1CompressedPayloadSegment(payloads, 32).buildWritable();
+        final ByteArrayOutputStream os = new ByteArrayOutputStream();
+        writable.writeTo(os);
+        assertEquals(os.size(), writable.getSizeInBytes() + 12);
+        assertTrue(os.size() < uncompressed / 2);
+
+        final Buffer buf = Buffer.from(os.toByteArray());
+        assertEquals(writable.getSizeInBytes(), buf.getLong());
+        assertEquals(
+                V1DatabaseFormat.SegmentType.PAYLOAD_COMPRESSED.getCode(),
+                buf.getInt());
+        assertEquals(writable.getSizeInBytes() - 8, buf.getLong());
+        assertEquals(documents, buf.getInt());
+        assertEquals(32, buf.getInt());
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * (C) YANDEX LLC, 2014-2016
+ *
+ * The Source Code called "YoctoDB" available at
+ * https://github.com/yandex/yoctodb is subject to the terms of the
+ * Mozilla Public License, v. 2.0 (hereinafter referred to as the "License").
+ *
+ * A copy of the License is also available at http://mozilla.org/MPL/2.0/.
+ */
+
+package com.yandex.yoctodb.v1.mutable.segment;
+
+import com.yandex.yoctodb.util.OutputStreamWritable;
+import com.yandex.yoctodb.util.UnsignedByteArray;
+import com.yandex.yoctodb.util.UnsignedByteArrays;
+import com.yandex.yoctodb.util.buf.Buffer;
+import com.yandex.yoctodb.v1.V1DatabaseFormat;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for {@link V1DeduplicatedPayloadSegment}
+ *
+ * @author agent
+ */
+public class V1DeduplicatedPayloadSegmentTest {
+    @Test(expected = IllegalStateException.class)
+    public void buildTwice() {
+        final V1DeduplicatedPayloadSegment segment =
+                new V1DeduplicatedPayloadSegment(
+                        Collections.<UnsignedByteArray>emptyList());
+        segment.buildWritable();
+        segment.buildWritable();
+    }
+
+    @Test
+    public void writing() throws IOException {
+        final Collection<UnsignedByteArray> payloads = new ArrayList<>();
+        final int documents = 100;
+        long total = 0L;
+        for (int i = 0; i < documents; i++) {
+            final byte[] payload =
+                    ("{\"variant\":" + i % 2 + ",\"title\":\"Document\"}")
+                            .getBytes();
+            total += payload.length;
+            payloads.add(UnsignedByteArrays.from(payload));
+        }
+
+        final OutputStreamWritable writable =
+                new V1DeduplicatedPayloadSegment(payloads).buildWritable();
+        final ByteArrayOutputStream os = new ByteArrayOutputStream();
+        writable.writeTo(os);
+        assertEquals(os.size(), writable.getSizeInBytes() + 12);
+        assertTrue(os.size() < total / 4);
+
+        final Buffer buf = Buffer.from(os.toByteArray());
+        assertEquals(writable.getSizeInBytes(), buf.getLong());
+        assertEquals(
+                V1DatabaseFormat.SegmentType.PAYLOAD_DEDUPLICATED.getCode(),
+                buf.getInt());
+    }
+}
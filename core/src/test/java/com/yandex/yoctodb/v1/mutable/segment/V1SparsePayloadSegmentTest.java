@@ -0,0 +1,90 @@
+/*
+ * (C) YANDEX LLC, 2014-2016
+ *
+ * The Source Code called "YoctoDB" available at
+ * https://github.com/yandex/yoctodb is subject to the terms of the
+ * Mozilla Public License, v. 2.0 (hereinafter referred to as the "License").
+ *
+ * A copy of the License is also available at http://mozilla.org/MPL/2.0/.
+ */
+
+package com.yandex.yoctodb.v1.mutable.segment;
+
+import com.yandex.yoctodb.util.OutputStreamWritable;
+import com.yandex.yoctodb.util.UnsignedByteArray;
+import com.yandex.yoctodb.util.UnsignedByteArrays;
+import com.yandex.yoctodb.util.buf.Buffer;
+import com.yandex.yoctodb.v1.V1DatabaseFormat;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Unit tests for {@link V1SparsePayloadSegment}
+ *
+ * @author agent
+ */
+public class V1SparsePayloadSegmentTest {
+    @Test(expected = IllegalArgumentException.class)
+    public void negativeDocumentsCount() {
+        new V1SparsePayloadSegment(
+                new TreeMap<Integer, UnsignedByteArray>(),
+                -1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void documentOutOfBounds() {
+        final SortedMap<Integer, UnsignedByteArray> payloads =
+                new TreeMap<>();
+        payloads.put(10, UnsignedByteArrays.from("doc".getBytes()));
+        new V1SparsePayloadSegment(payloads, 10);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void buildTwice() {
+        final V1SparsePayloadSegment segment =
+                new V1SparsePayloadSegment(
+                        new TreeMap<Integer, UnsignedByteArray>(),
+                        1);
+        segment.buildWritable();
+        segment.buildWritable();
+    }
+
+    @Test
+    public void writing() throws IOException {
+        final SortedMap<Integer, UnsignedByteArray> payloads =
+                new TreeMap<>();
+        payloads.put(1, UnsignedByteArrays.from("doc1".getBytes()));
+        payloads.put(64, UnsignedByteArrays.from("doc64".getBytes()));
+        payloads.put(65, UnsignedByteArrays.from("doc65".getBytes()));
+
+        final OutputStreamWritable writable =
+                new V1SparsePayloadSegment(payloads, 130).buildWritable();
+        final ByteArrayOutputStream os = new ByteArrayOutputStream();
+        writable.writeTo(os);
+        assertEquals(os.size(), writable.getSizeInBytes() + 12);
+
+        final Buffer buf = Buffer.from(os.toByteArray());
+        assertEquals(writable.getSizeInBytes(), buf.getLong());
+        assertEquals(
+                V1DatabaseFormat.SegmentType.PAYLOAD_SPARSE.getCode(),
+                buf.getInt());
+        assertEquals(130, buf.getInt());
+        assertEquals(3, buf.getInt());
+
+        // Presence
+        assertEquals(1L << 1, buf.getLong());
+        assertEquals(3L, buf.getLong());
+        assertEquals(0L, buf.getLong());
+
+        // Ranks
+        assertEquals(0, buf.getInt());
+        assertEquals(1, buf.getInt());
+        assertEquals(3, buf.getInt());
+    }
+}